@@ -0,0 +1,73 @@
+package com.dataingest.bench;
+
+import com.dataingest.insert.BatchSizer;
+import com.dataingest.insert.BoundedRowSource;
+import com.dataingest.insert.DelimitedRowSource;
+import com.dataingest.insert.JdbcBatchInserter;
+import com.dataingest.insert.RowBinaryInserter;
+import com.dataingest.insert.RowInserter;
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.InsertMode;
+import com.dataingest.parser.DelimitedTokenizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of building insert batches of different sizes with the real inserters: parsing,
+ * binding or RowBinary encoding, and per-batch setup. The connection is in-memory, so network and
+ * server time are excluded. One operation inserts the whole dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long NO_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"ROW_BINARY", "JDBC_BATCH"})
+    public InsertMode mode;
+
+    @Param({"65536", "1048576", "8388608"})
+    public long batchBytes;
+
+    @Param({"16"})
+    public int columns;
+
+    @Param({"100000"})
+    public int rows;
+
+    private byte[] data;
+    private List<ColumnSchema> schema;
+
+    @Setup
+    public void setup() {
+        data = SyntheticData.delimited(columns, rows, ',');
+        schema = SyntheticData.columns(columns);
+    }
+
+    @Benchmark
+    public long insert() throws Exception {
+        BatchSizer sizer = new BatchSizer(batchBytes, batchBytes, batchBytes, Long.MAX_VALUE, NO_INTERVAL_MS);
+        RowInserter inserter = mode == InsertMode.JDBC_BATCH ? new JdbcBatchInserter(sizer) : new RowBinaryInserter();
+        Connection conn = InMemoryJdbc.connection();
+        long count = 0;
+        try (DelimitedTokenizer tokenizer = new DelimitedTokenizer(new ByteArrayInputStream(data), (byte) ',',
+                DelimitedTokenizer.DEFAULT_QUOTE, BUFFER_SIZE)) {
+            DelimitedRowSource source = new DelimitedRowSource(tokenizer);
+            BoundedRowSource batch;
+            do {
+                batch = new BoundedRowSource(source, source.position() + batchBytes);
+                count += inserter.insert(conn, "bench", schema, batch, null);
+            } while (!batch.isExhausted());
+        }
+        return count;
+    }
+}
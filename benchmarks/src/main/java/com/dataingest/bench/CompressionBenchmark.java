@@ -0,0 +1,71 @@
+package com.dataingest.bench;
+
+import com.dataingest.compress.CompressionStreams;
+import com.dataingest.model.FileCompression;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The export and upload codecs on delimited data. Compression runs on the calling thread, so this is the
+ * codec's own cost without the hand-off of {@link CompressionStreams#compressAsync}. One operation
+ * handles the whole dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @Param({"GZIP", "ZSTD", "LZ4"})
+    public FileCompression codec;
+
+    @Param({"16"})
+    public int columns;
+
+    @Param({"100000"})
+    public int rows;
+
+    private byte[] data;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws IOException {
+        data = SyntheticData.delimited(columns, rows, ',');
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream codecOut = CompressionStreams.compress(out, codec)) {
+            codecOut.write(data);
+        }
+        compressed = out.toByteArray();
+    }
+
+    @Benchmark
+    public void compress() throws IOException {
+        // Written in the chunks a BufferedWriter would hand over
+        try (OutputStream out = CompressionStreams.compress(new InMemoryJdbc.NullOutputStream(), codec)) {
+            for (int off = 0; off < data.length; off += CHUNK_SIZE) {
+                out.write(data, off, Math.min(CHUNK_SIZE, data.length - off));
+            }
+        }
+    }
+
+    @Benchmark
+    public void decompress(Blackhole bh) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (InputStream in = CompressionStreams.autoDecompress(new ByteArrayInputStream(compressed))) {
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                bh.consume(n);
+            }
+        }
+    }
+}
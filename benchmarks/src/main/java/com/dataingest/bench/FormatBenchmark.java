@@ -0,0 +1,102 @@
+package com.dataingest.bench;
+
+import com.dataingest.export.DelimitedRowWriter;
+import com.dataingest.model.ColumnSchema;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning result set rows into delimited text for exports that are not formatted by the server: the
+ * former per-row formatting (boxed values looked up by name, joined into a line for a {@code Writer}),
+ * the same by column index, and {@link DelimitedRowWriter}. One operation formats the whole dataset.
+ * The in-memory result set adds the same proxy dispatch cost to every getter in all variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"8", "64"})
+    public int columns;
+
+    @Param({"100000"})
+    public int rows;
+
+    private List<ColumnSchema> schema;
+    private String[] names;
+    private Object[][] values;
+
+    @Setup
+    public void setup() {
+        schema = SyntheticData.columns(columns);
+        names = SyntheticData.columnNames(columns);
+        values = SyntheticData.values(columns, rows);
+    }
+
+    @Benchmark
+    public void byName() throws SQLException, IOException {
+        ResultSet rs = InMemoryJdbc.resultSet(schema, values);
+        String lineSeparator = System.lineSeparator();
+        try (Writer writer = writer()) {
+            while (rs.next()) {
+                List<String> line = new ArrayList<>();
+                for (String column : names) {
+                    Object value = rs.getObject(column);
+                    line.add(value != null ? value.toString() : "");
+                }
+                writer.write(String.join(",", line));
+                writer.write(lineSeparator);
+            }
+        }
+    }
+
+    @Benchmark
+    public void byIndex() throws SQLException, IOException {
+        ResultSet rs = InMemoryJdbc.resultSet(schema, values);
+        String lineSeparator = System.lineSeparator();
+        try (Writer writer = writer()) {
+            while (rs.next()) {
+                for (int i = 1; i <= names.length; i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    Object value = rs.getObject(i);
+                    if (value != null) {
+                        writer.write(value.toString());
+                    }
+                }
+                writer.write(lineSeparator);
+            }
+        }
+    }
+
+    @Benchmark
+    public void rowWriter() throws SQLException, IOException {
+        ResultSet rs = InMemoryJdbc.resultSet(schema, values);
+        try (DelimitedRowWriter writer = DelimitedRowWriter.toStream(new InMemoryJdbc.NullOutputStream(), rs, names,
+                ",", BUFFER_SIZE, null)) {
+            while (rs.next()) {
+                writer.writeRow();
+            }
+        }
+    }
+
+    private static Writer writer() {
+        return new BufferedWriter(new OutputStreamWriter(new InMemoryJdbc.NullOutputStream(), StandardCharsets.UTF_8));
+    }
+}
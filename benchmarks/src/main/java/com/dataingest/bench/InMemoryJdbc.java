@@ -0,0 +1,152 @@
+package com.dataingest.bench;
+
+import com.clickhouse.data.ClickHouseOutputStream;
+import com.clickhouse.data.ClickHouseWriter;
+import com.dataingest.model.ColumnSchema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of the JDBC interfaces to drive the export and insert code without a server. Result sets
+ * serve rows from memory; prepared statements buffer bound batches the way the driver does and drop
+ * them on execute, and hand RowBinary writers a stream that discards what they encode.
+ */
+final class InMemoryJdbc {
+
+    private InMemoryJdbc() {
+    }
+
+    /**
+     * A forward-only result set over {@code rows}, with columns addressable by index or by name, typed
+     * getters and metadata reporting each column's ClickHouse type.
+     */
+    static ResultSet resultSet(List<ColumnSchema> columns, Object[][] rows) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            index.put(columns.get(i).getName(), i);
+        }
+        ResultSetMetaData meta = proxy(ResultSetMetaData.class, (method, args) ->
+                "getColumnTypeName".equals(method) ? columns.get((Integer) args[0] - 1).getType() : null);
+        int[] cursor = {-1};
+        Object[] last = {null};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return ++cursor[0] < rows.length;
+                case "getMetaData":
+                    return meta;
+                case "findColumn":
+                    return index.get(args[0]) + 1;
+                case "wasNull":
+                    return last[0] == null;
+                case "getObject":
+                case "getString":
+                case "getLong":
+                case "getFloat":
+                case "getDouble":
+                case "getBoolean":
+                    int column = args[0] instanceof String ? index.get(args[0]) : (Integer) args[0] - 1;
+                    Object value = rows[cursor[0]][column];
+                    last[0] = value;
+                    switch (method) {
+                        case "getString":
+                            return value != null ? value.toString() : null;
+                        case "getLong":
+                            return value != null ? ((Number) value).longValue() : 0L;
+                        case "getFloat":
+                            return value != null ? ((Number) value).floatValue() : 0f;
+                        case "getDouble":
+                            return value != null ? ((Number) value).doubleValue() : 0d;
+                        case "getBoolean":
+                            return value != null && (Boolean) value;
+                        default:
+                            return value;
+                    }
+                default:
+                    return null;
+            }
+        });
+    }
+
+    static Connection connection() {
+        return proxy(Connection.class, (method, args) ->
+                "prepareStatement".equals(method) ? preparedStatement() : null);
+    }
+
+    private static PreparedStatement preparedStatement() {
+        List<Object[]> batch = new ArrayList<>();
+        Object[][] current = {new Object[0]};
+        OutputStream sink = new NullOutputStream();
+        return proxy(PreparedStatement.class, (method, args) -> {
+            switch (method) {
+                case "setString":
+                case "setNull":
+                case "setObject":
+                    int parameter = (Integer) args[0];
+                    if (current[0].length < parameter) {
+                        Object[] grown = new Object[parameter];
+                        System.arraycopy(current[0], 0, grown, 0, current[0].length);
+                        current[0] = grown;
+                    }
+                    current[0][parameter - 1] = "setNull".equals(method) ? null : args[1];
+                    return null;
+                case "addBatch":
+                    batch.add(current[0].clone());
+                    return null;
+                case "executeBatch":
+                    int[] counts = new int[batch.size()];
+                    batch.clear();
+                    return counts;
+                case "executeUpdate":
+                    ClickHouseOutputStream out = ClickHouseOutputStream.of(sink);
+                    ((ClickHouseWriter) current[0][0]).write(out);
+                    out.flush();
+                    return 0;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(InMemoryJdbc.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    try {
+                        Object result = handler.invoke(method.getName(), args);
+                        if (result == null && method.getReturnType() == boolean.class) {
+                            return false;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    static final class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.dataingest.bench;
+
+import com.dataingest.parser.DelimitedTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting delimited input into fields: the original line-by-line {@code String.split}, against
+ * {@link DelimitedTokenizer} materialising each field as a String (what the JDBC path needs) and
+ * reading only field offsets (what the RowBinary path needs). One operation parses the whole dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"8", "64"})
+    public int columns;
+
+    @Param({"100000"})
+    public int rows;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        data = SyntheticData.delimited(columns, rows, ',');
+    }
+
+    @Benchmark
+    public void stringSplit(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                bh.consume(line.split(",", -1));
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenizerStrings(Blackhole bh) throws IOException {
+        try (DelimitedTokenizer tokenizer = new DelimitedTokenizer(new ByteArrayInputStream(data), (byte) ',',
+                DelimitedTokenizer.DEFAULT_QUOTE, BUFFER_SIZE)) {
+            while (tokenizer.nextRecord()) {
+                for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                    bh.consume(tokenizer.field(i));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenizerOffsets(Blackhole bh) throws IOException {
+        try (DelimitedTokenizer tokenizer = new DelimitedTokenizer(new ByteArrayInputStream(data), (byte) ',',
+                DelimitedTokenizer.DEFAULT_QUOTE, BUFFER_SIZE)) {
+            while (tokenizer.nextRecord()) {
+                for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                    bh.consume(tokenizer.fieldOffset(i));
+                    bh.consume(tokenizer.fieldLength(i));
+                }
+            }
+        }
+    }
+}
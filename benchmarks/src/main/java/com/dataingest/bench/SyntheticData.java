@@ -0,0 +1,90 @@
+package com.dataingest.bench;
+
+import com.dataingest.model.ColumnSchema;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic datasets for the benchmarks. Columns cycle through Int64, Float64, String and Date so
+ * that every width exercises each encoder; string values never contain the delimiter or quotes, which
+ * keeps {@code String.split} a fair baseline.
+ */
+public final class SyntheticData {
+
+    private static final String[] TYPES = {"Int64", "Float64", "String", "Date"};
+    private static final long SEED = 42;
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ".toCharArray();
+
+    private SyntheticData() {
+    }
+
+    public static List<ColumnSchema> columns(int width) {
+        List<ColumnSchema> columns = new ArrayList<>();
+        for (int i = 0; i < width; i++) {
+            columns.add(new ColumnSchema("c" + i, TYPES[i % TYPES.length]));
+        }
+        return columns;
+    }
+
+    public static String[] columnNames(int width) {
+        String[] names = new String[width];
+        for (int i = 0; i < width; i++) {
+            names[i] = "c" + i;
+        }
+        return names;
+    }
+
+    /** Typed values as a driver would return them from {@code ResultSet.getObject}. */
+    public static Object[][] values(int width, int rows) {
+        Random random = new Random(SEED);
+        Object[][] values = new Object[rows][width];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < width; c++) {
+                values[r][c] = value(random, c);
+            }
+        }
+        return values;
+    }
+
+    /** The same kind of values as delimited text, one record per line without a header. */
+    public static byte[] delimited(int width, int rows, char delimiter) {
+        Random random = new Random(SEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows * width * 12);
+        StringBuilder line = new StringBuilder();
+        for (int r = 0; r < rows; r++) {
+            line.setLength(0);
+            for (int c = 0; c < width; c++) {
+                if (c > 0) {
+                    line.append(delimiter);
+                }
+                line.append(value(random, c));
+            }
+            line.append('\n');
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static Object value(Random random, int column) {
+        switch (column % TYPES.length) {
+            case 0:
+                return random.nextLong() >> random.nextInt(64);
+            case 1:
+                return Math.round(random.nextDouble() * 1_000_000) / 100.0;
+            case 2:
+                char[] chars = new char[4 + random.nextInt(28)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+                }
+                return new String(chars);
+            default:
+                return LocalDate.ofEpochDay(10_000 + random.nextInt(10_000));
+        }
+    }
+}
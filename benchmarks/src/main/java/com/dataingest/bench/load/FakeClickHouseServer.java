@@ -0,0 +1,350 @@
+package com.dataingest.bench.load;
+
+import com.dataingest.bench.SyntheticData;
+import com.dataingest.model.ColumnSchema;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process stand-in for the ClickHouse HTTP interface, answering just the queries this application
+ * sends: the driver's handshake, metadata lookups, DDL, inserts (whose bodies are read and discarded) and
+ * plain {@code SELECT} exports, which are served from synthetic rows in RowBinaryWithNamesAndTypes.
+ * Every table has the columns of {@link SyntheticData#columns}. Response latency and transfer rates
+ * can be throttled to model a slower server. Compression is not supported, so clients must use
+ * {@code compress=0}.
+ */
+public class FakeClickHouseServer implements AutoCloseable {
+
+    private static final Pattern SELECT = Pattern.compile(
+            "(?is)^\\s*select\\s+(.+?)\\s+from\\s+([\\w.`\"]+)(?:\\s+limit\\s+(\\d+))?.*$");
+    private static final int CHUNK_ROWS = 256;
+    /** Distinct rows served; longer results repeat them, so serving costs next to nothing. */
+    private static final int SAMPLE_ROWS = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<ColumnSchema> columns;
+    private final Object[][] sample;
+    private final long tableRows;
+    private final long latencyMillis;
+    private final long selectRowsPerSecond;
+    private final long insertBytesPerSecond;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong insertedBytes = new AtomicLong();
+    private final AtomicLong selectedRows = new AtomicLong();
+
+    /**
+     * @param columns              width of every table
+     * @param tableRows            rows served by a full-table {@code SELECT}
+     * @param latencyMillis        delay before each response starts
+     * @param selectRowsPerSecond  cap on rows served per query, 0 for none
+     * @param insertBytesPerSecond cap on insert body bytes read per query, 0 for none
+     */
+    public FakeClickHouseServer(int columns, long tableRows, long latencyMillis, long selectRowsPerSecond,
+                                long insertBytesPerSecond) throws IOException {
+        this.columns = SyntheticData.columns(columns);
+        this.sample = SyntheticData.values(columns, SAMPLE_ROWS);
+        this.tableRows = tableRows;
+        this.latencyMillis = latencyMillis;
+        this.selectRowsPerSecond = selectRowsPerSecond;
+        this.insertBytesPerSecond = insertBytesPerSecond;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-clickhouse");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getQueries() {
+        return queries.get();
+    }
+
+    public long getInsertedBytes() {
+        return insertedBytes.get();
+    }
+
+    public long getSelectedRows() {
+        return selectedRows.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            queries.incrementAndGet();
+            String query = parameter(exchange.getRequestURI().getRawQuery(), "query");
+            InputStream body = exchange.getRequestBody();
+            if (query == null) {
+                // Without a query parameter the body is the query
+                query = new String(readFully(body), StandardCharsets.UTF_8);
+            }
+            sleep(latencyMillis);
+            respond(exchange, query.trim(), body);
+        } catch (Exception e) {
+            error(exchange, 1, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, String query, InputStream body) throws IOException {
+        String lower = query.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("insert")) {
+            long bytes = drain(body);
+            insertedBytes.addAndGet(bytes);
+            exchange.getResponseHeaders().add("X-ClickHouse-Summary",
+                    "{\"written_bytes\":\"" + bytes + "\"}");
+            exchange.sendResponseHeaders(200, -1);
+        } else if (lower.startsWith("create") || lower.startsWith("drop") || lower.startsWith("alter")) {
+            exchange.sendResponseHeaders(200, -1);
+        } else if (lower.startsWith("select currentuser()")) {
+            serverInfo(exchange);
+        } else if (lower.contains("from system.tables")) {
+            result(exchange, header(new String[] {"name"}, new String[] {"String"}),
+                    Collections.singletonList(new Object[] {"load_test"}), new String[] {"String"});
+        } else if (lower.contains("from system.columns")) {
+            List<Object[]> rows = new ArrayList<>();
+            for (ColumnSchema column : columns) {
+                rows.add(new Object[] {column.getName(), column.getType()});
+            }
+            String[] types = {"String", "String"};
+            result(exchange, header(new String[] {"name", "type"}, types), rows, types);
+        } else if (lower.matches("(?s)select\\s+1\\b.*")) {
+            String[] types = {"UInt8"};
+            result(exchange, header(new String[] {"1"}, types), Collections.singletonList(new Object[] {1}), types);
+        } else if (lower.startsWith("select count()")) {
+            String[] types = {"UInt64"};
+            result(exchange, header(new String[] {"count()"}, types),
+                    Collections.singletonList(new Object[] {tableRows}), types);
+        } else if (!lower.contains(" format ") || lower.endsWith("format rowbinarywithnamesandtypes")) {
+            select(exchange, query);
+        } else {
+            error(exchange, 1, "Not supported by the stand-in: " + query);
+        }
+    }
+
+    private void serverInfo(HttpExchange exchange) throws IOException {
+        String[] names = {"user", "timezone", "version", "readonly", "throw_on_unsupported_query_inside_transaction",
+                "wait_changes_become_visible_after_commit_mode", "implicit_transaction", "max_insert_block_size",
+                "allow_experimental_lightweight_delete", "custom_jdbc_config"};
+        String[] types = {"String", "String", "String", "UInt8", "Int8", "String", "Int8", "UInt64", "Int8", "String"};
+        Object[] row = {"default", "UTC", "23.8.1.1", 0, -1, "", -1, 1048449L, -1, ""};
+        result(exchange, header(names, types), Collections.singletonList(row), types);
+    }
+
+    /** Serves {@code tableRows} rows (or the query's LIMIT) of the selected columns, throttled if configured. */
+    private void select(HttpExchange exchange, String query) throws IOException {
+        Matcher m = SELECT.matcher(query.replaceAll("(?i)\\s+format\\s+\\w+\\s*$", ""));
+        if (!m.matches()) {
+            error(exchange, 62, "Syntax not supported by the stand-in: " + query);
+            return;
+        }
+        String[] names = m.group(1).split("\\s*,\\s*");
+        String[] types = new String[names.length];
+        int[] kinds = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+            types[i] = "String";
+            for (int c = 0; c < columns.size(); c++) {
+                if (columns.get(c).getName().equals(names[i])) {
+                    types[i] = columns.get(c).getType();
+                    kinds[i] = c;
+                }
+            }
+        }
+        long rows = m.group(3) != null ? Math.min(tableRows, Long.parseLong(m.group(3))) : tableRows;
+
+        byte[][] encoded = new byte[SAMPLE_ROWS][];
+        Object[] row = new Object[names.length];
+        for (int r = 0; r < SAMPLE_ROWS; r++) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = sample[r][kinds[i]];
+            }
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            writeRow(buf, row, types);
+            encoded[r] = buf.toByteArray();
+        }
+
+        exchange.getResponseHeaders().add("X-ClickHouse-Format", "RowBinaryWithNamesAndTypes");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+        out.write(header(names, types));
+        long start = System.nanoTime();
+        for (long r = 0; r < rows; r++) {
+            out.write(encoded[(int) (r % SAMPLE_ROWS)]);
+            if ((r + 1) % CHUNK_ROWS == 0) {
+                throttle(start, r + 1, selectRowsPerSecond);
+            }
+        }
+        selectedRows.addAndGet(rows);
+        out.flush();
+    }
+
+    private void result(HttpExchange exchange, byte[] header, List<Object[]> rows, String[] types) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        buf.write(header);
+        for (Object[] row : rows) {
+            writeRow(buf, row, types);
+        }
+        exchange.getResponseHeaders().add("X-ClickHouse-Format", "RowBinaryWithNamesAndTypes");
+        exchange.sendResponseHeaders(200, buf.size());
+        buf.writeTo(exchange.getResponseBody());
+    }
+
+    private static void error(HttpExchange exchange, int code, String message) throws IOException {
+        byte[] body = ("Code: " + code + ". DB::Exception: " + message).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("X-ClickHouse-Exception-Code", String.valueOf(code));
+        exchange.sendResponseHeaders(500, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private long drain(InputStream body) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        long start = System.nanoTime();
+        for (int n; (n = body.read(buffer)) >= 0; ) {
+            total += n;
+            throttle(start, total, insertBytesPerSecond);
+        }
+        return total;
+    }
+
+    /** Sleeps until {@code done} units at {@code perSecond} would have taken as long as they have. */
+    private static void throttle(long startNanos, long done, long perSecond) {
+        if (perSecond <= 0) {
+            return;
+        }
+        long due = startNanos + done * TimeUnit.SECONDS.toNanos(1) / perSecond;
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            sleep(TimeUnit.NANOSECONDS.toMillis(wait));
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] header(String[] names, String[] types) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarInt(out, names.length);
+        for (String name : names) {
+            writeString(out, name);
+        }
+        for (String type : types) {
+            writeString(out, type);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeRow(ByteArrayOutputStream out, Object[] row, String[] types) {
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            switch (types[i]) {
+                case "UInt8":
+                case "Int8":
+                    out.write(((Number) value).intValue());
+                    break;
+                case "UInt64":
+                case "Int64":
+                    writeLong(out, ((Number) value).longValue());
+                    break;
+                case "Float64":
+                    writeLong(out, Double.doubleToLongBits(((Number) value).doubleValue()));
+                    break;
+                case "Date":
+                    int days = (int) ((LocalDate) value).toEpochDay();
+                    out.write(days & 0xff);
+                    out.write((days >>> 8) & 0xff);
+                    break;
+                default:
+                    writeString(out, String.valueOf(value));
+            }
+        }
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 8; i++) {
+            out.write((int) (value >>> (8 * i)) & 0xff);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) >= 0; ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static String parameter(String rawQuery, String name) throws IOException {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+}
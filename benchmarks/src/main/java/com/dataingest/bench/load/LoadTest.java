@@ -0,0 +1,392 @@
+package com.dataingest.bench.load;
+
+import com.dataingest.bench.SyntheticData;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives concurrent imports and exports through the application's HTTP API against a
+ * {@link FakeClickHouseServer}, then reports rows per second, request latency percentiles and the
+ * application's heap usage. Nothing leaves the machine, so it can run in CI:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.dataingest.bench.load.LoadTest \
+ *     --app-jar=target/clickhouse-file-ingestion-1.0-SNAPSHOT-exec.jar --jobs=20 --concurrency=4
+ * </pre>
+ *
+ * Options (all {@code --name=value}): {@code app-jar} starts the application with the stand-in's
+ * settings, or {@code app-url} uses one that is already running with {@code clickhouse.ssl=false} and
+ * {@code clickhouse.compression=NONE}; {@code scenarios} ({@code import,export}), {@code jobs} and
+ * {@code concurrency} per scenario; {@code rows} and {@code columns} of the synthetic data;
+ * {@code insert-mode}; {@code latency-ms}, {@code select-rows-per-sec} and {@code insert-bytes-per-sec}
+ * to slow the stand-in down; {@code heap} for the started application; {@code report} for the JSON
+ * report path; and {@code min-rows-per-sec}, below which the run exits with status 1, as does any
+ * failed request. Import latency includes uploading the file to the application.
+ */
+public final class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long HEAP_SAMPLE_MS = 250;
+    private static final long STARTUP_TIMEOUT_MS = 120_000;
+
+    private final Map<String, String> options;
+    private final String[] columnNames;
+    private final FakeClickHouseServer clickHouse;
+    private String appUrl;
+    private Process app;
+    private Path workDir;
+
+    private LoadTest(Map<String, String> options) throws IOException {
+        this.options = options;
+        int columns = intOption("columns", 16);
+        this.columnNames = SyntheticData.columnNames(columns);
+        this.clickHouse = new FakeClickHouseServer(columns, longOption("rows", 100_000),
+                longOption("latency-ms", 0), longOption("select-rows-per-sec", 0),
+                longOption("insert-bytes-per-sec", 0));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        boolean passed;
+        LoadTest test = new LoadTest(options);
+        try {
+            passed = test.run();
+        } finally {
+            test.shutdown();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        workDir = Files.createTempDirectory("load-test");
+        clickHouse.start();
+        startApp();
+
+        int rows = intOption("rows", 100_000);
+        Path data = workDir.resolve("load.csv");
+        try (OutputStream out = Files.newOutputStream(data)) {
+            out.write((String.join(",", columnNames) + "\n").getBytes(StandardCharsets.UTF_8));
+            out.write(SyntheticData.delimited(columnNames.length, rows, ','));
+        }
+
+        ObjectNode report = MAPPER.createObjectNode();
+        report.put("rows", rows);
+        report.put("columns", columnNames.length);
+        report.put("jobs", intOption("jobs", 20));
+        report.put("concurrency", intOption("concurrency", 4));
+        ArrayNode results = report.putArray("scenarios");
+
+        boolean passed = true;
+        long minRowsPerSecond = longOption("min-rows-per-sec", 0);
+        for (String scenario : option("scenarios", "import,export").split(",")) {
+            ObjectNode result = runScenario(scenario.trim(), data);
+            results.add(result);
+            print(result);
+            if (result.get("failures").asLong() > 0 || result.get("rowsPerSecond").asDouble() < minRowsPerSecond) {
+                passed = false;
+            }
+        }
+        report.put("passed", passed);
+
+        Path reportFile = Paths.get(option("report", "load-report.json"));
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), report);
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+        return passed;
+    }
+
+    private ObjectNode runScenario(String scenario, Path data) throws Exception {
+        int jobs = intOption("jobs", 20);
+        int concurrency = intOption("concurrency", 4);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong rows = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        HeapSampler heap = new HeapSampler();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < jobs; i++) {
+                int job = i;
+                futures.add(pool.submit(() -> {
+                    long requestStart = System.nanoTime();
+                    try {
+                        JsonNode result = "import".equals(scenario) ? importFile(data) : exportTable(job);
+                        latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart));
+                        if (result.path("success").asBoolean()) {
+                            rows.addAndGet(result.path("recordsProcessed").asLong());
+                        } else {
+                            failures.incrementAndGet();
+                            errors.add(result.toString());
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        errors.add(e.toString());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+            heap.stop();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Collections.sort(latencies);
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("scenario", scenario);
+        result.put("requests", jobs);
+        result.put("failures", failures.get());
+        result.put("totalRows", rows.get());
+        result.put("seconds", seconds);
+        result.put("rowsPerSecond", rows.get() / seconds);
+        result.put("latencyP50Ms", percentile(latencies, 50));
+        result.put("latencyP99Ms", percentile(latencies, 99));
+        result.put("latencyMaxMs", latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1));
+        result.put("heapPeakMb", heap.peak / (1024.0 * 1024));
+        result.put("heapMeanMb", heap.count == 0 ? 0 : heap.total / heap.count / (1024.0 * 1024));
+        ArrayNode errorList = result.putArray("errors");
+        errors.stream().distinct().limit(5).forEach(errorList::add);
+        return result;
+    }
+
+    private JsonNode importFile(Path data) throws IOException {
+        String boundary = UUID.randomUUID().toString();
+        HttpURLConnection conn = open("/ingest/file-to-clickhouse");
+        conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        conn.setChunkedStreamingMode(64 * 1024);
+        try (OutputStream out = conn.getOutputStream()) {
+            field(out, boundary, "delimiter", ",");
+            field(out, boundary, "hasHeader", "true");
+            field(out, boundary, "insertMode", option("insert-mode", "ROW_BINARY"));
+            field(out, boundary, "config", MAPPER.writeValueAsString(connectionConfig()));
+            out.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"load.csv\"\r\n"
+                    + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            Files.copy(data, out);
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return response(conn);
+    }
+
+    private JsonNode exportTable(int job) throws IOException {
+        HttpURLConnection conn = open("/ingest/clickhouse-to-file?fileName=load-" + job + ".csv&delimiter="
+                + URLEncoder.encode(",", "UTF-8"));
+        conn.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = conn.getOutputStream()) {
+            MAPPER.writeValue(out, connectionConfig());
+        }
+        return response(conn);
+    }
+
+    private ObjectNode connectionConfig() {
+        ObjectNode config = MAPPER.createObjectNode();
+        config.put("host", "127.0.0.1");
+        config.put("port", clickHouse.getPort());
+        config.put("database", "default");
+        config.put("user", "default");
+        config.put("jwtToken", "load-test");
+        config.put("compression", "NONE");
+        config.putArray("selectedTables").add("load_test");
+        ArrayNode columns = config.putArray("selectedColumns");
+        for (String column : columnNames) {
+            columns.add(column);
+        }
+        return config;
+    }
+
+    private void startApp() throws Exception {
+        if (options.containsKey("app-url")) {
+            appUrl = options.get("app-url");
+        } else {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            appUrl = "http://127.0.0.1:" + port;
+            File jar = new File(option("app-jar", "target/clickhouse-file-ingestion-1.0-SNAPSHOT-exec.jar"));
+            if (!jar.isFile()) {
+                throw new IllegalArgumentException("Application jar not found: " + jar.getAbsolutePath()
+                        + " (build it with mvn package, or pass --app-jar or --app-url)");
+            }
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            File log = workDir.resolve("app.log").toFile();
+            app = new ProcessBuilder(java, "-Xmx" + option("heap", "1g"), "-jar", jar.getAbsolutePath(),
+                    "--server.port=" + port,
+                    "--clickhouse.ssl=false",
+                    "--clickhouse.compression=NONE",
+                    "--spring.servlet.multipart.max-file-size=-1",
+                    "--spring.servlet.multipart.max-request-size=-1",
+                    "--logging.level.root=WARN")
+                    .directory(workDir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(log)
+                    .start();
+            System.out.println("Started application on " + appUrl + ", log at " + log);
+        }
+
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MS;
+        while (true) {
+            try {
+                HttpURLConnection conn = (HttpURLConnection) new URL(appUrl + "/actuator/health").openConnection();
+                if (conn.getResponseCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            if (app != null && !app.isAlive()) {
+                throw new IllegalStateException("Application exited with status " + app.exitValue());
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Application did not become healthy at " + appUrl);
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private void shutdown() {
+        if (app != null) {
+            app.destroy();
+            try {
+                app.waitFor(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            app.destroyForcibly();
+        }
+        clickHouse.close();
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(appUrl + path).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setReadTimeout(0);
+        return conn;
+    }
+
+    private static JsonNode response(HttpURLConnection conn) throws IOException {
+        int status = conn.getResponseCode();
+        InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream();
+        byte[] body = in != null ? readFully(in) : new byte[0];
+        if (status >= 400 && body.length == 0) {
+            throw new IOException("HTTP " + status);
+        }
+        return MAPPER.readTree(body);
+    }
+
+    private static void field(OutputStream out, String boundary, String name, String value) throws IOException {
+        out.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static void print(JsonNode result) {
+        System.out.printf("%-8s %4d requests %3d failed  %12.0f rows/s  p50 %6d ms  p99 %6d ms  heap peak %7.1f MB%n",
+                result.get("scenario").asText(), result.get("requests").asInt(), result.get("failures").asInt(),
+                result.get("rowsPerSecond").asDouble(), result.get("latencyP50Ms").asLong(),
+                result.get("latencyP99Ms").asLong(), result.get("heapPeakMb").asDouble());
+        for (JsonNode error : result.get("errors")) {
+            System.out.println("  " + error.asText());
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = input.read(buffer)) >= 0; ) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+
+    private long longOption(String name, long defaultValue) {
+        return Long.parseLong(option(name, String.valueOf(defaultValue)));
+    }
+
+    /** Polls the application's heap usage through Actuator while a scenario runs. */
+    private final class HeapSampler {
+
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private volatile long peak;
+        private volatile long total;
+        private volatile long count;
+
+        private HeapSampler() {
+            scheduler.scheduleAtFixedRate(this::sample, 0, HEAP_SAMPLE_MS, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            try {
+                HttpURLConnection conn = (HttpURLConnection) new URL(
+                        appUrl + "/actuator/metrics/jvm.memory.used?tag=area:heap").openConnection();
+                long used = MAPPER.readTree(readFully(conn.getInputStream()))
+                        .path("measurements").path(0).path("value").asLong();
+                peak = Math.max(peak, used);
+                total += used;
+                count++;
+            } catch (IOException e) {
+                // Actuator not exposed on this application; heap figures stay at 0
+            }
+        }
+
+        private void stop() throws InterruptedException {
+            scheduler.shutdown();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.dataingest.checkpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Keeps import checkpoints as JSON files under {@code ingest.checkpoint.dir}. Each save replaces the
+ * file atomically, so a crash mid-write leaves the previous checkpoint intact.
+ */
+@Component
+public class CheckpointStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointStore.class);
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9-]+");
+    private static final String SUFFIX = ".checkpoint.json";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${ingest.checkpoint.dir:checkpoints}")
+    private String directory;
+
+    public void save(ImportCheckpoint checkpoint) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+        Path temp = dir.resolve(checkpoint.getId() + SUFFIX + ".tmp");
+        mapper.writeValue(temp.toFile(), checkpoint);
+        Files.move(temp, path(checkpoint.getId()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** The saved checkpoint, or {@code null} if there is none. */
+    public ImportCheckpoint load(String id) throws IOException {
+        Path file = path(id);
+        return Files.exists(file) ? mapper.readValue(file.toFile(), ImportCheckpoint.class) : null;
+    }
+
+    public boolean exists(String id) {
+        return Files.exists(path(id));
+    }
+
+    public void delete(String id) {
+        try {
+            Files.deleteIfExists(path(id));
+        } catch (IOException e) {
+            log.warn("Failed to delete checkpoint {}: {}", id, e.getMessage());
+        }
+    }
+
+    public List<ImportCheckpoint> list() throws IOException {
+        List<ImportCheckpoint> checkpoints = new ArrayList<>();
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return checkpoints;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(SUFFIX)) {
+                    checkpoints.add(mapper.readValue(file.toFile(), ImportCheckpoint.class));
+                }
+            }
+        }
+        return checkpoints;
+    }
+
+    private Path path(String id) {
+        // Ids end up in file names, so reject anything that could leave the directory
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid checkpoint id: " + id);
+        }
+        return Paths.get(directory).resolve(id + SUFFIX);
+    }
+}
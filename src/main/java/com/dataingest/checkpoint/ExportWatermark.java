@@ -0,0 +1,111 @@
+package com.dataingest.checkpoint;
+
+/**
+ * High-water mark of an incremental export: the largest watermark column value already exported.
+ * The next run exports only rows above it. The value is kept as ClickHouse renders it, together with
+ * its type, so it can be compared exactly. Connection credentials are never stored.
+ */
+public class ExportWatermark {
+
+    private String id;
+    private String source;
+    private String column;
+    private String value;
+    private String type;
+    private String fileName;
+    private long lastRows;
+    private long totalRows;
+    private int runs;
+    private long createdAt;
+    private long updatedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /** Tables the export reads from, for listing. */
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /** Rows exported by the latest run. */
+    public long getLastRows() {
+        return lastRows;
+    }
+
+    public void setLastRows(long lastRows) {
+        this.lastRows = lastRows;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    public void setRuns(int runs) {
+        this.runs = runs;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
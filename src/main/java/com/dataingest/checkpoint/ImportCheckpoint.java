@@ -0,0 +1,226 @@
+package com.dataingest.checkpoint;
+
+import com.dataingest.model.InsertMode;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+
+/**
+ * Progress of a file import, saved after every committed batch so that a failed or cancelled import
+ * can continue where it stopped. Batches start at recorded offsets, which also makes their
+ * deduplication tokens stable across attempts. Connection credentials are never stored.
+ */
+public class ImportCheckpoint {
+
+    private String id;
+    private String fileName;
+    private long fileSize;
+    private long fileModified;
+    private String table;
+    private String[] columns;
+    private String delimiter;
+    private boolean hasHeader;
+    private boolean quotedNewlines;
+    private InsertMode insertMode;
+    /** Initial adaptive batch size. */
+    private long batchBytes;
+    private long createdAt;
+    private long updatedAt;
+    private List<ChunkState> chunks;
+
+    public static class ChunkState {
+
+        private int index;
+        private long start;
+        private long end;
+        private long offset;
+        private long pendingBytes;
+        private int batches;
+        private long rows;
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public void setStart(long start) {
+            this.start = start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public void setEnd(long end) {
+            this.end = end;
+        }
+
+        /** End of the last committed batch; the next batch starts here. */
+        public long getOffset() {
+            return offset;
+        }
+
+        public void setOffset(long offset) {
+            this.offset = offset;
+        }
+
+        /** Size of the batch starting at {@link #getOffset()} once it has been attempted, otherwise 0. */
+        public long getPendingBytes() {
+            return pendingBytes;
+        }
+
+        public void setPendingBytes(long pendingBytes) {
+            this.pendingBytes = pendingBytes;
+        }
+
+        public int getBatches() {
+            return batches;
+        }
+
+        public void setBatches(int batches) {
+            this.batches = batches;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        @JsonIgnore
+        public boolean isComplete() {
+            return offset >= end;
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public long getFileModified() {
+        return fileModified;
+    }
+
+    public void setFileModified(long fileModified) {
+        this.fileModified = fileModified;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public void setColumns(String[] columns) {
+        this.columns = columns;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public boolean isHasHeader() {
+        return hasHeader;
+    }
+
+    public void setHasHeader(boolean hasHeader) {
+        this.hasHeader = hasHeader;
+    }
+
+    public boolean isQuotedNewlines() {
+        return quotedNewlines;
+    }
+
+    public void setQuotedNewlines(boolean quotedNewlines) {
+        this.quotedNewlines = quotedNewlines;
+    }
+
+    public InsertMode getInsertMode() {
+        return insertMode;
+    }
+
+    public void setInsertMode(InsertMode insertMode) {
+        this.insertMode = insertMode;
+    }
+
+    public long getBatchBytes() {
+        return batchBytes;
+    }
+
+    public void setBatchBytes(long batchBytes) {
+        this.batchBytes = batchBytes;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public List<ChunkState> getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(List<ChunkState> chunks) {
+        this.chunks = chunks;
+    }
+
+    @JsonIgnore
+    public long getCommittedRows() {
+        return chunks.stream().mapToLong(ChunkState::getRows).sum();
+    }
+
+    @JsonIgnore
+    public long getCommittedBytes() {
+        return chunks.stream().mapToLong(chunk -> chunk.getOffset() - chunk.getStart()).sum();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dataingest.checkpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Keeps incremental export watermarks as JSON files under {@code export.watermark.dir}, replaced
+ * atomically on every save like {@link CheckpointStore} does with import checkpoints.
+ */
+@Component
+public class WatermarkStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WatermarkStore.class);
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9-]+");
+    private static final String SUFFIX = ".watermark.json";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${export.watermark.dir:watermarks}")
+    private String directory;
+
+    public void save(ExportWatermark watermark) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        watermark.setUpdatedAt(System.currentTimeMillis());
+        Path temp = dir.resolve(watermark.getId() + SUFFIX + ".tmp");
+        mapper.writeValue(temp.toFile(), watermark);
+        Files.move(temp, path(watermark.getId()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** The saved watermark, or {@code null} if the export has not run yet. */
+    public ExportWatermark load(String id) throws IOException {
+        Path file = path(id);
+        return Files.exists(file) ? mapper.readValue(file.toFile(), ExportWatermark.class) : null;
+    }
+
+    public void delete(String id) {
+        try {
+            Files.deleteIfExists(path(id));
+        } catch (IOException e) {
+            log.warn("Failed to delete watermark {}: {}", id, e.getMessage());
+        }
+    }
+
+    public List<ExportWatermark> list() throws IOException {
+        List<ExportWatermark> watermarks = new ArrayList<>();
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return watermarks;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(SUFFIX)) {
+                    watermarks.add(mapper.readValue(file.toFile(), ExportWatermark.class));
+                }
+            }
+        }
+        return watermarks;
+    }
+
+    private Path path(String id) {
+        // Ids end up in file names, so reject anything that could leave the directory
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid watermark id: " + id);
+        }
+        return Paths.get(directory).resolve(id + SUFFIX);
+    }
+}
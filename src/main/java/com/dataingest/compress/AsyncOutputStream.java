@@ -0,0 +1,175 @@
+package com.dataingest.compress;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands filled buffers to a dedicated thread that writes them to the target stream. The writer keeps
+ * producing while the previous buffers are being compressed; a small bounded queue caps memory and
+ * makes the producer wait when the target falls behind. Failures on the writer thread are rethrown
+ * from the next {@code write}, {@code flush} or {@code close}.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+    private static final int QUEUE_CAPACITY = 4;
+
+    private static final Buffer FLUSH = new Buffer(new byte[0]);
+    private static final Buffer END = new Buffer(new byte[0]);
+
+    private final OutputStream target;
+    private final BlockingQueue<Buffer> filled = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Buffer> free = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 1);
+    private final Thread worker;
+    private volatile Throwable failure;
+    private Buffer current;
+    private boolean closed;
+
+    public AsyncOutputStream(OutputStream target, int bufferSize, String name) {
+        this.target = target;
+        for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+            free.add(new Buffer(new byte[bufferSize]));
+        }
+        this.worker = new Thread(this::drain, name + "-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        Buffer buffer = buffer();
+        buffer.data[buffer.length++] = (byte) b;
+        if (buffer.length == buffer.data.length) {
+            hand(buffer);
+            current = null;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            Buffer buffer = buffer();
+            int n = Math.min(len, buffer.data.length - buffer.length);
+            System.arraycopy(b, off, buffer.data, buffer.length, n);
+            buffer.length += n;
+            off += n;
+            len -= n;
+            if (buffer.length == buffer.data.length) {
+                hand(buffer);
+                current = null;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        handCurrent();
+        hand(FLUSH);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            handCurrent();
+        } finally {
+            try {
+                filled.put(END);
+                worker.join();
+            } catch (InterruptedException e) {
+                worker.interrupt();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while finishing compressed output");
+            }
+        }
+        checkFailure();
+    }
+
+    private Buffer buffer() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current == null) {
+            checkFailure();
+            try {
+                current = free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+            }
+            current.length = 0;
+        }
+        return current;
+    }
+
+    private void handCurrent() throws IOException {
+        if (current != null && current.length > 0) {
+            hand(current);
+            current = null;
+        }
+    }
+
+    private void hand(Buffer buffer) throws IOException {
+        checkFailure();
+        try {
+            filled.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing output");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t != null) {
+            throw new IOException(t.getMessage(), t);
+        }
+    }
+
+    private void drain() {
+        try {
+            Buffer buffer;
+            while ((buffer = filled.take()) != END) {
+                if (failure == null) {
+                    try {
+                        if (buffer == FLUSH) {
+                            target.flush();
+                        } else {
+                            target.write(buffer.data, 0, buffer.length);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // Keep draining so the producer never blocks on a full queue; it sees the failure next call
+                        failure = e;
+                    }
+                }
+                if (buffer != FLUSH) {
+                    free.offer(buffer);
+                }
+            }
+            target.close();
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Compression thread interrupted");
+        } catch (IOException | RuntimeException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private static final class Buffer {
+
+        private final byte[] data;
+        private int length;
+
+        private Buffer(byte[] data) {
+            this.data = data;
+        }
+    }
+}
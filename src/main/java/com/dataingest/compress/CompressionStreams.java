@@ -0,0 +1,134 @@
+package com.dataingest.compress;
+
+import com.dataingest.model.FileCompression;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wraps streams in the codecs of {@link FileCompression} and recognises compressed files by their magic bytes.
+ */
+public final class CompressionStreams {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+    private static final byte[] ZSTD_MAGIC = {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd};
+    private static final byte[] LZ4_MAGIC = {0x04, 0x22, 0x4d, 0x18};
+    private static final int MAGIC_LENGTH = 4;
+
+    private CompressionStreams() {
+    }
+
+    public static OutputStream compress(OutputStream out, FileCompression compression) throws IOException {
+        switch (compression) {
+            case GZIP:
+                // syncFlush so that periodic flushes of a streamed export reach the client
+                return new GZIPOutputStream(out, BUFFER_SIZE, true);
+            case ZSTD:
+                return new ZstdOutputStream(out);
+            case LZ4:
+                return new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB);
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Like {@link #compress}, but the codec runs on its own thread so that compressing does not slow down
+     * the caller's fetch loop. Uncompressed output is returned as is.
+     */
+    public static OutputStream compressAsync(OutputStream out, FileCompression compression) throws IOException {
+        if (compression == null || compression == FileCompression.NONE) {
+            return out;
+        }
+        return new AsyncOutputStream(compress(out, compression), BUFFER_SIZE, "export-" + compression.name().toLowerCase());
+    }
+
+    public static InputStream decompress(InputStream in, FileCompression compression) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdInputStream(in);
+            case LZ4:
+                return new LZ4FrameInputStream(in);
+            default:
+                return in;
+        }
+    }
+
+    public static FileCompression detect(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return detect(in);
+        }
+    }
+
+    /**
+     * Decompresses the stream if it starts with a known magic number and returns it unchanged otherwise.
+     */
+    public static InputStream autoDecompress(InputStream in) throws IOException {
+        InputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(MAGIC_LENGTH);
+        FileCompression compression = detect(buffered);
+        buffered.reset();
+        return decompress(buffered, compression);
+    }
+
+    private static FileCompression detect(InputStream in) throws IOException {
+        byte[] head = new byte[MAGIC_LENGTH];
+        int read = 0;
+        for (int n; read < head.length && (n = in.read(head, read, head.length - read)) > 0; ) {
+            read += n;
+        }
+        if (startsWith(head, read, GZIP_MAGIC)) {
+            return FileCompression.GZIP;
+        } else if (startsWith(head, read, ZSTD_MAGIC)) {
+            return FileCompression.ZSTD;
+        } else if (startsWith(head, read, LZ4_MAGIC)) {
+            return FileCompression.LZ4;
+        }
+        return FileCompression.NONE;
+    }
+
+    /**
+     * Shields a stream owned by someone else, such as a servlet response, from being closed
+     * when the codec wrapped around it is finished.
+     */
+    public static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    private static boolean startsWith(byte[] head, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
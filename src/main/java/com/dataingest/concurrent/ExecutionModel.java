@@ -0,0 +1,94 @@
+package com.dataingest.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether request handling, jobs and transfer workers run on platform or virtual threads.
+ * With {@code ingest.virtual-threads=true} on Java 21 or later, threads come from {@code Thread.ofVirtual()},
+ * so blocking JDBC calls no longer tie up an OS thread each; concurrency toward ClickHouse is then bounded by
+ * the connection pools ({@code clickhouse.pool.max-size}, {@code clickhouse.pool.max-per-host}) rather than by
+ * thread counts. The application still targets Java 8, so the Java 21 API is looked up reflectively, and older
+ * runtimes fall back to platform threads.
+ */
+@Component
+public class ExecutionModel {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModel.class);
+
+    @Value("${ingest.virtual-threads:false}")
+    private boolean virtualThreadsRequested;
+
+    private boolean virtual;
+
+    @PostConstruct
+    void init() {
+        if (virtualThreadsRequested) {
+            virtual = virtualThreadFactory("probe-") != null;
+            if (virtual) {
+                log.info("Running requests, jobs and transfer workers on virtual threads");
+            } else {
+                log.warn("ingest.virtual-threads needs Java 21 or later (running on {}); using platform threads",
+                        System.getProperty("java.version"));
+            }
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /** Daemon threads named {@code name-1}, {@code name-2}, ..., virtual when enabled. */
+    public ThreadFactory threadFactory(String name) {
+        if (virtual) {
+            ThreadFactory factory = virtualThreadFactory(name + "-");
+            if (factory != null) {
+                return factory;
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Executor for blocking tasks: a new virtual thread per task when enabled, otherwise a fixed pool of
+     * {@code platformThreads}. Callers bound their own fan-out either way.
+     */
+    public ExecutorService newTaskExecutor(String name, int platformThreads) {
+        if (virtual) {
+            try {
+                Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) perTask.invoke(null, threadFactory(name));
+            } catch (ReflectiveOperationException e) {
+                log.warn("Cannot create a virtual thread executor, using platform threads: {}", e.toString());
+            }
+        }
+        return Executors.newFixedThreadPool(platformThreads, threadFactory(name));
+    }
+
+    /** {@code Thread.ofVirtual().name(prefix, 1).factory()}, or {@code null} if the runtime has no virtual threads. */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Missing before Java 19, and a disabled preview feature on 19 and 20
+            return null;
+        }
+    }
+}
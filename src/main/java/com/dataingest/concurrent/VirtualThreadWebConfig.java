@@ -0,0 +1,37 @@
+package com.dataingest.concurrent;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * When {@link ExecutionModel} runs on virtual threads, Tomcat handles each request on its own virtual thread
+ * instead of its bounded worker pool, and streamed responses ({@code StreamingResponseBody} exports) are
+ * written from virtual threads instead of the small shared MVC task pool.
+ */
+@Configuration
+public class VirtualThreadWebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ExecutionModel executionModel;
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> {
+            if (executionModel.isVirtual()) {
+                protocolHandler.setExecutor(executionModel.newTaskExecutor("http-request", 1));
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (executionModel.isVirtual()) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executionModel.newTaskExecutor("mvc-async", 1)));
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.dataingest.connection;
+
+import com.clickhouse.data.ClickHouseCompression;
+import com.clickhouse.jdbc.ClickHouseDataSource;
+import com.dataingest.metrics.IngestionMetrics;
+import com.dataingest.model.ClickHouseConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Keeps one bounded HikariCP pool per (host, port, database, user, credential) so that
+ * UI bursts and ingestion jobs reuse warm TLS connections instead of reconnecting per call.
+ * Pools that have not been used for {@code clickhouse.pool.idle-pool-ttl-ms} are closed. A pool that is
+ * dropped while connections are still borrowed from it stops handing out connections at once but is only
+ * closed after they have been returned, so running imports and exports are never cut off. With
+ * {@code clickhouse.pool.max-per-host} set, connections borrowed from all pools of one host are capped
+ * as well, so many users or virtual threads cannot overload a single server.
+ */
+@Component
+public class ClickHouseConnectionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickHouseConnectionPool.class);
+
+    @Value("${clickhouse.pool.max-size:8}")
+    private int maxSize;
+
+    @Value("${clickhouse.pool.acquire-timeout-ms:10000}")
+    private long acquireTimeoutMs;
+
+    @Value("${clickhouse.pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMs;
+
+    @Value("${clickhouse.pool.max-lifetime-ms:1800000}")
+    private long maxLifetimeMs;
+
+    @Value("${clickhouse.pool.keepalive-ms:120000}")
+    private long keepaliveMs;
+
+    @Value("${clickhouse.pool.validation-timeout-ms:5000}")
+    private long validationTimeoutMs;
+
+    @Value("${clickhouse.pool.test-query:SELECT 1}")
+    private String testQuery;
+
+    @Value("${clickhouse.ssl:true}")
+    private boolean ssl;
+
+    @Value("${clickhouse.compression:LZ4}")
+    private String defaultCompression;
+
+    @Value("${clickhouse.pool.max-pools:32}")
+    private int maxPools;
+
+    @Value("${clickhouse.pool.idle-pool-ttl-ms:600000}")
+    private long idlePoolTtlMs;
+
+    @Value("${clickhouse.pool.max-per-host:0}")
+    private int maxPerHost;
+
+    @Autowired
+    private IngestionMetrics metrics;
+
+    private final Map<PoolKey, Endpoint> pools = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> hostSlots = new ConcurrentHashMap<>();
+    // Pools already dropped from the map, closed by the sweeper once their borrowed connections are back
+    private final Set<Endpoint> draining = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "clickhouse-pool-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idlePoolTtlMs, 60000));
+        sweeper.scheduleWithFixedDelay(() -> {
+            evictIdlePools();
+            closeDrained();
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        for (Endpoint endpoint : pools.values()) {
+            endpoint.dataSource.close();
+        }
+        pools.clear();
+        for (Endpoint endpoint : draining) {
+            endpoint.dataSource.close();
+        }
+        draining.clear();
+    }
+
+    public Connection getConnection(ClickHouseConfig config) throws SQLException {
+        PoolKey key = PoolKey.of(config, defaultCompression);
+        if (maxPerHost <= 0) {
+            return borrow(key);
+        }
+
+        String host = key.getHost() + ":" + key.getPort();
+        Semaphore slots = hostSlots.computeIfAbsent(host, h -> new Semaphore(maxPerHost, true));
+        try {
+            if (!slots.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out after {} ms waiting for one of {} connections to {}", acquireTimeoutMs, maxPerHost, host);
+                throw new SQLTransientConnectionException(String.format(
+                        "Timed out after %d ms waiting for one of %d connections to %s", acquireTimeoutMs, maxPerHost, host));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection to " + host, e);
+        }
+        try {
+            return releasing(borrow(key), slots);
+        } catch (SQLException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    private Connection borrow(PoolKey key) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            Endpoint endpoint = endpointFor(key);
+            long start = System.nanoTime();
+            try {
+                Connection conn = endpoint.dataSource.getConnection();
+                if (draining.contains(endpoint) && attempt == 0) {
+                    // The pool was retired between lookup and borrow; take the connection from its successor
+                    conn.close();
+                    continue;
+                }
+                long elapsed = System.nanoTime() - start;
+                endpoint.recordAcquire(elapsed);
+                metrics.recordAcquire(elapsed);
+                return conn;
+            } catch (SQLTransientConnectionException e) {
+                endpoint.acquireTimeouts.incrementAndGet();
+                log.warn("Timed out after {} ms acquiring connection from pool {}", acquireTimeoutMs, key);
+                throw e;
+            } catch (SQLException e) {
+                // The sweeper may have closed this pool between lookup and borrow; retry once on a fresh pool
+                if (endpoint.dataSource.isClosed() && attempt == 0) {
+                    continue;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /** Wraps a borrowed connection so that closing it also frees its host slot, once. */
+    private static Connection releasing(Connection conn, Semaphore slots) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            slots.release();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Upper bound on concurrent connections to a single endpoint; callers fanning out work should not exceed it.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<PoolKey, Endpoint> entry : pools.entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            PoolStats s = new PoolStats();
+            s.setPool(entry.getKey().toString());
+            HikariPoolMXBean mx = endpoint.dataSource.getHikariPoolMXBean();
+            if (mx != null) {
+                s.setActiveConnections(mx.getActiveConnections());
+                s.setIdleConnections(mx.getIdleConnections());
+                s.setTotalConnections(mx.getTotalConnections());
+                s.setPendingAcquires(mx.getThreadsAwaitingConnection());
+            }
+            long count = endpoint.acquireCount.get();
+            s.setAcquireCount(count);
+            s.setAcquireTimeouts(endpoint.acquireTimeouts.get());
+            s.setAverageAcquireMillis(count == 0 ? 0 : endpoint.acquireNanos.get() / (double) count / 1_000_000);
+            s.setMaxAcquireMillis(endpoint.maxAcquireNanos.get() / 1_000_000.0);
+            s.setIdleMillis(now - endpoint.lastUsed);
+            stats.add(s);
+        }
+        return stats;
+    }
+
+    /**
+     * Drops the pool for the given endpoint, e.g. after a credential rotation.
+     */
+    public void evict(ClickHouseConfig config) {
+        close(PoolKey.of(config, defaultCompression));
+    }
+
+    private Endpoint endpointFor(PoolKey key) {
+        Endpoint endpoint = pools.get(key);
+        if (endpoint == null || endpoint.dataSource.isClosed()) {
+            endpoint = pools.compute(key, (k, existing) ->
+                    existing != null && !existing.dataSource.isClosed() ? existing : new Endpoint(createDataSource(k)));
+            if (pools.size() > maxPools) {
+                evictLeastRecentlyUsed(key);
+            }
+        }
+        endpoint.lastUsed = System.currentTimeMillis();
+        return endpoint;
+    }
+
+    private HikariDataSource createDataSource(PoolKey key) {
+        Properties properties = new Properties();
+        properties.setProperty("user", key.getUser());
+        properties.setProperty("password", key.getCredential());
+        if (ssl) {
+            properties.setProperty("ssl", "true");
+            properties.setProperty("sslmode", "STRICT");
+        }
+        if (key.getCompression() == ClickHouseCompression.NONE) {
+            properties.setProperty("compress", "0");
+        } else {
+            // Compress both directions: responses for exports, request bodies for inserts
+            String algorithm = key.getCompression().name();
+            properties.setProperty("compress", "1");
+            properties.setProperty("compress_algorithm", algorithm);
+            properties.setProperty("decompress", "1");
+            properties.setProperty("decompress_algorithm", algorithm);
+        }
+        properties.setProperty("use_client_time_zone", "true");
+
+        // HTTPS unless clickhouse.ssl is turned off, e.g. for a local server
+        String url = String.format("jdbc:clickhouse://%s:%d/%s", key.getHost(), key.getPort(), key.getDatabase());
+
+        HikariConfig hikari = new HikariConfig();
+        try {
+            hikari.setDataSource(new ClickHouseDataSource(url, properties));
+        } catch (SQLException e) {
+            throw new IllegalArgumentException("Invalid ClickHouse connection settings: " + e.getMessage(), e);
+        }
+        hikari.setPoolName("clickhouse-" + key);
+        hikari.setMaximumPoolSize(maxSize);
+        hikari.setMinimumIdle(0);
+        hikari.setConnectionTimeout(acquireTimeoutMs);
+        hikari.setIdleTimeout(idleTimeoutMs);
+        hikari.setMaxLifetime(maxLifetimeMs);
+        hikari.setKeepaliveTime(keepaliveMs);
+        hikari.setValidationTimeout(validationTimeoutMs);
+        if (testQuery != null && !testQuery.isEmpty()) {
+            hikari.setConnectionTestQuery(testQuery);
+        }
+        // Do not connect eagerly; failures surface on the first borrow instead of on pool creation
+        hikari.setInitializationFailTimeout(-1);
+
+        log.info("Creating connection pool for {} (max size {})", key, maxSize);
+        return new HikariDataSource(hikari);
+    }
+
+    private void evictLeastRecentlyUsed(PoolKey keep) {
+        // Pools with borrowed connections are skipped; if every pool is busy the limit is exceeded for now
+        PoolKey oldest = null;
+        long oldestUse = Long.MAX_VALUE;
+        for (Map.Entry<PoolKey, Endpoint> entry : pools.entrySet()) {
+            if (!entry.getKey().equals(keep) && !isBusy(entry.getValue()) && entry.getValue().lastUsed < oldestUse) {
+                oldest = entry.getKey();
+                oldestUse = entry.getValue().lastUsed;
+            }
+        }
+        if (oldest != null) {
+            log.info("Connection pool limit of {} reached, closing least recently used pool {}", maxPools, oldest);
+            close(oldest);
+        } else {
+            log.warn("Connection pool limit of {} exceeded ({} pools), every other pool has connections in use",
+                    maxPools, pools.size());
+        }
+    }
+
+    private void evictIdlePools() {
+        long cutoff = System.currentTimeMillis() - idlePoolTtlMs;
+        for (Map.Entry<PoolKey, Endpoint> entry : pools.entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            if (endpoint.lastUsed < cutoff && !isBusy(endpoint)) {
+                log.info("Closing idle connection pool {}", entry.getKey());
+                close(entry.getKey());
+            }
+        }
+    }
+
+    private void closeDrained() {
+        for (Endpoint endpoint : draining) {
+            if (!isBusy(endpoint)) {
+                draining.remove(endpoint);
+                log.info("Closing drained connection pool {}", endpoint.dataSource.getPoolName());
+                endpoint.dataSource.close();
+            }
+        }
+    }
+
+    /** Removes the pool so new borrows get a fresh one, closing it now or once its connections are returned. */
+    private void close(PoolKey key) {
+        Endpoint endpoint = pools.remove(key);
+        if (endpoint == null) {
+            return;
+        }
+        if (isBusy(endpoint)) {
+            log.info("Connection pool {} still has connections in use, closing it once they are returned", key);
+            draining.add(endpoint);
+        } else {
+            endpoint.dataSource.close();
+        }
+    }
+
+    private static boolean isBusy(Endpoint endpoint) {
+        HikariPoolMXBean mx = endpoint.dataSource.getHikariPoolMXBean();
+        return mx != null && mx.getActiveConnections() > 0;
+    }
+
+    private static final class Endpoint {
+
+        private final HikariDataSource dataSource;
+        private final AtomicLong acquireCount = new AtomicLong();
+        private final AtomicLong acquireNanos = new AtomicLong();
+        private final AtomicLong acquireTimeouts = new AtomicLong();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Endpoint(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private void recordAcquire(long nanos) {
+            acquireCount.incrementAndGet();
+            acquireNanos.addAndGet(nanos);
+            maxAcquireNanos.accumulate(nanos);
+        }
+    }
+}
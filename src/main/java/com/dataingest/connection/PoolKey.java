@@ -0,0 +1,97 @@
+package com.dataingest.connection;
+
+import com.clickhouse.data.ClickHouseCompression;
+import com.dataingest.model.ClickHouseConfig;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Identity of a pooled ClickHouse endpoint. The credential takes part in equality
+ * so that two users never share a physical connection, but it is never rendered.
+ */
+final class PoolKey {
+
+    private final String host;
+    private final int port;
+    private final String database;
+    private final String user;
+    private final String credential;
+    private final ClickHouseCompression compression;
+
+    private PoolKey(String host, int port, String database, String user, String credential,
+                    ClickHouseCompression compression) {
+        this.host = host;
+        this.port = port;
+        this.database = database;
+        this.user = user;
+        this.credential = credential;
+        this.compression = compression;
+    }
+
+    static PoolKey of(ClickHouseConfig config, String defaultCompression) {
+        String compression = config.getCompression() != null && !config.getCompression().isEmpty()
+                ? config.getCompression() : defaultCompression;
+        return new PoolKey(config.getHost(), config.getPort(), config.getDatabase(),
+                config.getUser(), config.getJwtToken(), parseCompression(compression));
+    }
+
+    private static ClickHouseCompression parseCompression(String value) {
+        try {
+            return ClickHouseCompression.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported compression: " + value);
+        }
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    String getDatabase() {
+        return database;
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    String getCredential() {
+        return credential;
+    }
+
+    ClickHouseCompression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PoolKey)) {
+            return false;
+        }
+        PoolKey other = (PoolKey) o;
+        return port == other.port
+                && Objects.equals(host, other.host)
+                && Objects.equals(database, other.database)
+                && Objects.equals(user, other.user)
+                && Objects.equals(credential, other.credential)
+                && compression == other.compression;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, port, database, user, credential, compression);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%s:%d/%s[%s]", user, host, port, database, compression.name().toLowerCase(Locale.ROOT));
+    }
+}
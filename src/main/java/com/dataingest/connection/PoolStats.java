@@ -0,0 +1,95 @@
+package com.dataingest.connection;
+
+public class PoolStats {
+
+    private String pool;
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private int pendingAcquires;
+    private long acquireCount;
+    private long acquireTimeouts;
+    private double averageAcquireMillis;
+    private double maxAcquireMillis;
+    private long idleMillis;
+
+    public String getPool() {
+        return pool;
+    }
+
+    public void setPool(String pool) {
+        this.pool = pool;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public void setActiveConnections(int activeConnections) {
+        this.activeConnections = activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public void setIdleConnections(int idleConnections) {
+        this.idleConnections = idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public void setTotalConnections(int totalConnections) {
+        this.totalConnections = totalConnections;
+    }
+
+    public int getPendingAcquires() {
+        return pendingAcquires;
+    }
+
+    public void setPendingAcquires(int pendingAcquires) {
+        this.pendingAcquires = pendingAcquires;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public void setAcquireCount(long acquireCount) {
+        this.acquireCount = acquireCount;
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts;
+    }
+
+    public void setAcquireTimeouts(long acquireTimeouts) {
+        this.acquireTimeouts = acquireTimeouts;
+    }
+
+    public double getAverageAcquireMillis() {
+        return averageAcquireMillis;
+    }
+
+    public void setAverageAcquireMillis(double averageAcquireMillis) {
+        this.averageAcquireMillis = averageAcquireMillis;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireMillis;
+    }
+
+    public void setMaxAcquireMillis(double maxAcquireMillis) {
+        this.maxAcquireMillis = maxAcquireMillis;
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public void setIdleMillis(long idleMillis) {
+        this.idleMillis = idleMillis;
+    }
+}
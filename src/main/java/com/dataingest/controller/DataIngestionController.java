@@ -1,22 +1,47 @@
 package com.dataingest.controller;
 
+import com.dataingest.compress.CompressionStreams;
+import com.dataingest.connection.ClickHouseConnectionPool;
+import com.dataingest.connection.PoolStats;
+import com.dataingest.metadata.MetadataCache;
 import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.ColumnStats;
+import com.dataingest.model.ExportFormat;
+import com.dataingest.model.FileCompression;
+import com.dataingest.model.FilePreview;
 import com.dataingest.model.FlatFileConfig;
 import com.dataingest.model.IngestionResult;
+import com.dataingest.model.InsertMode;
+import com.dataingest.parser.DelimitedTokenizer;
+import com.dataingest.schema.ColumnProfile;
+import com.dataingest.schema.FormatSniffer;
+import com.dataingest.schema.SchemaInferrer;
+import com.dataingest.schema.TableLayoutAdvisor;
 import com.dataingest.service.DataIngestionService;
+import com.dataingest.upload.MultipartStreamReader;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.util.StringUtils;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.*;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -25,10 +50,23 @@ import java.util.*;
 @Controller
 public class DataIngestionController {
     private static final String EXPORT_DIR = "exports";
+    private static final int MAX_FIELD_BYTES = 1024 * 1024;
 
     @Autowired
     private DataIngestionService dataIngestionService;
 
+    @Autowired
+    private ClickHouseConnectionPool connectionPool;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Value("${ingest.schema.sample-rows:10000}")
+    private int schemaSampleRows;
+
+    @Value("${preview.max-bytes:1048576}")
+    private int previewMaxBytes;
+
     @GetMapping("/")
     public String showMainPage(Model model) {
         return "index";
@@ -36,8 +74,12 @@ public class DataIngestionController {
 
     @PostMapping("/tables")
     @ResponseBody
-    public ResponseEntity<?> getTables(@RequestBody ClickHouseConfig config) {
+    public ResponseEntity<?> getTables(@RequestBody ClickHouseConfig config,
+                                       @RequestParam(defaultValue = "false") boolean refresh) {
         try {
+            if (refresh) {
+                metadataCache.invalidate(config);
+            }
             List<String> tables = dataIngestionService.getClickHouseTables(config);
             return ResponseEntity.ok(tables);
         } catch (Exception e) {
@@ -46,6 +88,12 @@ public class DataIngestionController {
         }
     }
 
+    @GetMapping("/pools")
+    @ResponseBody
+    public List<PoolStats> getPoolStats() {
+        return connectionPool.getStats();
+    }
+
     @PostMapping("/columns")
     @ResponseBody
     public List<String> getColumns(@RequestBody ClickHouseConfig config, @RequestParam String tableName) {
@@ -61,56 +109,151 @@ public class DataIngestionController {
         return dataIngestionService.previewData(config, tableName, limit);
     }
 
-    @PostMapping("/preview/file")
+    /**
+     * Previews the first {@code preview.max-bytes} of an upload, read straight off the request like
+     * {@link #streamToClickHouse}: the rest of the file is never read, so nothing is staged and the multipart
+     * size limits do not apply. Options come from the query string or from form fields preceding the
+     * {@code file} part. Delimiter, charset and header are detected unless given, and every column gets
+     * statistics over the sampled rows. The layout an import would create the table with is advised from the
+     * same rows and {@code filterColumns}.
+     */
+    @PostMapping(value = "/preview/file", consumes = "multipart/form-data")
     @ResponseBody
-    public List<Map<String, Object>> previewFile(
-            @RequestParam("file") MultipartFile file,
-            @RequestParam(defaultValue = ",") String delimiter,
-            @RequestParam(defaultValue = "true") boolean hasHeader,
-            @RequestParam(defaultValue = "10") int limit) throws IOException {
-        
-        List<Map<String, Object>> preview = new ArrayList<>();
-        String[] headers;
-        
-        // First read to get headers
-        try (BufferedReader headerReader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String headerLine = headerReader.readLine();
-            if (headerLine == null) {
-                throw new IllegalArgumentException("File is empty");
+    public ResponseEntity<?> previewFile(HttpServletRequest request) {
+        try {
+            MultipartStreamReader reader = multipartReader(request);
+            if (reader == null) {
+                return ResponseEntity.badRequest().body("Missing multipart boundary");
             }
-            
-            headers = headerLine.split(delimiter, -1);
-            if (!hasHeader) {
-                // If no header, use column1, column2, etc.
-                headers = new String[headers.length];
-                for (int i = 0; i < headers.length; i++) {
-                    headers[i] = "column" + (i + 1);
+            MultiValueMap<String, String> fields = queryParams(request);
+            while (reader.nextPart()) {
+                if (reader.getFileName() == null) {
+                    fields.add(reader.getFieldName(), reader.readString(MAX_FIELD_BYTES));
+                    continue;
+                }
+                if (!"file".equals(reader.getFieldName())) {
+                    continue;
+                }
+
+                int limit = fields.containsKey("limit") ? Integer.parseInt(fields.getFirst("limit")) : 10;
+                if (limit < 0) {
+                    return ResponseEntity.badRequest().body("limit must not be negative: " + limit);
                 }
+                String hasHeader = fields.getFirst("hasHeader");
+                List<String> filterColumns = new ArrayList<>();
+                for (String value : fields.getOrDefault("filterColumns", Collections.emptyList())) {
+                    for (String column : value.split(",")) {
+                        if (!column.trim().isEmpty()) {
+                            filterColumns.add(column.trim());
+                        }
+                    }
+                }
+                return ResponseEntity.ok(preview(reader.getInputStream(), fields.getFirst("delimiter"),
+                        hasHeader != null ? Boolean.valueOf(hasHeader) : null, limit, filterColumns));
             }
+            return ResponseEntity.badRequest().body("Please select a file");
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body("Failed to preview file: " + e.getMessage());
         }
+    }
 
-        // Second read to get data
-        try (BufferedReader dataReader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            // Skip header if it exists
-            if (hasHeader) {
-                dataReader.readLine();
+    private FilePreview preview(InputStream file, String delimiter, Boolean hasHeader, int limit,
+                                List<String> filterColumns) throws IOException {
+        byte[] prefix = new byte[previewMaxBytes];
+        int length = 0;
+        boolean truncated = false;
+        try (InputStream in = CompressionStreams.autoDecompress(file)) {
+            for (int n; length < prefix.length && (n = in.read(prefix, length, prefix.length - length)) > 0; ) {
+                length += n;
             }
-            
-            // Read data rows
-            String line;
-            int rowCount = 0;
-            while ((line = dataReader.readLine()) != null && rowCount < limit) {
-                String[] values = line.split(delimiter, -1);
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 0; i < Math.min(headers.length, values.length); i++) {
-                    row.put(headers[i], values[i]);
+            truncated = length == prefix.length && in.read() >= 0;
+        } catch (IOException e) {
+            // A compressed upload cut short by the client ends the sample rather than failing it
+            if (length == 0) {
+                throw e;
+            }
+            truncated = true;
+        }
+
+        Charset charset = FormatSniffer.detectCharset(prefix, length);
+        String text = new String(prefix, 0, length, charset);
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        if (truncated && text.lastIndexOf('\n') > 0) {
+            // Drop the partial last record
+            text = text.substring(0, text.lastIndexOf('\n') + 1);
+        }
+        byte delimiterByte = delimiter != null && !delimiter.isEmpty()
+                ? DelimitedTokenizer.delimiterByte(delimiter)
+                : (byte) FormatSniffer.detectDelimiter(text);
+
+        List<String[]> records = new ArrayList<>();
+        try (DelimitedTokenizer reader = new DelimitedTokenizer(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), delimiterByte)) {
+            while (records.size() <= schemaSampleRows && reader.nextRecord()) {
+                String[] record = new String[reader.fieldCount()];
+                for (int i = 0; i < record.length; i++) {
+                    record[i] = reader.field(i);
                 }
-                preview.add(row);
-                rowCount++;
+                records.add(record);
+            }
+        }
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        String[] first = records.get(0);
+        List<String[]> rest = records.subList(1, records.size());
+        List<ColumnProfile> profiles = SchemaInferrer.profile(rest, first.length);
+        boolean header = hasHeader != null ? hasHeader : FormatSniffer.detectHeader(first, profiles, rest);
+        List<String[]> data = header ? rest : records.subList(0, Math.min(records.size(), schemaSampleRows));
+        if (!header) {
+            profiles = SchemaInferrer.profile(data, first.length);
+        }
+
+        String[] headers = new String[first.length];
+        for (int i = 0; i < headers.length; i++) {
+            // If no header, use column1, column2, etc.
+            headers[i] = header ? first[i] : "column" + (i + 1);
+        }
+
+        List<Map<String, Object>> preview = new ArrayList<>();
+        for (String[] record : data.subList(0, Math.min(limit, data.size()))) {
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < Math.min(headers.length, record.length); i++) {
+                row.put(headers[i], record[i]);
             }
+            preview.add(row);
+        }
+
+        List<ColumnSchema> columns = SchemaInferrer.schema(headers, profiles, null);
+        List<ColumnStats> stats = new ArrayList<>();
+        for (int i = 0; i < headers.length; i++) {
+            ColumnProfile profile = profiles.get(i);
+            ColumnStats column = new ColumnStats();
+            column.setName(headers[i]);
+            column.setType(columns.get(i).getType());
+            column.setNullRatio(profile.getCount() > 0 ? (double) profile.getEmpty() / profile.getCount() : 0);
+            column.setDistinct(profile.getDistinct());
+            column.setMin(profile.getMin());
+            column.setMax(profile.getMax());
+            stats.add(column);
         }
 
-        return preview;
+        FilePreview result = new FilePreview();
+        result.setColumns(columns);
+        result.setRows(preview);
+        result.setStats(stats);
+        result.setDelimiter(delimiterByte == '\t' ? "\\t" : String.valueOf((char) delimiterByte));
+        result.setCharset(charset.name());
+        result.setHasHeader(header);
+        result.setSampledRows(data.size());
+        result.setTruncated(truncated || records.size() > schemaSampleRows);
+        ClickHouseConfig layoutConfig = new ClickHouseConfig();
+        layoutConfig.setFilterColumns(filterColumns);
+        result.setLayout(TableLayoutAdvisor.advise(columns, profiles, layoutConfig));
+        return result;
     }
 
     @PostMapping("/ingest/clickhouse-to-file")
@@ -119,7 +262,13 @@ public class DataIngestionController {
             @RequestBody ClickHouseConfig clickHouseConfig,
             @RequestParam String fileName,
             @RequestParam String delimiter,
-            @RequestParam(defaultValue = "true") boolean hasHeader) throws IOException {
+            @RequestParam(defaultValue = "true") boolean hasHeader,
+            @RequestParam(defaultValue = "NONE") FileCompression compression,
+            @RequestParam(defaultValue = "DELIMITED") ExportFormat format,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "true") boolean mergeParts,
+            @RequestParam(required = false) String watermarkId,
+            @RequestParam(defaultValue = "false") boolean append) throws IOException {
 
         // Create exports directory if it doesn't exist
         Path exportDir = Paths.get(EXPORT_DIR);
@@ -128,23 +277,71 @@ public class DataIngestionController {
         }
 
         // Set the full file path
-        String safeName = StringUtils.cleanPath(fileName);
+        String safeName = compression.withExtension(StringUtils.cleanPath(fileName));
         FlatFileConfig fileConfig = new FlatFileConfig();
         fileConfig.setFileName(exportDir.resolve(safeName).toString());
         fileConfig.setDelimiter(delimiter);
         fileConfig.setHasHeader(hasHeader);
         fileConfig.setSelectedColumns(clickHouseConfig.getSelectedColumns());
+        fileConfig.setCompression(compression);
+        fileConfig.setFormat(format);
+        fileConfig.setParallelism(parallelism);
+        fileConfig.setMergeParts(mergeParts);
+        fileConfig.setWatermarkId(watermarkId);
+        fileConfig.setAppend(append);
 
         IngestionResult result = dataIngestionService.ingestFromClickHouseToFile(clickHouseConfig, fileConfig);
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping("/ingest/clickhouse-to-file/stream")
+    public ResponseEntity<StreamingResponseBody> streamToFile(
+            @RequestBody ClickHouseConfig clickHouseConfig,
+            @RequestParam(defaultValue = "export.csv") String fileName,
+            @RequestParam String delimiter,
+            @RequestParam(defaultValue = "true") boolean hasHeader,
+            @RequestParam(defaultValue = "NONE") FileCompression compression,
+            @RequestParam(defaultValue = "DELIMITED") ExportFormat format) {
+
+        FlatFileConfig fileConfig = new FlatFileConfig();
+        fileConfig.setFileName(compression.withExtension(StringUtils.getFilename(StringUtils.cleanPath(fileName))));
+        fileConfig.setDelimiter(delimiter);
+        fileConfig.setHasHeader(hasHeader);
+        fileConfig.setSelectedColumns(clickHouseConfig.getSelectedColumns());
+        fileConfig.setCompression(compression);
+        fileConfig.setFormat(format);
+
+        StreamingResponseBody body = out -> dataIngestionService.streamFromClickHouse(clickHouseConfig, fileConfig, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileConfig.getFileName() + "\"")
+                .contentType(exportMediaType(compression, format))
+                .body(body);
+    }
+
+    private static MediaType exportMediaType(FileCompression compression, ExportFormat format) {
+        switch (compression) {
+            case GZIP:
+                return MediaType.parseMediaType("application/gzip");
+            case ZSTD:
+                return MediaType.parseMediaType("application/zstd");
+            case LZ4:
+                return MediaType.parseMediaType("application/x-lz4");
+            default:
+                return MediaType.parseMediaType(format.getContentType());
+        }
+    }
+
     @PostMapping(value = "/ingest/file-to-clickhouse", consumes = "multipart/form-data")
     @ResponseBody
     public ResponseEntity<IngestionResult> ingestToClickHouse(
             @RequestParam("file") MultipartFile file,
             @RequestParam String delimiter,
             @RequestParam(defaultValue = "true") boolean hasHeader,
+            @RequestParam(defaultValue = "ROW_BINARY") InsertMode insertMode,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "true") boolean quotedNewlines,
+            @RequestParam(defaultValue = "0") long minBatchBytes,
+            @RequestParam(defaultValue = "0") long maxBatchBytes,
             @RequestParam String config) throws Exception {
 
         ObjectMapper mapper = new ObjectMapper();
@@ -171,6 +368,11 @@ public class DataIngestionController {
             fileConfig.setDelimiter(delimiter);
             fileConfig.setHasHeader(hasHeader);
             fileConfig.setSelectedColumns(clickHouseConfig.getSelectedColumns());
+            fileConfig.setInsertMode(insertMode);
+            fileConfig.setParallelism(parallelism);
+            fileConfig.setQuotedNewlines(quotedNewlines);
+            fileConfig.setMinBatchBytes(minBatchBytes);
+            fileConfig.setMaxBatchBytes(maxBatchBytes);
 
             try {
                 IngestionResult result = dataIngestionService.ingestFromFileToClickHouse(fileConfig, clickHouseConfig);
@@ -190,6 +392,89 @@ public class DataIngestionController {
         }
     }
 
+    /**
+     * Imports a multipart upload while it arrives, without staging it on disk or in memory, so the
+     * multipart size limits do not apply. Form fields must precede the {@code file} part.
+     */
+    @PostMapping(value = "/ingest/file-to-clickhouse/stream", consumes = "multipart/form-data")
+    @ResponseBody
+    public ResponseEntity<IngestionResult> streamToClickHouse(HttpServletRequest request) {
+        try {
+            MultipartStreamReader reader = multipartReader(request);
+            if (reader == null) {
+                return ResponseEntity.badRequest().body(failure("Missing multipart boundary"));
+            }
+            Map<String, String> fields = new HashMap<>();
+            while (reader.nextPart()) {
+                if (reader.getFileName() == null) {
+                    fields.put(reader.getFieldName(), reader.readString(MAX_FIELD_BYTES));
+                    continue;
+                }
+                if (!"file".equals(reader.getFieldName())) {
+                    continue;
+                }
+                if (fields.get("config") == null || fields.get("delimiter") == null) {
+                    return ResponseEntity.badRequest().body(failure("The config and delimiter fields must precede the file"));
+                }
+
+                ClickHouseConfig clickHouseConfig = new ObjectMapper().readValue(fields.get("config"), ClickHouseConfig.class);
+                FlatFileConfig fileConfig = new FlatFileConfig();
+                fileConfig.setFileName(StringUtils.cleanPath(reader.getFileName()));
+                fileConfig.setDelimiter(fields.get("delimiter"));
+                fileConfig.setHasHeader(!fields.containsKey("hasHeader") || Boolean.parseBoolean(fields.get("hasHeader")));
+                fileConfig.setSelectedColumns(clickHouseConfig.getSelectedColumns());
+                fileConfig.setInsertMode(fields.containsKey("insertMode")
+                        ? InsertMode.valueOf(fields.get("insertMode")) : InsertMode.ROW_BINARY);
+                fileConfig.setMinBatchBytes(Long.parseLong(fields.getOrDefault("minBatchBytes", "0")));
+                fileConfig.setMaxBatchBytes(Long.parseLong(fields.getOrDefault("maxBatchBytes", "0")));
+
+                IngestionResult result = dataIngestionService.ingestFromStreamToClickHouse(
+                        reader.getInputStream(), fileConfig, clickHouseConfig);
+                return ResponseEntity.ok(result);
+            }
+            return ResponseEntity.badRequest().body(failure("Please select a file"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(failure("Failed to process file: " + e.getMessage()));
+        }
+    }
+
+    /** Reader over the raw request body, or {@code null} if the content type names no boundary. */
+    private static MultipartStreamReader multipartReader(HttpServletRequest request) throws IOException {
+        String boundary = MediaType.parseMediaType(request.getContentType()).getParameter("boundary");
+        if (boundary == null) {
+            return null;
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return new MultipartStreamReader(request.getInputStream(), boundary);
+    }
+
+    /** Query string parameters; {@code getParameter} would parse the multipart body to find form fields. */
+    private static MultiValueMap<String, String> queryParams(HttpServletRequest request)
+            throws UnsupportedEncodingException {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        if (request.getQueryString() == null) {
+            return params;
+        }
+        for (String pair : request.getQueryString().split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            params.add(URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, "UTF-8"),
+                    eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), "UTF-8") : "");
+        }
+        return params;
+    }
+
+    private IngestionResult failure(String message) {
+        return IngestionResult.builder()
+                .success(false)
+                .message(message)
+                .build();
+    }
+
     @GetMapping("/exports/{fileName:.+}")
     public ResponseEntity<Resource> downloadFile(@PathVariable String fileName) {
         try {
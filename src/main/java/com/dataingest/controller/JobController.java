@@ -0,0 +1,403 @@
+package com.dataingest.controller;
+
+import com.dataingest.checkpoint.CheckpointStore;
+import com.dataingest.checkpoint.ExportWatermark;
+import com.dataingest.checkpoint.ImportCheckpoint;
+import com.dataingest.checkpoint.WatermarkStore;
+import com.dataingest.job.IngestionJob;
+import com.dataingest.job.JobContext;
+import com.dataingest.job.JobManager;
+import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ExportFormat;
+import com.dataingest.model.FileCompression;
+import com.dataingest.model.FlatFileConfig;
+import com.dataingest.model.IngestionResult;
+import com.dataingest.model.InsertMode;
+import com.dataingest.model.JobStatus;
+import com.dataingest.service.DataIngestionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.LinkOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Asynchronous counterparts of the {@code /ingest} endpoints: submitting returns a job id right away,
+ * and progress is available by polling {@code /jobs/{id}} or subscribing to {@code /jobs/{id}/events}.
+ */
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+    private static final String EXPORT_DIR = "exports";
+
+    @Autowired
+    private JobManager jobManager;
+
+    @Autowired
+    private DataIngestionService dataIngestionService;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Autowired
+    private WatermarkStore watermarkStore;
+
+    @Value("${ingest.files.root:}")
+    private String filesRoot;
+
+    @PostMapping(value = "/file-to-clickhouse", consumes = "multipart/form-data")
+    public ResponseEntity<?> submitImport(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam String delimiter,
+            @RequestParam(defaultValue = "true") boolean hasHeader,
+            @RequestParam(defaultValue = "ROW_BINARY") InsertMode insertMode,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "true") boolean quotedNewlines,
+            @RequestParam(defaultValue = "0") long minBatchBytes,
+            @RequestParam(defaultValue = "0") long maxBatchBytes,
+            @RequestParam(defaultValue = "0") int priority,
+            @RequestParam String config) throws IOException {
+
+        ClickHouseConfig clickHouseConfig = new ObjectMapper().readValue(config, ClickHouseConfig.class);
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body("Please select a file");
+        }
+
+        // The upload must outlive this request, so the job deletes it when it finishes
+        Path tempDir = Files.createTempDirectory("clickhouse-ingestion");
+        File tempFile = new File(tempDir.toFile(), StringUtils.cleanPath(file.getOriginalFilename()));
+        file.transferTo(tempFile);
+
+        FlatFileConfig fileConfig = new FlatFileConfig();
+        fileConfig.setFileName(tempFile.getAbsolutePath());
+        fileConfig.setDelimiter(delimiter);
+        fileConfig.setHasHeader(hasHeader);
+        fileConfig.setSelectedColumns(clickHouseConfig.getSelectedColumns());
+        fileConfig.setInsertMode(insertMode);
+        fileConfig.setParallelism(parallelism);
+        fileConfig.setQuotedNewlines(quotedNewlines);
+        fileConfig.setMinBatchBytes(minBatchBytes);
+        fileConfig.setMaxBatchBytes(maxBatchBytes);
+        fileConfig.setCheckpointId(UUID.randomUUID().toString());
+
+        String description = file.getOriginalFilename() + " -> " + clickHouseConfig.getSelectedTables()[0]
+                + " (checkpoint " + fileConfig.getCheckpointId() + ")";
+        return submit("file-to-clickhouse", description, priority,
+                context -> dataIngestionService.ingestFromFileToClickHouse(fileConfig, clickHouseConfig, context),
+                () -> deleteUnlessResumable(fileConfig.getCheckpointId(), tempFile.toPath()));
+    }
+
+    /**
+     * Continues a failed or cancelled import from its last committed batch. The ClickHouse connection
+     * is sent again since checkpoints never store credentials; table and columns come from the checkpoint.
+     */
+    @PostMapping("/file-to-clickhouse/resume")
+    public ResponseEntity<?> resumeImport(
+            @RequestBody ClickHouseConfig clickHouseConfig,
+            @RequestParam String checkpointId,
+            @RequestParam(defaultValue = "0") int priority) throws IOException {
+
+        ImportCheckpoint checkpoint = checkpointStore.load(checkpointId);
+        if (checkpoint == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Path file = Paths.get(checkpoint.getFileName());
+        if (!Files.exists(file)) {
+            return ResponseEntity.status(HttpStatus.GONE).body("The uploaded file is no longer available");
+        }
+
+        clickHouseConfig.setSelectedTables(new String[] {checkpoint.getTable()});
+        clickHouseConfig.setSelectedColumns(checkpoint.getColumns());
+        FlatFileConfig fileConfig = new FlatFileConfig();
+        fileConfig.setFileName(checkpoint.getFileName());
+        fileConfig.setDelimiter(checkpoint.getDelimiter());
+        fileConfig.setHasHeader(checkpoint.isHasHeader());
+        fileConfig.setSelectedColumns(checkpoint.getColumns());
+        fileConfig.setInsertMode(checkpoint.getInsertMode());
+        fileConfig.setQuotedNewlines(checkpoint.isQuotedNewlines());
+        fileConfig.setCheckpointId(checkpointId);
+
+        String description = file.getFileName() + " -> " + checkpoint.getTable() + " (resuming " + checkpointId + ")";
+        return submit("file-to-clickhouse", description, priority,
+                context -> dataIngestionService.ingestFromFileToClickHouse(fileConfig, clickHouseConfig, context),
+                () -> deleteUnlessResumable(checkpointId, file));
+    }
+
+    /**
+     * Imports several uploaded files into one table as a single job. The files share a few insert streams
+     * instead of getting one insert each, and the result reports every file.
+     */
+    @PostMapping(value = "/files-to-clickhouse", consumes = "multipart/form-data")
+    public ResponseEntity<?> submitFilesImport(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestParam String delimiter,
+            @RequestParam(defaultValue = "true") boolean hasHeader,
+            @RequestParam(defaultValue = "ROW_BINARY") InsertMode insertMode,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "0") long minBatchBytes,
+            @RequestParam(defaultValue = "0") long maxBatchBytes,
+            @RequestParam(defaultValue = "0") int priority,
+            @RequestParam String config) throws IOException {
+
+        ClickHouseConfig clickHouseConfig = new ObjectMapper().readValue(config, ClickHouseConfig.class);
+        if (files.length == 0) {
+            return ResponseEntity.badRequest().body("Please select a file");
+        }
+
+        Path tempDir = Files.createTempDirectory("clickhouse-ingestion");
+        List<Path> names = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        try {
+            for (MultipartFile file : files) {
+                String name = StringUtils.getFilename(StringUtils.cleanPath(file.getOriginalFilename()));
+                if (name == null || name.isEmpty() || !used.add(name)) {
+                    // Uploads may repeat a name, or have none; the index keeps them apart
+                    name = names.size() + "-" + (name != null ? name : "upload");
+                    used.add(name);
+                }
+                file.transferTo(tempDir.resolve(name).toFile());
+                names.add(Paths.get(name));
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteDirectory(tempDir);
+            throw e;
+        }
+
+        FlatFileConfig fileConfig = multiFileConfig(clickHouseConfig, delimiter, hasHeader, insertMode,
+                parallelism, minBatchBytes, maxBatchBytes);
+        String description = names.size() + " uploaded files -> " + clickHouseConfig.getSelectedTables()[0];
+        return submit("files-to-clickhouse", description, priority,
+                context -> dataIngestionService.ingestFilesToClickHouse(tempDir, names, fileConfig,
+                        clickHouseConfig, context),
+                () -> deleteDirectory(tempDir));
+    }
+
+    /**
+     * Imports the files under {@code path} that match {@code glob} as a single job, e.g. a daily drop
+     * directory. Paths are relative to {@code ingest.files.root}, and the glob is matched against paths
+     * relative to {@code path}, so {@code **}{@code /*.csv.gz} includes subdirectories. Files are read in
+     * path order and left in place.
+     */
+    @PostMapping("/directory-to-clickhouse")
+    public ResponseEntity<?> submitDirectoryImport(
+            @RequestBody ClickHouseConfig clickHouseConfig,
+            @RequestParam(defaultValue = ".") String path,
+            @RequestParam(defaultValue = "*") String glob,
+            @RequestParam String delimiter,
+            @RequestParam(defaultValue = "true") boolean hasHeader,
+            @RequestParam(defaultValue = "ROW_BINARY") InsertMode insertMode,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "0") long minBatchBytes,
+            @RequestParam(defaultValue = "0") long maxBatchBytes,
+            @RequestParam(defaultValue = "0") int priority) throws IOException {
+
+        if (filesRoot == null || filesRoot.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Directory imports are disabled; set ingest.files.root");
+        }
+        Path root = Paths.get(filesRoot).toRealPath();
+        Path directory = root.resolve(path).normalize();
+        if (!directory.startsWith(root) || !Files.isDirectory(directory)
+                || !directory.toRealPath().startsWith(root)) {
+            return ResponseEntity.badRequest().body("Not a directory under ingest.files.root: " + path);
+        }
+
+        List<Path> files = listFiles(directory, glob);
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest().body("No files match " + glob + " in " + path);
+        }
+
+        FlatFileConfig fileConfig = multiFileConfig(clickHouseConfig, delimiter, hasHeader, insertMode,
+                parallelism, minBatchBytes, maxBatchBytes);
+        String description = files.size() + " files in " + path + " matching " + glob + " -> "
+                + clickHouseConfig.getSelectedTables()[0];
+        return submit("directory-to-clickhouse", description, priority,
+                context -> dataIngestionService.ingestFilesToClickHouse(directory, files, fileConfig,
+                        clickHouseConfig, context),
+                null);
+    }
+
+    @GetMapping("/checkpoints")
+    public List<ImportCheckpoint> listCheckpoints() throws IOException {
+        return checkpointStore.list();
+    }
+
+    /** Gives up on an import: drops its checkpoint and the upload kept for resuming it. */
+    @DeleteMapping("/checkpoints/{id}")
+    public ResponseEntity<Void> deleteCheckpoint(@PathVariable String id) throws IOException {
+        ImportCheckpoint checkpoint = checkpointStore.load(id);
+        if (checkpoint == null) {
+            return ResponseEntity.notFound().build();
+        }
+        checkpointStore.delete(id);
+        deleteUpload(Paths.get(checkpoint.getFileName()));
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/clickhouse-to-file")
+    public ResponseEntity<?> submitExport(
+            @RequestBody ClickHouseConfig clickHouseConfig,
+            @RequestParam String fileName,
+            @RequestParam String delimiter,
+            @RequestParam(defaultValue = "true") boolean hasHeader,
+            @RequestParam(defaultValue = "NONE") FileCompression compression,
+            @RequestParam(defaultValue = "DELIMITED") ExportFormat format,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "true") boolean mergeParts,
+            @RequestParam(required = false) String watermarkId,
+            @RequestParam(defaultValue = "false") boolean append,
+            @RequestParam(defaultValue = "0") int priority) throws IOException {
+
+        Path exportDir = Paths.get(EXPORT_DIR);
+        if (!Files.exists(exportDir)) {
+            Files.createDirectories(exportDir);
+        }
+
+        String safeName = compression.withExtension(StringUtils.cleanPath(fileName));
+        FlatFileConfig fileConfig = new FlatFileConfig();
+        fileConfig.setFileName(exportDir.resolve(safeName).toString());
+        fileConfig.setDelimiter(delimiter);
+        fileConfig.setHasHeader(hasHeader);
+        fileConfig.setSelectedColumns(clickHouseConfig.getSelectedColumns());
+        fileConfig.setCompression(compression);
+        fileConfig.setFormat(format);
+        fileConfig.setParallelism(parallelism);
+        fileConfig.setMergeParts(mergeParts);
+        fileConfig.setWatermarkId(watermarkId);
+        fileConfig.setAppend(append);
+
+        String description = String.join(", ", clickHouseConfig.getSelectedTables()) + " -> " + safeName;
+        return submit("clickhouse-to-file", description, priority, context -> {
+            // Incremental exports count only the rows above their watermark, once they know it
+            if (clickHouseConfig.getWatermarkColumn() == null || clickHouseConfig.getWatermarkColumn().isEmpty()) {
+                context.setTotalRows(dataIngestionService.countRecords(clickHouseConfig));
+            }
+            return dataIngestionService.ingestFromClickHouseToFile(clickHouseConfig, fileConfig, context);
+        }, null);
+    }
+
+    @GetMapping("/watermarks")
+    public List<ExportWatermark> listWatermarks() throws IOException {
+        return watermarkStore.list();
+    }
+
+    /** Forgets an incremental export's watermark, so that its next run exports every row again. */
+    @DeleteMapping("/watermarks/{id}")
+    public ResponseEntity<Void> deleteWatermark(@PathVariable String id) throws IOException {
+        if (watermarkStore.load(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        watermarkStore.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping
+    public List<JobStatus> listJobs() {
+        return jobManager.listStatuses();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatus> getJob(@PathVariable String id) {
+        JobStatus status = jobManager.getStatus(id);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/{id}/events")
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+        SseEmitter emitter = jobManager.subscribe(id);
+        return emitter != null ? ResponseEntity.ok(emitter) : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<JobStatus> cancelJob(@PathVariable String id) {
+        Boolean cancelled = jobManager.cancel(id);
+        if (cancelled == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // 409 when the job had already finished; the body shows how it ended
+        return ResponseEntity.status(cancelled ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(jobManager.getStatus(id));
+    }
+
+    private static FlatFileConfig multiFileConfig(ClickHouseConfig clickHouseConfig, String delimiter,
+                                                  boolean hasHeader, InsertMode insertMode, int parallelism,
+                                                  long minBatchBytes, long maxBatchBytes) {
+        FlatFileConfig fileConfig = new FlatFileConfig();
+        fileConfig.setDelimiter(delimiter);
+        fileConfig.setHasHeader(hasHeader);
+        fileConfig.setSelectedColumns(clickHouseConfig.getSelectedColumns());
+        fileConfig.setInsertMode(insertMode);
+        fileConfig.setParallelism(parallelism);
+        fileConfig.setMinBatchBytes(minBatchBytes);
+        fileConfig.setMaxBatchBytes(maxBatchBytes);
+        return fileConfig;
+    }
+
+    /**
+     * Regular files under {@code directory} whose relative path matches {@code glob}, sorted by path. Links
+     * are skipped so that nothing outside {@code ingest.files.root} can be read through them.
+     */
+    private static List<Path> listFiles(Path directory, String glob) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(p -> Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS))
+                    .map(directory::relativize)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            // Left for the temp directory cleanup of the OS
+        }
+    }
+
+    private void deleteUnlessResumable(String checkpointId, Path upload) {
+        // A checkpoint left behind means the import did not finish and may be resumed
+        if (!checkpointStore.exists(checkpointId)) {
+            deleteUpload(upload);
+        }
+    }
+
+    private static void deleteUpload(Path upload) {
+        upload.toFile().delete();
+        upload.getParent().toFile().delete();
+    }
+
+    private ResponseEntity<?> submit(String type, String description, int priority,
+                                     Function<JobContext, IngestionResult> work,
+                                     Runnable cleanup) {
+        try {
+            IngestionJob job = jobManager.submit(type, description, priority, work, cleanup);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.status());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.dataingest.export;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes result set rows as delimited text for exports that are not formatted by the server. Column
+ * indexes and types are resolved once; integers, floats and booleans are read through the primitive
+ * getters, and every field is encoded as UTF-8 straight into a reusable byte buffer, so a row allocates
+ * nothing beyond the strings the driver hands out and the text of floating-point values. Fields
+ * containing the delimiter, a quote or a line break are quoted as in RFC 4180, and SQL NULL is written
+ * as an empty field.
+ */
+public final class DelimitedRowWriter implements Closeable {
+
+    private static final int LONG = 0;
+    private static final int FLOAT = 1;
+    private static final int DOUBLE = 2;
+    private static final int BOOL = 3;
+    private static final int TEXT = 4;
+    private static final int OBJECT = 5;
+
+    private static final Pattern WRAPPER = Pattern.compile("(?:Nullable|LowCardinality)\\((.*)\\)");
+    private static final Pattern FIXED_STRING = Pattern.compile("FixedString\\(\\d+\\)");
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    /** Longest UTF-8 encoding of a character, or of a quote doubled with the closing quote. */
+    private static final int MAX_CHAR_BYTES = 4;
+    /** Never matches a character of a field, for delimiters that are not a single character. */
+    private static final char NO_CHAR = '\uFFFF';
+
+    private final ResultSet rs;
+    private final String[] names;
+    private final int[] indexes;
+    private final int[] kinds;
+    private final String delimiter;
+    private final char delimiterChar;
+    private final byte[] delimiterBytes;
+    private final byte[] lineSeparator;
+    /** Whether a number can contain the delimiter, so numbers must go through the quoting check too. */
+    private final boolean quoteNumbers;
+    private final byte[] buffer;
+    private final ByteBuffer direct;
+    private final WritableByteChannel channel;
+    private final OutputStream out;
+    private final Counter bytes;
+    private final byte[] digits = new byte[20];
+    private int position;
+    private boolean closed;
+
+    private DelimitedRowWriter(ResultSet rs, String[] columns, String delimiter, int bufferSize, ByteBuffer direct,
+                               WritableByteChannel channel, OutputStream out, Counter bytes) throws SQLException {
+        this.rs = rs;
+        this.names = columns;
+        this.delimiter = delimiter;
+        this.delimiterChar = delimiter.length() == 1 ? delimiter.charAt(0) : NO_CHAR;
+        this.delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+        this.lineSeparator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+        this.quoteNumbers = delimiter.chars().anyMatch(c -> Character.isLetterOrDigit(c) || c == '-' || c == '.' || c == '+');
+        this.buffer = new byte[bufferSize];
+        this.direct = direct;
+        this.channel = channel;
+        this.out = out;
+        this.bytes = bytes;
+
+        ResultSetMetaData meta = rs.getMetaData();
+        indexes = new int[columns.length];
+        kinds = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = rs.findColumn(columns[i]);
+            kinds[i] = kind(meta.getColumnTypeName(indexes[i]));
+        }
+    }
+
+    /**
+     * Writes to {@code channel}, e.g. a {@link java.nio.channels.FileChannel}, from a reused direct buffer so
+     * the channel does not copy each write into a temporary one.
+     */
+    public static DelimitedRowWriter toChannel(WritableByteChannel channel, ResultSet rs, String[] columns,
+                                               String delimiter, int bufferSize, Counter bytes) throws SQLException {
+        return new DelimitedRowWriter(rs, columns, delimiter, bufferSize, ByteBuffer.allocateDirect(bufferSize),
+                channel, null, bytes);
+    }
+
+    public static DelimitedRowWriter toStream(OutputStream out, ResultSet rs, String[] columns,
+                                              String delimiter, int bufferSize, Counter bytes) throws SQLException {
+        return new DelimitedRowWriter(rs, columns, delimiter, bufferSize, null, null, out, bytes);
+    }
+
+    /** How a column is read: by the ClickHouse type name, without Nullable and LowCardinality. */
+    private static int kind(String typeName) {
+        String type = typeName != null ? typeName.trim() : "";
+        for (Matcher m = WRAPPER.matcher(type); m.matches(); m = WRAPPER.matcher(type)) {
+            type = m.group(1).trim();
+        }
+        switch (type) {
+            case "Int8":
+            case "Int16":
+            case "Int32":
+            case "Int64":
+            case "UInt8":
+            case "UInt16":
+            case "UInt32":
+                return LONG;
+            case "Float32":
+                return FLOAT;
+            case "Float64":
+                return DOUBLE;
+            case "Bool":
+                return BOOL;
+            case "String":
+                return TEXT;
+            default:
+                // Dates, decimals, UInt64 and the like keep the driver's own text form
+                return FIXED_STRING.matcher(type).matches() ? TEXT : OBJECT;
+        }
+    }
+
+    public void writeHeader() throws IOException {
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                put(delimiterBytes);
+            }
+            writeText(names[i]);
+        }
+        put(lineSeparator);
+    }
+
+    /** Writes the result set's current row. */
+    public void writeRow() throws SQLException, IOException {
+        for (int i = 0; i < indexes.length; i++) {
+            if (i > 0) {
+                put(delimiterBytes);
+            }
+            int column = indexes[i];
+            switch (kinds[i]) {
+                case LONG: {
+                    long value = rs.getLong(column);
+                    if (!rs.wasNull()) {
+                        if (quoteNumbers) {
+                            writeText(Long.toString(value));
+                        } else {
+                            writeLong(value);
+                        }
+                    }
+                    break;
+                }
+                case FLOAT: {
+                    float value = rs.getFloat(column);
+                    if (!rs.wasNull()) {
+                        writeNumber(Float.toString(value));
+                    }
+                    break;
+                }
+                case DOUBLE: {
+                    double value = rs.getDouble(column);
+                    if (!rs.wasNull()) {
+                        writeNumber(Double.toString(value));
+                    }
+                    break;
+                }
+                case BOOL: {
+                    boolean value = rs.getBoolean(column);
+                    if (!rs.wasNull()) {
+                        put(value ? TRUE : FALSE);
+                    }
+                    break;
+                }
+                case TEXT: {
+                    String value = rs.getString(column);
+                    if (value != null) {
+                        writeText(value);
+                    }
+                    break;
+                }
+                default: {
+                    Object value = rs.getObject(column);
+                    if (value != null) {
+                        writeText(value.toString());
+                    }
+                }
+            }
+        }
+        put(lineSeparator);
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            put(LONG_MIN);
+            return;
+        }
+        ensure(digits.length);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        int length = digits.length - start;
+        System.arraycopy(digits, start, buffer, position, length);
+        position += length;
+    }
+
+    private void writeNumber(String value) throws IOException {
+        if (quoteNumbers || value.length() > buffer.length) {
+            writeText(value);
+        } else {
+            putAscii(value);
+        }
+    }
+
+    /** Encodes {@code value} as UTF-8, quoted and with doubled quotes if it needs quoting. */
+    private void writeText(String value) throws IOException {
+        int length = value.length();
+        boolean quote = false;
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == delimiterChar || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+            } else if (c >= 0x80) {
+                ascii = false;
+            }
+        }
+        if (!quote && delimiterChar == NO_CHAR) {
+            quote = value.contains(delimiter);
+        }
+        if (ascii && !quote && length <= buffer.length) {
+            putAscii(value);
+            return;
+        }
+
+        if (quote) {
+            ensure(1);
+            buffer[position++] = '"';
+        }
+        for (int i = 0; i < length; i++) {
+            ensure(MAX_CHAR_BYTES);
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    buffer[position++] = '"';
+                }
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, replaced as String.getBytes would
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        if (quote) {
+            ensure(1);
+            buffer[position++] = '"';
+        }
+    }
+
+    /** Copies an ASCII-only value that fits the buffer in one go. */
+    @SuppressWarnings("deprecation")
+    private void putAscii(String value) throws IOException {
+        int length = value.length();
+        ensure(length);
+        value.getBytes(0, length, buffer, position);
+        position += length;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length) {
+            drain();
+            write(bytes, bytes.length);
+            return;
+        }
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensure(int length) throws IOException {
+        if (buffer.length - position < length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            write(buffer, position);
+            position = 0;
+        }
+    }
+
+    private void write(byte[] data, int length) throws IOException {
+        if (channel != null) {
+            for (int offset = 0; offset < length; ) {
+                int n = Math.min(length - offset, direct.capacity());
+                direct.clear();
+                direct.put(data, offset, n);
+                direct.flip();
+                while (direct.hasRemaining()) {
+                    channel.write(direct);
+                }
+                offset += n;
+            }
+        } else {
+            out.write(data, 0, length);
+        }
+        if (bytes != null) {
+            bytes.increment(length);
+        }
+    }
+
+    /** Writes out the buffered rows and flushes the stream, if writing to one. */
+    public void flush() throws IOException {
+        drain();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /** Flushes and closes the underlying channel or stream; later calls do nothing. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            drain();
+        } finally {
+            if (channel != null) {
+                channel.close();
+            } else {
+                out.close();
+            }
+        }
+    }
+}
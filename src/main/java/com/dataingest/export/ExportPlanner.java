@@ -0,0 +1,95 @@
+package com.dataingest.export;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Splits a table scan into ranges that can be exported concurrently. Partitioned tables are split
+ * along partition boundaries, balanced by row count, so that each query only reads its own parts.
+ * Other tables fall back to hashing the exported columns, which keeps the ranges disjoint at the
+ * cost of every query scanning the whole table.
+ */
+public final class ExportPlanner {
+
+    private ExportPlanner() {
+    }
+
+    public static List<ExportRange> plan(Connection conn, String table, String[] columns, int maxRanges)
+            throws SQLException {
+        Map<String, Long> partitions = partitionRows(conn, table);
+        if (partitions.size() >= 2) {
+            return byPartition(partitions, maxRanges);
+        }
+        long rows = partitions.values().stream().mapToLong(Long::longValue).sum();
+        return byHash(columns, maxRanges, rows);
+    }
+
+    private static Map<String, Long> partitionRows(Connection conn, String table) throws SQLException {
+        Map<String, Long> partitions = new LinkedHashMap<>();
+        String query = "SELECT partition_id, sum(rows) AS rows FROM system.parts "
+                + "WHERE database = currentDatabase() AND table = ? AND active "
+                + "GROUP BY partition_id ORDER BY rows DESC";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    partitions.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private static List<ExportRange> byPartition(Map<String, Long> partitions, int maxRanges) {
+        int count = Math.min(maxRanges, partitions.size());
+        List<List<String>> buckets = new ArrayList<>(count);
+        long[] bucketRows = new long[count];
+        for (int i = 0; i < count; i++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        // Largest partitions first, each into the currently lightest bucket
+        for (Map.Entry<String, Long> partition : partitions.entrySet()) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (bucketRows[i] < bucketRows[lightest]) {
+                    lightest = i;
+                }
+            }
+            buckets.get(lightest).add(partition.getKey());
+            bucketRows[lightest] += partition.getValue();
+        }
+
+        List<ExportRange> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> ids = buckets.get(i);
+            String filter = "_partition_id IN (" + ids.stream()
+                    .map(ExportPlanner::quote)
+                    .collect(Collectors.joining(", ")) + ")";
+            ranges.add(new ExportRange(i, filter, bucketRows[i], ids.size() + " partitions"));
+        }
+        return ranges;
+    }
+
+    private static List<ExportRange> byHash(String[] columns, int count, long totalRows) {
+        // The hash of a row with a NULL column is NULL, which no range would match
+        String hash = "ifNull(cityHash64(" + String.join(", ", columns) + "), 0)";
+        List<ExportRange> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ranges.add(new ExportRange(i, String.format("%s %% %d = %d", hash, count, i), totalRows / count,
+                    String.format("hash %d/%d", i, count)));
+        }
+        return ranges;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+}
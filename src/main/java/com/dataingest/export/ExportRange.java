@@ -0,0 +1,40 @@
+package com.dataingest.export;
+
+/**
+ * One independent slice of an export scan, selected by a SQL predicate over the source table.
+ */
+public class ExportRange {
+
+    private final int index;
+    private final String filter;
+    private final long estimatedRows;
+    private final String description;
+
+    public ExportRange(int index, String filter, long estimatedRows, String description) {
+        this.index = index;
+        this.filter = filter;
+        this.estimatedRows = estimatedRows;
+        this.description = description;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("range %d (%s)", index, description);
+    }
+}
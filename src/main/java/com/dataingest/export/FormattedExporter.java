@@ -0,0 +1,130 @@
+package com.dataingest.export;
+
+import com.clickhouse.client.ClickHouseException;
+import com.clickhouse.client.ClickHouseRequest;
+import com.clickhouse.client.ClickHouseResponse;
+import com.clickhouse.data.ClickHouseFormat;
+import io.micrometer.core.instrument.Counter;
+import com.dataingest.job.JobContext;
+import com.dataingest.metrics.IngestionMetrics;
+import com.dataingest.model.ExportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an export query with a ClickHouse output format and copies the response body to the output as
+ * it arrives. Values are never decoded into Java objects or re-encoded; the only per-byte work is
+ * counting line breaks so that progress can be reported in rows.
+ */
+public final class FormattedExporter {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private FormattedExporter() {
+    }
+
+    /**
+     * Streams the result of {@code query} in {@code format} to {@code out}, which is flushed at least
+     * once a second but not closed. Returns the number of data rows written.
+     */
+    @SuppressWarnings("try") // cancelHook is only closed, which unregisters it once the response is read
+    public static long export(Connection conn, String query, ExportFormat format, boolean header, String delimiter,
+                              OutputStream out, JobContext context, IngestionMetrics metrics)
+            throws SQLException, IOException {
+        String serverFormat = format.serverFormat(header);
+        try (Statement stmt = conn.createStatement()) {
+            ClickHouseRequest<?> request = stmt.unwrap(ClickHouseRequest.class);
+            if (format == ExportFormat.CSV && delimiter != null && delimiter.length() == 1 && !",".equals(delimiter)) {
+                request.set("format_csv_delimiter", delimiter);
+            }
+            request.format(ClickHouseFormat.valueOf(serverFormat)).query(query + " FORMAT " + serverFormat);
+
+            long queryStart = System.nanoTime();
+            try (ClickHouseResponse response = request.executeAndWait();
+                 JobContext.Registration cancelHook = context.onCancel(response::close)) {
+                RowCounter counter = new RowCounter(format);
+                Counter exportedRows = metrics.rows(IngestionMetrics.EXPORT);
+                Counter exportedBytes = metrics.bytes(IngestionMetrics.EXPORT);
+                InputStream in = response.getInputStream();
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                long lastFlush = System.nanoTime();
+                boolean first = true;
+                long headerRows = format.hasHeaderRow() && header ? 1 : 0;
+                for (int n; (n = in.read(buffer, 0, buffer.length)) >= 0; ) {
+                    if (first) {
+                        metrics.recordFirstRow("export-formatted", System.nanoTime() - queryStart);
+                        first = false;
+                    }
+                    out.write(buffer, 0, n);
+                    long rows = counter.count(buffer, n);
+                    context.addRows(rows);
+                    context.addBytes(n);
+                    // The header line is not a data row
+                    long skipped = Math.min(rows, headerRows);
+                    headerRows -= skipped;
+                    exportedRows.increment(rows - skipped);
+                    exportedBytes.increment(n);
+                    context.checkCancelled();
+                    // Push data out promptly even when the query produces it slowly
+                    if (System.nanoTime() - lastFlush > FLUSH_INTERVAL_NANOS) {
+                        out.flush();
+                        lastFlush = System.nanoTime();
+                    }
+                }
+                out.flush();
+
+                if (format == ExportFormat.PARQUET) {
+                    // Binary output has no line breaks to count, so rely on what the server reported
+                    long rows = response.getSummary().getStatistics().getRows();
+                    rows = rows > 0 ? rows : response.getSummary().getReadRows();
+                    exportedRows.increment(rows);
+                    return rows;
+                }
+                return format.hasHeaderRow() && header ? Math.max(0, counter.rows - 1) : counter.rows;
+            }
+        } catch (ClickHouseException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Counts records by their terminating newline. In CSV a newline inside a quoted field does not end
+     * the record; a doubled quote toggles the state twice and so leaves it unchanged.
+     */
+    private static final class RowCounter {
+
+        private final boolean quoting;
+        private final boolean enabled;
+        private boolean quoted;
+        private long rows;
+
+        private RowCounter(ExportFormat format) {
+            this.quoting = format == ExportFormat.CSV;
+            this.enabled = format != ExportFormat.PARQUET;
+        }
+
+        private long count(byte[] buffer, int length) {
+            if (!enabled) {
+                return 0;
+            }
+            long found = 0;
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[i];
+                if (b == '\n' && !quoted) {
+                    found++;
+                } else if (b == '"' && quoting) {
+                    quoted = !quoted;
+                }
+            }
+            rows += found;
+            return found;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dataingest.insert;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes insert batches in bytes from how the server handles them. Batches that complete well within
+ * the target latency grow, so narrow rows do not turn into many small parts; batches that take far
+ * longer shrink, which bounds client memory and the cost of a retry. When the server rejects an
+ * insert because of too many parts, batches double so it has fewer parts to merge. Shared by all
+ * chunks of one import.
+ */
+public class BatchSizer {
+
+    private static final double GROWTH = 1.5;
+    private static final double SHRINK = 0.5;
+    /** ClickHouse error code for an insert rejected because a partition has too many active parts. */
+    private static final int TOO_MANY_PARTS = 252;
+
+    private final long minBytes;
+    private long maxBytes;
+    private final long targetLatencyMillis;
+    private final long maxIntervalNanos;
+    private long targetBytes;
+
+    public BatchSizer(long initialBytes, long minBytes, long maxBytes, long targetLatencyMillis, long maxIntervalMillis) {
+        this.minBytes = Math.max(1, minBytes);
+        this.maxBytes = Math.max(this.minBytes, maxBytes);
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.maxIntervalNanos = TimeUnit.MILLISECONDS.toNanos(maxIntervalMillis);
+        this.targetBytes = clamp(initialBytes);
+    }
+
+    public synchronized long getTargetBytes() {
+        return targetBytes;
+    }
+
+    /** Lowers the upper bound, e.g. for an inserter that buffers whole batches in memory. */
+    public synchronized void capMaxBytes(long bytes) {
+        maxBytes = Math.max(minBytes, Math.min(maxBytes, bytes));
+        targetBytes = clamp(targetBytes);
+    }
+
+    /** Longest a batch from a slow source may stay open before it is sent anyway. */
+    public long getMaxIntervalNanos() {
+        return maxIntervalNanos;
+    }
+
+    /** Records a completed batch of {@code bytes} input bytes that took {@code latencyMillis} to insert. */
+    public synchronized void onSuccess(long bytes, long latencyMillis) {
+        if (latencyMillis > targetLatencyMillis * 2) {
+            targetBytes = clamp((long) (targetBytes * SHRINK));
+        } else if (latencyMillis < targetLatencyMillis / 2 && bytes >= targetBytes) {
+            // Only full batches say anything about the size; a short tail batch is fast regardless
+            targetBytes = clamp((long) (targetBytes * GROWTH));
+        }
+    }
+
+    public synchronized void onBackPressure() {
+        targetBytes = clamp(targetBytes * 2);
+    }
+
+    /** Whether the failure is the server refusing inserts until it has merged parts. */
+    public static boolean isBackPressure(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && ((SQLException) t).getErrorCode() == TOO_MANY_PARTS) {
+                return true;
+            }
+            String message = t.getMessage();
+            if (message != null && (message.contains("TOO_MANY_PARTS") || message.contains("Too many parts"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long clamp(long bytes) {
+        return Math.max(minBytes, Math.min(maxBytes, bytes));
+    }
+}
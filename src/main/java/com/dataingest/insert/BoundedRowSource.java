@@ -0,0 +1,85 @@
+package com.dataingest.insert;
+
+import java.io.IOException;
+
+/**
+ * Ends a row source at the first record boundary at or past {@code limit} input bytes, so that a
+ * batch always covers whole records and the next batch can start exactly where it stopped. An
+ * optional interval also ends the batch once it has been open that long, for sources that produce
+ * rows slowly; such batches are not reproducible and must not carry deduplication tokens.
+ */
+public class BoundedRowSource implements RowSource {
+
+    private final RowSource delegate;
+    private final long limit;
+    private final long maxIntervalNanos;
+    private long startNanos;
+    private boolean started;
+    private boolean exhausted;
+
+    public BoundedRowSource(RowSource delegate, long limit) {
+        this(delegate, limit, 0);
+    }
+
+    public BoundedRowSource(RowSource delegate, long limit, long maxIntervalNanos) {
+        this.delegate = delegate;
+        this.limit = limit;
+        this.maxIntervalNanos = maxIntervalNanos;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (!started) {
+            started = true;
+            startNanos = System.nanoTime();
+        } else if (maxIntervalNanos > 0 && System.nanoTime() - startNanos >= maxIntervalNanos) {
+            return false;
+        }
+        if (delegate.position() >= limit) {
+            return false;
+        }
+        boolean more = delegate.next();
+        exhausted = !more;
+        return more;
+    }
+
+    /** Whether the underlying source ran out, as opposed to this batch reaching its bounds. */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public int fieldCount() {
+        return delegate.fieldCount();
+    }
+
+    @Override
+    public String field(int index) {
+        return delegate.field(index);
+    }
+
+    @Override
+    public byte[] buffer() {
+        return delegate.buffer();
+    }
+
+    @Override
+    public int fieldOffset(int index) {
+        return delegate.fieldOffset(index);
+    }
+
+    @Override
+    public int fieldLength(int index) {
+        return delegate.fieldLength(index);
+    }
+
+    @Override
+    public long rowNumber() {
+        return delegate.rowNumber();
+    }
+
+    @Override
+    public long position() {
+        return delegate.position();
+    }
+}
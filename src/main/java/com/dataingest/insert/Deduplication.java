@@ -0,0 +1,76 @@
+package com.dataingest.insert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tells whether a table drops an insert whose {@code insert_deduplication_token} it has already seen, which
+ * is what makes retrying or resuming a batch safe. Replicated tables deduplicate within
+ * {@code replicated_deduplication_window}; other MergeTree tables only with a non-zero
+ * {@code non_replicated_deduplication_window}, which is 0 unless the table or the server sets it.
+ */
+public final class Deduplication {
+
+    private static final Logger log = LoggerFactory.getLogger(Deduplication.class);
+
+    private Deduplication() {
+    }
+
+    /** {@code false} for other engines, and if the table's settings cannot be read. */
+    public static boolean supported(Connection conn, String table) {
+        String name = table.replace("`", "");
+        String database = null;
+        int dot = name.indexOf('.');
+        if (dot > 0) {
+            database = name.substring(0, dot);
+            name = name.substring(dot + 1);
+        }
+        try {
+            String engine;
+            String engineFull;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT engine, engine_full FROM system.tables WHERE database = "
+                    + (database != null ? "?" : "currentDatabase()") + " AND name = ?")) {
+                int index = 1;
+                if (database != null) {
+                    stmt.setString(index++, database);
+                }
+                stmt.setString(index, name);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    engine = rs.getString("engine");
+                    engineFull = rs.getString("engine_full");
+                }
+            }
+            if (engine == null || !engine.endsWith("MergeTree")) {
+                return false;
+            }
+
+            String setting = engine.startsWith("Replicated")
+                    ? "replicated_deduplication_window" : "non_replicated_deduplication_window";
+            Matcher m = Pattern.compile("(?<![A-Za-z_])" + setting + "\\s*=\\s*(\\d+)")
+                    .matcher(engineFull != null ? engineFull : "");
+            if (m.find()) {
+                return Long.parseLong(m.group(1)) > 0;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT value FROM system.merge_tree_settings WHERE name = ?")) {
+                stmt.setString(1, setting);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() && Long.parseLong(rs.getString(1).trim()) > 0;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Cannot tell whether {} deduplicates inserts, assuming it does not: {}", table, e.getMessage());
+            return false;
+        }
+    }
+}
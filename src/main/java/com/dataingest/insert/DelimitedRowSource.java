@@ -0,0 +1,54 @@
+package com.dataingest.insert;
+
+import com.dataingest.parser.DelimitedTokenizer;
+
+import java.io.IOException;
+
+public class DelimitedRowSource implements RowSource {
+
+    private final DelimitedTokenizer tokenizer;
+
+    public DelimitedRowSource(DelimitedTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        return tokenizer.nextRecord();
+    }
+
+    @Override
+    public int fieldCount() {
+        return tokenizer.fieldCount();
+    }
+
+    @Override
+    public String field(int index) {
+        return tokenizer.field(index);
+    }
+
+    @Override
+    public byte[] buffer() {
+        return tokenizer.buffer();
+    }
+
+    @Override
+    public int fieldOffset(int index) {
+        return tokenizer.fieldOffset(index);
+    }
+
+    @Override
+    public int fieldLength(int index) {
+        return tokenizer.fieldLength(index);
+    }
+
+    @Override
+    public long rowNumber() {
+        return tokenizer.recordNumber();
+    }
+
+    @Override
+    public long position() {
+        return tokenizer.position();
+    }
+}
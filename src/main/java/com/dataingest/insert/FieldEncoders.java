@@ -0,0 +1,427 @@
+package com.dataingest.insert;
+
+import com.clickhouse.data.ClickHouseOutputStream;
+import com.clickhouse.jdbc.ClickHouseConnection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts delimited text fields into ClickHouse RowBinary values, working directly on the parser's byte buffer.
+ * Empty fields become {@code NULL} for Nullable columns and the type's default value otherwise, matching
+ * how the server treats empty CSV fields. Values outside the range or precision of the column type are
+ * rejected like malformed ones rather than wrapped.
+ */
+public final class FieldEncoders {
+
+    /** Encodes one text field, given as a byte range, into RowBinary. */
+    public interface FieldEncoder {
+        void encode(byte[] buf, int offset, int length, ClickHouseOutputStream out) throws IOException;
+    }
+
+    private static final Pattern WRAPPER = Pattern.compile("(Nullable|LowCardinality)\\((.*)\\)");
+    private static final Pattern DECIMAL = Pattern.compile("Decimal\\((\\d+),\\s*(\\d+)\\)");
+    private static final Pattern DECIMAL_N = Pattern.compile("Decimal(32|64)\\((\\d+)\\)");
+    private static final Pattern DATE_TIME = Pattern.compile("DateTime(?:\\('([^']+)'\\))?");
+    private static final Pattern DATE_TIME_64 = Pattern.compile("DateTime64\\((\\d)(?:,\\s*'([^']+)')?\\)");
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+    private static final long DATE_MAX_DAY = 65535;
+    private static final long EXTENDED_MIN_DAY = epochDay(1900, 1, 1);
+    private static final long EXTENDED_MAX_DAY = epochDay(2299, 12, 31);
+    private static final long DATE_TIME_MAX_SECONDS = 0xFFFFFFFFL;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FieldEncoders() {
+    }
+
+    public static boolean supports(String type) {
+        return forType(type) != null;
+    }
+
+    /** Encoder for {@code type}, reading DateTime values without a zone of their own as UTC. */
+    public static FieldEncoder forType(String type) {
+        return forType(type, ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns an encoder for the given ClickHouse type, or {@code null} if RowBinary encoding of
+     * that type from text is not supported and the caller should fall back to the JDBC path.
+     * DateTime columns without an explicit zone read values in {@code serverZone}, as the server
+     * does when it parses text itself.
+     */
+    public static FieldEncoder forType(String type, ZoneId serverZone) {
+        String t = type.trim();
+        Matcher wrapper = WRAPPER.matcher(t);
+        if (wrapper.matches()) {
+            FieldEncoder inner = forType(wrapper.group(2), serverZone);
+            if (inner == null || !"Nullable".equals(wrapper.group(1))) {
+                return inner;
+            }
+            return (buf, offset, length, out) -> {
+                if (length == 0 || (length == 2 && buf[offset] == '\\' && buf[offset + 1] == 'N')) {
+                    out.writeByte((byte) 1);
+                } else {
+                    out.writeByte((byte) 0);
+                    inner.encode(buf, offset, length, out);
+                }
+            };
+        }
+
+        switch (t) {
+            case "String":
+                return (buf, offset, length, out) -> {
+                    out.writeUnsignedVarInt(length);
+                    out.writeBytes(buf, offset, length);
+                };
+            case "Bool":
+                return (buf, offset, length, out) -> out.writeByte(parseBool(buf, offset, length) ? (byte) 1 : (byte) 0);
+            case "Int8":
+                return integer(t, 1, false);
+            case "UInt8":
+                return integer(t, 1, true);
+            case "Int16":
+                return integer(t, 2, false);
+            case "UInt16":
+                return integer(t, 2, true);
+            case "Int32":
+                return integer(t, 4, false);
+            case "UInt32":
+                return integer(t, 4, true);
+            case "Int64":
+                return integer(t, 8, false);
+            case "UInt64":
+                return integer(t, 8, true);
+            case "Float32":
+                return (buf, offset, length, out) ->
+                        writeLittleEndian(out, Float.floatToIntBits(parseFloat(buf, offset, length)), 4);
+            case "Float64":
+                return (buf, offset, length, out) ->
+                        writeLittleEndian(out, Double.doubleToLongBits(parseDouble(buf, offset, length)), 8);
+            case "Date":
+                return (buf, offset, length, out) ->
+                        writeLittleEndian(out, parseEpochDay(buf, offset, length, "Date", 0, DATE_MAX_DAY), 2);
+            case "Date32":
+                return (buf, offset, length, out) -> writeLittleEndian(out,
+                        parseEpochDay(buf, offset, length, "Date32", EXTENDED_MIN_DAY, EXTENDED_MAX_DAY), 4);
+            default:
+                break;
+        }
+
+        Matcher m = DECIMAL.matcher(t);
+        if (m.matches()) {
+            return decimal(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+        }
+        m = DECIMAL_N.matcher(t);
+        if (m.matches()) {
+            return decimal("32".equals(m.group(1)) ? 9 : 18, Integer.parseInt(m.group(2)));
+        }
+        m = DATE_TIME.matcher(t);
+        if (m.matches()) {
+            ZoneRules zone = zone(m.group(1), serverZone);
+            return (buf, offset, length, out) -> {
+                long seconds = parseEpochTicks(buf, offset, length, 0, zone);
+                if (seconds < 0 || seconds > DATE_TIME_MAX_SECONDS) {
+                    throw invalid(buf, offset, length, "DateTime (1970-01-01 00:00:00 to 2106-02-07 06:28:15 UTC)");
+                }
+                writeLittleEndian(out, seconds, 4);
+            };
+        }
+        m = DATE_TIME_64.matcher(t);
+        if (m.matches()) {
+            int precision = Integer.parseInt(m.group(1));
+            ZoneRules zone = zone(m.group(2), serverZone);
+            return (buf, offset, length, out) ->
+                    writeLittleEndian(out, parseEpochTicks(buf, offset, length, precision, zone), 8);
+        }
+        return null;
+    }
+
+    private static FieldEncoder integer(String type, int width, boolean unsigned) {
+        return (buf, offset, length, out) ->
+                writeLittleEndian(out, parseInteger(buf, offset, length, type, width, unsigned), width);
+    }
+
+    private static FieldEncoder decimal(int precision, int scale) {
+        if (precision > 18 || scale > precision) {
+            return null;
+        }
+        int width = precision <= 9 ? 4 : 8;
+        return (buf, offset, length, out) ->
+                writeLittleEndian(out, parseUnscaled(buf, offset, length, precision, scale), width);
+    }
+
+    private static ZoneRules zone(String id, ZoneId serverZone) {
+        return (id != null ? ZoneId.of(id) : serverZone).getRules();
+    }
+
+    /** The server's time zone as reported to the driver, or UTC if the connection does not say. */
+    public static ZoneId serverZone(Connection conn) {
+        try {
+            TimeZone zone = conn.unwrap(ClickHouseConnection.class).getServerTimeZone();
+            return zone != null ? zone.toZoneId() : ZoneOffset.UTC;
+        } catch (SQLException | RuntimeException e) {
+            return ZoneOffset.UTC;
+        }
+    }
+
+    private static void writeLittleEndian(ClickHouseOutputStream out, long value, int width) throws IOException {
+        for (int i = 0; i < width; i++) {
+            out.writeByte((byte) (value >>> (8 * i)));
+        }
+    }
+
+    /**
+     * Parses a decimal integer that must fit {@code width} bytes, signed or unsigned. Unsigned 64-bit values
+     * above {@link Long#MAX_VALUE} come back as the same bits in two's complement.
+     */
+    static long parseInteger(byte[] buf, int offset, int length, String type, int width, boolean unsigned)
+            throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int i = offset;
+        int end = offset + length;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') {
+            i++;
+        }
+        if (i == end) {
+            throw invalid(buf, offset, length, type);
+        }
+        // Accumulate as an unsigned magnitude, then check it against the type's range
+        long max = width == 8 ? -1L : (1L << (8 * width)) - 1;
+        long multMax = Long.divideUnsigned(max, 10);
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(buf, offset, length, type);
+            }
+            if (Long.compareUnsigned(value, multMax) > 0) {
+                throw invalid(buf, offset, length, type);
+            }
+            long next = value * 10 + digit;
+            if (Long.compareUnsigned(next, value * 10) < 0 || Long.compareUnsigned(next, max) > 0) {
+                throw invalid(buf, offset, length, type);
+            }
+            value = next;
+        }
+        if (unsigned) {
+            if (negative && value != 0) {
+                throw invalid(buf, offset, length, type);
+            }
+            return value;
+        }
+        long limit = Long.divideUnsigned(max, 2);
+        if (Long.compareUnsigned(value, negative ? limit + 1 : limit) > 0) {
+            throw invalid(buf, offset, length, type);
+        }
+        return negative ? -value : value;
+    }
+
+    private static long parseUnscaled(byte[] buf, int offset, int length, int precision, int scale)
+            throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int i = offset;
+        int end = offset + length;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') {
+            i++;
+        }
+        long value = 0;
+        int fractionDigits = -1;
+        int integerDigits = 0;
+        boolean digits = false;
+        for (; i < end; i++) {
+            byte c = buf[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || fractionDigits >= scale) {
+                throw invalid(buf, offset, length, "Decimal with scale " + scale);
+            }
+            value = value * 10 + digit;
+            digits = true;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            } else if (value != 0 && ++integerDigits > precision - scale) {
+                // Leading zeros do not count; checked per digit so the value cannot overflow first
+                throw invalid(buf, offset, length, String.format("Decimal(%d, %d)", precision, scale));
+            }
+        }
+        if (!digits) {
+            throw invalid(buf, offset, length, "Decimal");
+        }
+        value *= POWERS_OF_TEN[scale - Math.max(0, fractionDigits)];
+        return negative ? -value : value;
+    }
+
+    private static double parseDouble(byte[] buf, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(new String(buf, offset, length, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw invalid(buf, offset, length, "floating point number");
+        }
+    }
+
+    private static float parseFloat(byte[] buf, int offset, int length) throws IOException {
+        double value = parseDouble(buf, offset, length);
+        float narrowed = (float) value;
+        if (Float.isInfinite(narrowed) && !Double.isInfinite(value)) {
+            throw invalid(buf, offset, length, "Float32");
+        }
+        return narrowed;
+    }
+
+    private static boolean parseBool(byte[] buf, int offset, int length) throws IOException {
+        if (length == 0 || (length == 1 && buf[offset] == '0')) {
+            return false;
+        }
+        if (length == 1 && buf[offset] == '1') {
+            return true;
+        }
+        String value = new String(buf, offset, length, StandardCharsets.ISO_8859_1);
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw invalid(buf, offset, length, "Bool");
+    }
+
+    private static long parseEpochDay(byte[] buf, int offset, int length, String type, long minDay, long maxDay)
+            throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (length != 10 || buf[offset + 4] != '-' || buf[offset + 7] != '-') {
+            throw invalid(buf, offset, length, type + " (yyyy-MM-dd)");
+        }
+        long day = parseDate(buf, offset, length, type);
+        if (day < minDay || day > maxDay) {
+            throw invalid(buf, offset, length, type + " in its supported range");
+        }
+        return day;
+    }
+
+    /** Days since the epoch of the {@code yyyy-MM-dd} at {@code offset}, with month and day checked. */
+    private static long parseDate(byte[] buf, int offset, int length, String type) throws IOException {
+        int year = digits(buf, offset, 4);
+        int month = digits(buf, offset + 5, 2);
+        int day = digits(buf, offset + 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            throw invalid(buf, offset, length, type);
+        }
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd[ T]HH:mm:ss[.fff]} into ticks of 10^-precision seconds since the epoch.
+     */
+    private static long parseEpochTicks(byte[] buf, int offset, int length, int precision, ZoneRules zone)
+            throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (length < 19 || buf[offset + 4] != '-' || buf[offset + 7] != '-'
+                || (buf[offset + 10] != ' ' && buf[offset + 10] != 'T')
+                || buf[offset + 13] != ':' || buf[offset + 16] != ':') {
+            throw invalid(buf, offset, length, "DateTime (yyyy-MM-dd HH:mm:ss)");
+        }
+        long day = parseDate(buf, offset, length, "DateTime");
+        int hour = digits(buf, offset + 11, 2);
+        int minute = digits(buf, offset + 14, 2);
+        int second = digits(buf, offset + 17, 2);
+        if (hour > 23 || minute > 59 || second > 59) {
+            throw invalid(buf, offset, length, "DateTime");
+        }
+        if (precision > 0 && (day < EXTENDED_MIN_DAY || day > EXTENDED_MAX_DAY)) {
+            throw invalid(buf, offset, length, "DateTime64 (1900-01-01 to 2299-12-31)");
+        }
+        long localSeconds = day * 86400 + hour * 3600L + minute * 60L + second;
+
+        ZoneOffset zoneOffset = zone.isFixedOffset()
+                ? zone.getOffset(Instant.EPOCH)
+                : zone.getOffset(LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC));
+        long ticks;
+        try {
+            ticks = Math.multiplyExact(localSeconds - zoneOffset.getTotalSeconds(), POWERS_OF_TEN[precision]);
+        } catch (ArithmeticException e) {
+            throw invalid(buf, offset, length, "DateTime64(" + precision + ")");
+        }
+
+        if (length > 19) {
+            if (buf[offset + 19] != '.') {
+                throw invalid(buf, offset, length, "DateTime (yyyy-MM-dd HH:mm:ss)");
+            }
+            int fractionDigits = length - 20;
+            for (int i = offset + 20; i < offset + length; i++) {
+                if (buf[i] < '0' || buf[i] > '9') {
+                    throw invalid(buf, offset, length, "DateTime (yyyy-MM-dd HH:mm:ss)");
+                }
+            }
+            long fraction = fractionDigits == 0 ? 0 : digits(buf, offset + 20, Math.min(fractionDigits, precision));
+            ticks += fraction * POWERS_OF_TEN[Math.max(0, precision - fractionDigits)];
+        }
+        return ticks;
+    }
+
+    private static int digits(byte[] buf, int offset, int count) throws IOException {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(buf, offset, count, "number");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static long epochDay(int year, int month, int day) {
+        // Days from civil, proleptic Gregorian calendar
+        int y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static IOException invalid(byte[] buf, int offset, int length, String expected) {
+        return new IOException(String.format("Cannot parse '%s' as %s",
+                new String(buf, offset, length, StandardCharsets.UTF_8), expected));
+    }
+}
@@ -0,0 +1,134 @@
+package com.dataingest.insert;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a newline-delimited file into roughly equal byte ranges whose boundaries always fall
+ * just after a record, so every chunk can be parsed independently. When quoted fields may contain
+ * line breaks, boundaries come from one pass over the file that follows quoting the way
+ * {@link com.dataingest.parser.DelimitedTokenizer} does; otherwise the first line break after each
+ * split point is taken without reading the rest of the file.
+ */
+public final class FileChunker {
+
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private FileChunker() {
+    }
+
+    public static List<FileChunk> split(Path file, long dataStart, int maxChunks, long minChunkBytes) throws IOException {
+        return split(file, dataStart, maxChunks, minChunkBytes, false, (byte) 0, (byte) 0);
+    }
+
+    /**
+     * @param quotedNewlines whether quoted fields may contain line breaks, in which case {@code delimiter}
+     *                       and {@code quote} are used to tell them from record ends
+     */
+    public static List<FileChunk> split(Path file, long dataStart, int maxChunks, long minChunkBytes,
+                                        boolean quotedNewlines, byte delimiter, byte quote) throws IOException {
+        List<FileChunk> chunks = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long size = raf.length();
+            long dataLength = Math.max(0, size - dataStart);
+            int count = (int) Math.max(1, Math.min(maxChunks, dataLength / Math.max(1, minChunkBytes)));
+            if (quotedNewlines && count > 1) {
+                return splitQuoted(raf, dataStart, count, delimiter, quote);
+            }
+
+            long chunkStart = dataStart;
+            for (int i = 1; i < count && chunkStart < size; i++) {
+                long target = dataStart + dataLength * i / count;
+                if (target <= chunkStart) {
+                    continue;
+                }
+                long boundary = nextLineStart(raf, target - 1);
+                if (boundary >= size) {
+                    break;
+                }
+                chunks.add(new FileChunk(chunks.size(), chunkStart, boundary));
+                chunkStart = boundary;
+            }
+            chunks.add(new FileChunk(chunks.size(), chunkStart, size));
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(RandomAccessFile raf, long from) throws IOException {
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        long position = from;
+        raf.seek(position);
+        int n;
+        while ((n = raf.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return raf.length();
+    }
+
+    private static List<FileChunk> splitQuoted(RandomAccessFile raf, long dataStart, int count,
+                                               byte delimiter, byte quote) throws IOException {
+        long size = raf.length();
+        long dataLength = size - dataStart;
+        List<FileChunk> chunks = new ArrayList<>();
+        long chunkStart = dataStart;
+        int next = 1;
+        long target = dataStart + dataLength / count;
+
+        // A quote opens a quoted field only at the start of a field; inside one, a doubled quote is literal
+        boolean fieldStart = true;
+        boolean inQuotes = false;
+        boolean quotePending = false;
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        long position = dataStart;
+        raf.seek(position);
+        int n;
+        while (next < count && (n = raf.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++) {
+                byte c = buffer[i];
+                if (quotePending) {
+                    quotePending = false;
+                    if (c == quote) {
+                        continue;
+                    }
+                    inQuotes = false;
+                }
+                if (inQuotes) {
+                    quotePending = c == quote;
+                    continue;
+                }
+                if (c == '\n' || c == '\r') {
+                    fieldStart = true;
+                    long boundary = position + i + 1;
+                    // A \r\n pair ends at the \n; chunks may start with blank lines, which the tokenizer skips
+                    if (c == '\n' && boundary >= target && boundary < size) {
+                        chunks.add(new FileChunk(chunks.size(), chunkStart, boundary));
+                        chunkStart = boundary;
+                        next++;
+                        if (next == count) {
+                            break;
+                        }
+                        target = Math.max(boundary, dataStart + dataLength * next / count);
+                    }
+                } else if (c == delimiter) {
+                    fieldStart = true;
+                } else {
+                    if (c == quote && fieldStart) {
+                        inQuotes = true;
+                    }
+                    fieldStart = false;
+                }
+            }
+            position += n;
+        }
+        chunks.add(new FileChunk(chunks.size(), chunkStart, size));
+        return chunks;
+    }
+}
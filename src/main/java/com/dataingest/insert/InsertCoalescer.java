@@ -0,0 +1,388 @@
+package com.dataingest.insert;
+
+import com.clickhouse.client.ClickHouseRequest;
+import com.clickhouse.data.ClickHouseOutputStream;
+import com.clickhouse.data.ClickHouseWriter;
+import com.dataingest.connection.ClickHouseConnectionPool;
+import com.dataingest.metrics.IngestionMetrics;
+import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.InsertMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Process-wide buffer that merges the rows of many small concurrent imports into the same table into one
+ * {@code INSERT ... FORMAT RowBinary}, so the server sees a few large parts instead of one tiny part per
+ * request. Buffers are keyed by connection identity, table and schema; a buffer is flushed once it holds
+ * {@code ingest.coalesce.max-bytes} or its oldest rows have waited {@code ingest.coalesce.max-delay-ms}.
+ * Each request's rows go into a single flush as a whole, and its future completes once that flush has
+ * been acknowledged by the server.
+ */
+@Component
+public class InsertCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(InsertCoalescer.class);
+
+    private static final int ENCODE_BUFFER_SIZE = 8192;
+    private static final long MAX_RETRY_BACKOFF_MS = 30_000;
+
+    /** Creates the target table and returns the column types rows must be encoded against. */
+    public interface TablePreparer {
+        List<ColumnSchema> prepare() throws SQLException;
+    }
+
+    @Autowired
+    private ClickHouseConnectionPool connectionPool;
+
+    @Autowired
+    private IngestionMetrics metrics;
+
+    @Value("${ingest.coalesce.max-bytes:16777216}")
+    private long maxBytes;
+
+    @Value("${ingest.coalesce.max-delay-ms:200}")
+    private long maxDelayMs;
+
+    @Value("${ingest.coalesce.flush-threads:2}")
+    private int flushThreads;
+
+    @Value("${ingest.coalesce.async-insert:false}")
+    private boolean asyncInsert;
+
+    @Value("${ingest.coalesce.table-ttl-ms:60000}")
+    private long tableTtlMs;
+
+    @Value("${ingest.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${ingest.retry.backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private final Map<Key, Target> targets = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        flusher = Executors.newScheduledThreadPool(Math.max(1, flushThreads), r -> {
+            Thread t = new Thread(r, "insert-coalescer-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        // Requests still waiting get their answer before the connections go away
+        for (Target target : targets.values()) {
+            Batch batch = target.detach();
+            if (batch != null) {
+                flush(target, batch);
+            }
+        }
+        flusher.shutdownNow();
+    }
+
+    /**
+     * Returns the buffer for the table and schema of {@code config}, creating the table through
+     * {@code preparer} only if no request prepared it within {@code ingest.coalesce.table-ttl-ms}.
+     * Concurrent first requests for the same target wait for a single preparation.
+     */
+    public Target target(ClickHouseConfig config, List<ColumnSchema> schema, TablePreparer preparer)
+            throws SQLException {
+        long now = System.currentTimeMillis();
+        targets.values().removeIf(t -> t.isIdle(now));
+        Target target = targets.computeIfAbsent(new Key(config, schema), key -> new Target(key, config));
+        target.prepare(preparer, now);
+        return target;
+    }
+
+    /**
+     * Encodes all of {@code rows} and adds them to the target's buffer. The returned future completes
+     * with the row count once the flush holding them has been committed, or exceptionally if it failed.
+     * Rows that cannot be encoded fail the request before anything of it is buffered.
+     */
+    public CompletableFuture<Long> submit(Target target, RowSource rows) throws IOException {
+        List<ColumnSchema> columns = target.getColumns();
+        FieldEncoders.FieldEncoder[] encoders = new FieldEncoders.FieldEncoder[columns.size()];
+        for (int i = 0; i < encoders.length; i++) {
+            encoders[i] = FieldEncoders.forType(columns.get(i).getType(), target.serverZone);
+            if (encoders[i] == null) {
+                throw new IllegalArgumentException("RowBinary encoding is not supported for column "
+                        + columns.get(i).getName() + " of type " + columns.get(i).getType());
+            }
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ClickHouseOutputStream out = ClickHouseOutputStream.of(encoded, ENCODE_BUFFER_SIZE);
+        long count = 0;
+        while (rows.next()) {
+            if (rows.fieldCount() != encoders.length) {
+                throw new IOException(String.format("Row %d has %d fields, expected %d",
+                        rows.rowNumber(), rows.fieldCount(), encoders.length));
+            }
+            byte[] buffer = rows.buffer();
+            for (int i = 0; i < encoders.length; i++) {
+                try {
+                    encoders[i].encode(buffer, rows.fieldOffset(i), rows.fieldLength(i), out);
+                } catch (IOException e) {
+                    throw new IOException(String.format("Row %d, column %s: %s",
+                            rows.rowNumber(), columns.get(i).getName(), e.getMessage()), e);
+                }
+            }
+            count++;
+        }
+        out.flush();
+        if (count == 0) {
+            return CompletableFuture.completedFuture(0L);
+        }
+
+        long rowCount = count;
+        return target.append(encoded.toByteArray(), count).thenApply(v -> rowCount);
+    }
+
+    private void flush(Target target, Batch batch) {
+        long start = System.currentTimeMillis();
+        // One token per flush, so a retry of a flush the server already applied is dropped. A table that
+        // ignores tokens would keep both copies, so its flushes are tried once.
+        String token = UUID.randomUUID().toString();
+        int attempts = target.deduplicates ? retryMaxAttempts : 1;
+        ClickHouseWriter writer = out -> {
+            for (byte[] piece : batch.pieces) {
+                out.writeBytes(piece, 0, piece.length);
+            }
+        };
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try (Connection conn = connectionPool.getConnection(target.config);
+                     PreparedStatement stmt = conn.prepareStatement(target.insertSql)) {
+                    RowInserter.deduplicate(stmt, token);
+                    if (asyncInsert) {
+                        // The server buffers as well, merging flushes from every instance; waiting keeps the
+                        // acknowledgment tied to the rows being written
+                        stmt.unwrap(ClickHouseRequest.class)
+                                .set("async_insert", 1)
+                                .set("wait_for_async_insert", 1)
+                                .set("async_insert_deduplicate", 1);
+                    }
+                    stmt.setObject(1, writer);
+                    stmt.executeUpdate();
+                    break;
+                } catch (SQLException e) {
+                    if (attempt >= attempts) {
+                        throw e;
+                    }
+                    long backoff = Math.min(retryBackoffMs << (attempt - 1), MAX_RETRY_BACKOFF_MS);
+                    log.warn("Flush of {} rows into {} failed (attempt {} of {}), retrying in {} ms: {}",
+                            batch.rows, target.key, attempt, attempts, backoff, e.getMessage());
+                    Thread.sleep(backoff);
+                }
+            }
+            long latency = System.currentTimeMillis() - start;
+            metrics.recordBatch(InsertMode.ROW_BINARY, latency);
+            metrics.recordCoalescedFlush(batch.requests, batch.bytes);
+            log.debug("Flushed {} rows from {} requests into {} in {} ms",
+                    batch.rows, batch.requests, target.key, latency);
+            batch.done.complete(null);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Flush of {} rows from {} requests into {} failed: {}",
+                    batch.rows, batch.requests, target.key, e.getMessage());
+            // The table may have been dropped or altered, so the next request prepares it again
+            target.expire();
+            batch.done.completeExceptionally(e);
+        }
+    }
+
+    /** Rows of several requests waiting for the same flush. */
+    private static final class Batch {
+
+        private final List<byte[]> pieces = new ArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private long bytes;
+        private long rows;
+        private int requests;
+        private ScheduledFuture<?> timer;
+    }
+
+    /** The buffer of one target table and schema. */
+    public final class Target {
+
+        private final Key key;
+        private final ClickHouseConfig config;
+        private volatile List<ColumnSchema> columns;
+        private volatile String insertSql;
+        private volatile ZoneId serverZone = ZoneOffset.UTC;
+        private volatile boolean deduplicates;
+        private volatile long preparedAt;
+        private volatile long lastUsed;
+        private final ReentrantLock prepareLock = new ReentrantLock();
+        private Batch open;
+
+        private Target(Key key, ClickHouseConfig config) {
+            this.key = key;
+            this.config = config;
+        }
+
+        /** Column types of the table, which win over the inferred ones if the table already existed. */
+        public List<ColumnSchema> getColumns() {
+            return columns;
+        }
+
+        private void prepare(TablePreparer preparer, long now) throws SQLException {
+            lastUsed = now;
+            // A lock of its own, so appends are not held up by the DDL and virtual threads are not pinned
+            prepareLock.lock();
+            try {
+                if (columns != null && now - preparedAt < tableTtlMs) {
+                    return;
+                }
+                List<ColumnSchema> prepared = preparer.prepare();
+                try (Connection conn = connectionPool.getConnection(config)) {
+                    serverZone = FieldEncoders.serverZone(conn);
+                    deduplicates = Deduplication.supported(conn, key.table);
+                }
+                insertSql = String.format("INSERT INTO %s (%s) FORMAT RowBinary", key.table,
+                        prepared.stream().map(ColumnSchema::getName).collect(Collectors.joining(", ")));
+                columns = prepared;
+                preparedAt = System.currentTimeMillis();
+            } finally {
+                prepareLock.unlock();
+            }
+        }
+
+        private void expire() {
+            preparedAt = 0;
+        }
+
+        private synchronized boolean isIdle(long now) {
+            return open == null && now - lastUsed >= tableTtlMs;
+        }
+
+        private synchronized CompletableFuture<Void> append(byte[] piece, long rows) {
+            lastUsed = System.currentTimeMillis();
+            Batch batch = open;
+            if (batch == null) {
+                batch = new Batch();
+                open = batch;
+                Batch scheduled = batch;
+                batch.timer = flusher.schedule(() -> flushIfOpen(scheduled), maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+            batch.pieces.add(piece);
+            batch.bytes += piece.length;
+            batch.rows += rows;
+            batch.requests++;
+            if (batch.bytes >= maxBytes) {
+                open = null;
+                batch.timer.cancel(false);
+                Batch full = batch;
+                flusher.execute(() -> flush(this, full));
+            }
+            return batch.done;
+        }
+
+        private void flushIfOpen(Batch batch) {
+            synchronized (this) {
+                if (open != batch) {
+                    return;
+                }
+                open = null;
+            }
+            flush(this, batch);
+        }
+
+        private synchronized Batch detach() {
+            Batch batch = open;
+            open = null;
+            if (batch != null) {
+                batch.timer.cancel(false);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Connection identity, table and column list with types. The credential takes part in equality
+     * so that requests of different users are never sent under one login, but it is never rendered.
+     */
+    private static final class Key {
+
+        private final String host;
+        private final int port;
+        private final String user;
+        private final String credential;
+        private final String database;
+        private final String table;
+        private final String schema;
+
+        private Key(ClickHouseConfig config, List<ColumnSchema> schema) {
+            this.host = config.getHost();
+            this.port = config.getPort();
+            this.user = config.getUser();
+            this.credential = config.getJwtToken();
+            this.database = config.getDatabase();
+            this.table = config.getSelectedTables()[0];
+            this.schema = schema.stream()
+                    .map(c -> c.getName() + " " + c.getType())
+                    .collect(Collectors.joining(", "));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return port == other.port
+                    && Objects.equals(host, other.host)
+                    && Objects.equals(user, other.user)
+                    && Objects.equals(credential, other.credential)
+                    && Objects.equals(database, other.database)
+                    && Objects.equals(table, other.table)
+                    && Objects.equals(schema, other.schema);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, user, credential, database, table, schema);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%s:%d/%s.%s", user, host, port, database, table);
+        }
+    }
+}
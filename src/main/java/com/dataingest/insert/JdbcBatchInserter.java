@@ -0,0 +1,96 @@
+package com.dataingest.insert;
+
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.InsertMode;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Row-at-a-time JDBC path, kept as a fallback for servers or column types the bulk path cannot handle.
+ */
+public class JdbcBatchInserter implements RowInserter {
+
+    private final BatchSizer sizer;
+
+    public JdbcBatchInserter(BatchSizer sizer) {
+        this.sizer = sizer;
+    }
+
+    @Override
+    public long insert(Connection conn, String table, List<ColumnSchema> columns, RowSource rows, String deduplicationToken)
+            throws SQLException, IOException {
+        String columnList = columns.stream().map(ColumnSchema::getName).collect(Collectors.joining(", "));
+        String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+        String insertSql = String.format("INSERT INTO %s (%s) VALUES (%s)", table, columnList, placeholders);
+
+        boolean[] nullable = new boolean[columns.size()];
+        for (int i = 0; i < nullable.length; i++) {
+            nullable[i] = columns.get(i).getType().contains("Nullable(");
+        }
+
+        // Batches are bounded by input bytes since the driver holds every pending row as strings. Rows that
+        // come with a token are already a bounded batch whose split must be the same on every retry, so
+        // they are sent as one batch and measured by the caller.
+        boolean split = deduplicationToken == null;
+        long recordCount = 0;
+        long pendingBytes = 0;
+        long lastFlush = System.nanoTime();
+        try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+            while (rows.next()) {
+                for (int i = 0; i < rows.fieldCount(); i++) {
+                    if (i < nullable.length && nullable[i] && rows.fieldLength(i) == 0) {
+                        pstmt.setNull(i + 1, Types.NULL);
+                    } else {
+                        pstmt.setString(i + 1, rows.field(i));
+                    }
+                }
+                pstmt.addBatch();
+                recordCount++;
+                pendingBytes += rowBytes(rows);
+
+                if (split && (pendingBytes >= sizer.getTargetBytes()
+                        || System.nanoTime() - lastFlush >= sizer.getMaxIntervalNanos())) {
+                    executeBatch(pstmt, pendingBytes);
+                    pendingBytes = 0;
+                    lastFlush = System.nanoTime();
+                }
+            }
+            if (pendingBytes > 0) {
+                if (split) {
+                    executeBatch(pstmt, pendingBytes);
+                } else {
+                    RowInserter.deduplicate(pstmt, deduplicationToken);
+                    pstmt.executeBatch();
+                }
+            }
+        }
+        return recordCount;
+    }
+
+    @Override
+    public InsertMode mode() {
+        return InsertMode.JDBC_BATCH;
+    }
+
+    private void executeBatch(PreparedStatement pstmt, long bytes) throws SQLException {
+        long start = System.nanoTime();
+        pstmt.executeBatch();
+        sizer.onSuccess(bytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static long rowBytes(RowSource rows) {
+        long bytes = rows.fieldCount();
+        for (int i = 0; i < rows.fieldCount(); i++) {
+            bytes += rows.fieldLength(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,204 @@
+package com.dataingest.insert;
+
+import com.dataingest.parser.DelimitedTokenizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the segments handed out by a {@link Supplier} one after another as a single row source, so that
+ * many small files share one insert. Like {@link BoundedRowSource}, it ends at the first record boundary
+ * at or past {@code limit} input bytes; if that falls inside a file, {@link #remainder()} is where the
+ * next batch picks it up.
+ */
+public class MultiFileRowSource implements RowSource, Closeable {
+
+    /** Hands out the next segment to read, or {@code null} when there is none. */
+    public interface Supplier {
+        Segment next() throws IOException;
+    }
+
+    public interface Opener {
+        DelimitedTokenizer open(Segment segment) throws IOException;
+    }
+
+    /** Byte range {@code [start, end)} of the data in one file, tagged with the caller's index for that file. */
+    public static final class Segment {
+
+        private final int file;
+        private final Path path;
+        private final long start;
+        private final long end;
+        private long rows;
+        private boolean complete;
+
+        public Segment(int file, Path path, long start, long end) {
+            this.file = file;
+            this.path = path;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int getFile() {
+            return file;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        /** Rows read from this segment, for segments returned by {@link #consumed()}. */
+        public long getRows() {
+            return rows;
+        }
+
+        /** Whether reading reached the end of the file's data. */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    private final Supplier supplier;
+    private final Opener opener;
+    private final long limit;
+    private final List<Segment> taken = new ArrayList<>();
+    private final List<Segment> consumed = new ArrayList<>();
+    private Segment segment;
+    private DelimitedTokenizer current;
+    private long segmentRows;
+    private long base;
+    private long position;
+    private long rows;
+    private Segment remainder;
+    private boolean exhausted;
+
+    public MultiFileRowSource(Supplier supplier, Opener opener, long limit) {
+        this.supplier = supplier;
+        this.opener = opener;
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            if (current == null) {
+                if (position >= limit) {
+                    return false;
+                }
+                segment = supplier.next();
+                if (segment == null) {
+                    exhausted = true;
+                    return false;
+                }
+                taken.add(segment);
+                segmentRows = 0;
+                base = position;
+                if (segment.start >= segment.end) {
+                    finishSegment(segment.end, true);
+                    continue;
+                }
+                current = opener.open(segment);
+            }
+            long offset = segment.start + current.position();
+            if (position >= limit && offset < segment.end) {
+                remainder = new Segment(segment.file, segment.path, offset, segment.end);
+                finishSegment(offset, false);
+                return false;
+            }
+            if (current.nextRecord()) {
+                rows++;
+                segmentRows++;
+                position = base + current.position();
+                return true;
+            }
+            finishSegment(segment.end, true);
+        }
+    }
+
+    private void finishSegment(long end, boolean complete) throws IOException {
+        Segment done = new Segment(segment.file, segment.path, segment.start, end);
+        done.rows = segmentRows;
+        done.complete = complete;
+        consumed.add(done);
+        closeCurrent();
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            DelimitedTokenizer closing = current;
+            current = null;
+            closing.close();
+        }
+    }
+
+    /** Segments as they were handed out, to be handed out again if the batch has to be resent. */
+    public List<Segment> taken() {
+        return taken;
+    }
+
+    /** The parts of the taken segments that were read, with their row counts. */
+    public List<Segment> consumed() {
+        return consumed;
+    }
+
+    /** Unread rest of the last segment if the limit was reached inside it, otherwise {@code null}. */
+    public Segment remainder() {
+        return remainder;
+    }
+
+    /** Whether the supplier ran out, as opposed to this batch reaching its limit. */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+    }
+
+    @Override
+    public int fieldCount() {
+        return current.fieldCount();
+    }
+
+    @Override
+    public String field(int index) {
+        return current.field(index);
+    }
+
+    @Override
+    public byte[] buffer() {
+        return current.buffer();
+    }
+
+    @Override
+    public int fieldOffset(int index) {
+        return current.fieldOffset(index);
+    }
+
+    @Override
+    public int fieldLength(int index) {
+        return current.fieldLength(index);
+    }
+
+    @Override
+    public long rowNumber() {
+        return rows;
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+}
@@ -0,0 +1,85 @@
+package com.dataingest.insert;
+
+import com.dataingest.job.JobContext;
+
+import java.io.IOException;
+
+/**
+ * Reports rows and bytes to a {@link JobContext} in small batches and stops the insert once the job is cancelled.
+ */
+public class ProgressRowSource implements RowSource {
+
+    private static final int REPORT_INTERVAL = 1024;
+
+    private final RowSource delegate;
+    private final JobContext context;
+    private long reportedRows;
+    private long reportedBytes;
+
+    public ProgressRowSource(RowSource delegate, JobContext context) {
+        this.delegate = delegate;
+        this.context = context;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        boolean more = delegate.next();
+        if (!more || delegate.rowNumber() - reportedRows >= REPORT_INTERVAL) {
+            report();
+            context.checkCancelled();
+        }
+        return more;
+    }
+
+    /** Takes back everything reported so far, e.g. before the same rows are sent again. */
+    public void rollback() {
+        context.addRows(-reportedRows);
+        context.addBytes(-reportedBytes);
+        reportedRows = 0;
+        reportedBytes = 0;
+    }
+
+    private void report() {
+        long rows = delegate.rowNumber();
+        long bytes = delegate.position();
+        context.addRows(rows - reportedRows);
+        context.addBytes(bytes - reportedBytes);
+        reportedRows = rows;
+        reportedBytes = bytes;
+    }
+
+    @Override
+    public int fieldCount() {
+        return delegate.fieldCount();
+    }
+
+    @Override
+    public String field(int index) {
+        return delegate.field(index);
+    }
+
+    @Override
+    public byte[] buffer() {
+        return delegate.buffer();
+    }
+
+    @Override
+    public int fieldOffset(int index) {
+        return delegate.fieldOffset(index);
+    }
+
+    @Override
+    public int fieldLength(int index) {
+        return delegate.fieldLength(index);
+    }
+
+    @Override
+    public long rowNumber() {
+        return delegate.rowNumber();
+    }
+
+    @Override
+    public long position() {
+        return delegate.position();
+    }
+}
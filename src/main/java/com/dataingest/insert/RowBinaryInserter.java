@@ -0,0 +1,79 @@
+package com.dataingest.insert;
+
+import com.clickhouse.data.ClickHouseWriter;
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.InsertMode;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Sends all rows through one long-running {@code INSERT ... FORMAT RowBinary} request. Each field is
+ * encoded for its column type straight from the parser buffer, so the server receives a single
+ * continuous stream instead of thousands of parameter-bound batches.
+ */
+public class RowBinaryInserter implements RowInserter {
+
+    /** Whether every column type can be encoded client-side; otherwise use {@link JdbcBatchInserter}. */
+    public static boolean supports(List<ColumnSchema> columns) {
+        return columns.stream().allMatch(c -> FieldEncoders.supports(c.getType()));
+    }
+
+    @Override
+    public long insert(Connection conn, String table, List<ColumnSchema> columns, RowSource rows, String deduplicationToken)
+            throws SQLException, IOException {
+        String columnList = columns.stream().map(ColumnSchema::getName).collect(Collectors.joining(", "));
+        String insertSql = String.format("INSERT INTO %s (%s) FORMAT RowBinary", table, columnList);
+
+        ZoneId serverZone = FieldEncoders.serverZone(conn);
+        FieldEncoders.FieldEncoder[] encoders = new FieldEncoders.FieldEncoder[columns.size()];
+        for (int i = 0; i < encoders.length; i++) {
+            encoders[i] = FieldEncoders.forType(columns.get(i).getType(), serverZone);
+            if (encoders[i] == null) {
+                throw new IllegalArgumentException("RowBinary encoding is not supported for column "
+                        + columns.get(i).getName() + " of type " + columns.get(i).getType());
+            }
+        }
+
+        // The writer runs on the driver's I/O thread while executeUpdate waits for the server response
+        AtomicLong recordCount = new AtomicLong();
+        ClickHouseWriter writer = out -> {
+            while (rows.next()) {
+                if (rows.fieldCount() != encoders.length) {
+                    throw new IOException(String.format("Row %d has %d fields, expected %d",
+                            rows.rowNumber(), rows.fieldCount(), encoders.length));
+                }
+                byte[] buffer = rows.buffer();
+                for (int i = 0; i < encoders.length; i++) {
+                    try {
+                        encoders[i].encode(buffer, rows.fieldOffset(i), rows.fieldLength(i), out);
+                    } catch (IOException e) {
+                        throw new IOException(String.format("Row %d, column %s: %s",
+                                rows.rowNumber(), columns.get(i).getName(), e.getMessage()), e);
+                    }
+                }
+                recordCount.incrementAndGet();
+            }
+        };
+
+        try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+            if (deduplicationToken != null) {
+                RowInserter.deduplicate(pstmt, deduplicationToken);
+            }
+            pstmt.setObject(1, writer);
+            pstmt.executeUpdate();
+        }
+        return recordCount.get();
+    }
+
+    @Override
+    public InsertMode mode() {
+        return InsertMode.ROW_BINARY;
+    }
+}
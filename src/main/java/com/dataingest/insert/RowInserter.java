@@ -0,0 +1,28 @@
+package com.dataingest.insert;
+
+import com.clickhouse.client.ClickHouseRequest;
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.InsertMode;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+public interface RowInserter {
+
+    /**
+     * Drains {@code rows} into {@code table} and returns the number of rows sent. A non-null
+     * {@code deduplicationToken} makes the server drop the insert if it was already applied.
+     */
+    long insert(Connection conn, String table, List<ColumnSchema> columns, RowSource rows, String deduplicationToken)
+            throws SQLException, IOException;
+
+    InsertMode mode();
+
+    /** Sets {@code insert_deduplication_token} on the statement's next request. */
+    static void deduplicate(Statement stmt, String token) throws SQLException {
+        stmt.unwrap(ClickHouseRequest.class).set("insert_deduplication_token", token);
+    }
+}
@@ -0,0 +1,28 @@
+package com.dataingest.insert;
+
+import java.io.IOException;
+
+/**
+ * Pull-based cursor over parsed input rows. Field values are only valid until the next call to {@link #next()}.
+ */
+public interface RowSource {
+
+    boolean next() throws IOException;
+
+    int fieldCount();
+
+    String field(int index);
+
+    /** Buffer holding the UTF-8 bytes of the current row, addressed by {@link #fieldOffset} and {@link #fieldLength}. */
+    byte[] buffer();
+
+    int fieldOffset(int index);
+
+    int fieldLength(int index);
+
+    /** Ordinal of the current row in the input, starting at 1. */
+    long rowNumber();
+
+    /** Input bytes consumed so far, up to the end of the current row. */
+    long position();
+}
@@ -0,0 +1,183 @@
+package com.dataingest.job;
+
+import com.dataingest.model.IngestionResult;
+import com.dataingest.model.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+
+public class IngestionJob implements Runnable, Comparable<IngestionJob> {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJob.class);
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final String id;
+    private final String type;
+    private final String description;
+    private final int priority;
+    private final long sequence;
+    private final Function<JobContext, IngestionResult> work;
+    private final Runnable cleanup;
+    private final JobContext context = new JobContext();
+    private final long createdAt = System.currentTimeMillis();
+
+    private volatile State state = State.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile IngestionResult result;
+    private volatile Thread runner;
+
+    IngestionJob(String id, String type, String description, int priority, long sequence,
+                 Function<JobContext, IngestionResult> work, Runnable cleanup) {
+        this.id = id;
+        this.type = type;
+        this.description = description;
+        this.priority = priority;
+        this.sequence = sequence;
+        this.work = work;
+        this.cleanup = cleanup;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (state != State.QUEUED) {
+                return;
+            }
+            state = State.RUNNING;
+            startedAt = System.currentTimeMillis();
+            runner = Thread.currentThread();
+        }
+
+        try {
+            IngestionResult outcome = work.apply(context);
+            result = outcome;
+            state = context.isCancelled() ? State.CANCELLED : outcome.isSuccess() ? State.SUCCEEDED : State.FAILED;
+        } catch (CancellationException e) {
+            state = State.CANCELLED;
+        } catch (RuntimeException e) {
+            log.error("Job {} failed: ", id, e);
+            result = IngestionResult.builder()
+                    .success(false)
+                    .recordsProcessed(context.getRows())
+                    .message("Job failed")
+                    .errorDetails(e.getMessage())
+                    .build();
+            state = context.isCancelled() ? State.CANCELLED : State.FAILED;
+        } finally {
+            synchronized (this) {
+                runner = null;
+                // Clear an interrupt delivered by cancel() so it does not leak into the next pooled task
+                Thread.interrupted();
+            }
+            finishedAt = System.currentTimeMillis();
+            runCleanup();
+            log.info("Job {} ({}) finished as {}", id, type, state);
+        }
+    }
+
+    /**
+     * Cancels the job. Queued jobs never start; running jobs have their in-flight queries and inserts
+     * aborted through the registered cancel hooks. Returns {@code false} if the job had already finished.
+     */
+    synchronized boolean cancel() {
+        if (state == State.QUEUED) {
+            state = State.CANCELLED;
+            finishedAt = System.currentTimeMillis();
+            runCleanup();
+            return true;
+        }
+        if (state == State.RUNNING) {
+            context.cancel();
+            if (runner != null) {
+                runner.interrupt();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public JobStatus status() {
+        JobStatus status = new JobStatus();
+        status.setId(id);
+        status.setType(type);
+        status.setDescription(description);
+        status.setState(state.name());
+        status.setPriority(priority);
+        status.setCreatedAt(createdAt);
+        status.setStartedAt(startedAt > 0 ? startedAt : null);
+        status.setFinishedAt(finishedAt > 0 ? finishedAt : null);
+        status.setRowsProcessed(context.getRows());
+        status.setBytesProcessed(context.getBytes());
+        status.setTotalRows(context.getTotalRows());
+        status.setTotalBytes(context.getTotalBytes());
+        status.setFilesProcessed(context.getFiles());
+        status.setTotalFiles(context.getTotalFiles());
+        status.setResult(result);
+
+        if (startedAt > 0) {
+            long elapsed = (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+            if (elapsed > 0) {
+                status.setRowsPerSecond(context.getRows() * 1000.0 / elapsed);
+            }
+            if (state == State.RUNNING) {
+                status.setEtaSeconds(estimateRemainingSeconds(elapsed));
+            }
+        }
+        return status;
+    }
+
+    private Long estimateRemainingSeconds(long elapsedMillis) {
+        // Prefer bytes (known exactly for file imports), then rows (counted up front for exports)
+        double done;
+        if (context.getTotalBytes() > 0 && context.getBytes() > 0) {
+            done = (double) context.getBytes() / context.getTotalBytes();
+        } else if (context.getTotalRows() > 0 && context.getRows() > 0) {
+            done = (double) context.getRows() / context.getTotalRows();
+        } else {
+            return null;
+        }
+        done = Math.min(1.0, done);
+        return Math.round(elapsedMillis * (1 - done) / done / 1000);
+    }
+
+    private void runCleanup() {
+        if (cleanup != null) {
+            try {
+                cleanup.run();
+            } catch (RuntimeException e) {
+                log.warn("Cleanup for job {} failed: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public int compareTo(IngestionJob other) {
+        // Higher priority first, then first come first served
+        if (priority != other.priority) {
+            return Integer.compare(other.priority, priority);
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+}
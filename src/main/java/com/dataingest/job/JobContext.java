@@ -0,0 +1,105 @@
+package com.dataingest.job;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and cancellation handle threaded through an ingestion. Synchronous callers pass a fresh,
+ * unobserved instance; jobs expose theirs through {@link JobManager}.
+ */
+public class JobContext {
+
+    /** Handle for a registered cancel hook; closing it unregisters the hook. */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong files = new AtomicLong();
+    private volatile long totalRows = -1;
+    private volatile long totalBytes = -1;
+    private volatile long totalFiles = -1;
+    private volatile boolean cancelled;
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+
+    public void addRows(long count) {
+        rows.addAndGet(count);
+    }
+
+    public void addBytes(long count) {
+        bytes.addAndGet(count);
+    }
+
+    public void addFiles(long count) {
+        files.addAndGet(count);
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long getFiles() {
+        return files.get();
+    }
+
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+
+    public void setTotalFiles(long totalFiles) {
+        this.totalFiles = totalFiles;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Job was cancelled");
+        }
+    }
+
+    /**
+     * Registers an action that aborts in-flight work, such as {@code Statement.cancel()}. The returned
+     * handle unregisters it once that work has finished. Runs immediately if already cancelled.
+     */
+    public Registration onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (cancelled) {
+            hook.run();
+        }
+        return () -> cancelHooks.remove(hook);
+    }
+
+    void cancel() {
+        cancelled = true;
+        for (Runnable hook : cancelHooks) {
+            hook.run();
+        }
+    }
+}
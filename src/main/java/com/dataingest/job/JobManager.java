@@ -0,0 +1,203 @@
+package com.dataingest.job;
+
+import com.dataingest.concurrent.ExecutionModel;
+import com.dataingest.metrics.IngestionMetrics;
+import com.dataingest.model.IngestionResult;
+import com.dataingest.model.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Runs ingestions as background jobs on a bounded, priority-ordered executor so that long transfers
+ * do not hold request threads. Finished jobs are kept for {@code jobs.retention-ms} for polling.
+ */
+@Service
+public class JobManager {
+
+    private static final Logger log = LoggerFactory.getLogger(JobManager.class);
+
+    @Value("${jobs.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${jobs.max-queued:100}")
+    private int maxQueued;
+
+    @Value("${jobs.retention-ms:3600000}")
+    private long retentionMs;
+
+    @Value("${jobs.progress-interval-ms:1000}")
+    private long progressIntervalMs;
+
+    @Autowired
+    private IngestionMetrics metrics;
+
+    @Autowired
+    private ExecutionModel executionModel;
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService eventSender;
+
+    @PostConstruct
+    void start() {
+        // On virtual threads jobs.max-concurrent can be raised far beyond the core count
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), executionModel.threadFactory("ingestion-job"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ingestion-job-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::purgeFinished, 1, 1, TimeUnit.MINUTES);
+        // Sends block on the client's socket, so they run apart from the scheduler; each emitter has at most
+        // one send in flight, which bounds the threads by the number of subscribers
+        eventSender = Executors.newCachedThreadPool(executionModel.threadFactory("ingestion-job-events"));
+        metrics.monitorJobs(this);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(IngestionJob::cancel);
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+        eventSender.shutdownNow();
+    }
+
+    /**
+     * Queues a job and returns immediately. Throws {@link RejectedExecutionException} when the queue is full.
+     */
+    public IngestionJob submit(String type, String description, int priority,
+                               Function<JobContext, IngestionResult> work, Runnable cleanup) {
+        if (executor.getQueue().size() >= maxQueued) {
+            if (cleanup != null) {
+                cleanup.run();
+            }
+            throw new RejectedExecutionException("Job queue is full (" + maxQueued + " jobs waiting)");
+        }
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), type, description, priority,
+                sequence.incrementAndGet(), work, cleanup);
+        jobs.put(job.getId(), job);
+        executor.execute(job);
+        log.info("Submitted job {} ({}) with priority {}", job.getId(), type, priority);
+        return job;
+    }
+
+    public JobStatus getStatus(String id) {
+        IngestionJob job = jobs.get(id);
+        return job != null ? job.status() : null;
+    }
+
+    public List<JobStatus> listStatuses() {
+        List<JobStatus> statuses = new ArrayList<>();
+        for (IngestionJob job : jobs.values()) {
+            statuses.add(job.status());
+        }
+        statuses.sort(Comparator.comparingLong(JobStatus::getCreatedAt).reversed());
+        return statuses;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Returns {@code null} for an unknown job, otherwise whether a cancellation was issued.
+     */
+    public Boolean cancel(String id) {
+        IngestionJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        boolean cancelled = job.cancel();
+        if (cancelled) {
+            executor.remove(job);
+            log.info("Cancellation requested for job {}", id);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Streams the job's status as server-sent events every {@code jobs.progress-interval-ms} until it finishes.
+     * A client that stops reading only holds up its own events: ticks are skipped while its last send is stuck.
+     */
+    public SseEmitter subscribe(String id) {
+        IngestionJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        AtomicBoolean sending = new AtomicBoolean();
+        Runnable send = () -> {
+            try {
+                JobStatus status = job.status();
+                emitter.send(SseEmitter.event().name("progress").data(status));
+                if (job.getState().isFinished()) {
+                    emitter.complete();
+                    cancelQuietly(task.get());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; stop pushing
+                cancelQuietly(task.get());
+            } finally {
+                sending.set(false);
+            }
+        };
+        task.set(scheduler.scheduleAtFixedRate(() -> {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    eventSender.execute(send);
+                } catch (RejectedExecutionException e) {
+                    sending.set(false);
+                }
+            }
+        }, 0, progressIntervalMs, TimeUnit.MILLISECONDS));
+        emitter.onCompletion(() -> cancelQuietly(task.get()));
+        emitter.onTimeout(() -> cancelQuietly(task.get()));
+        emitter.onError(e -> cancelQuietly(task.get()));
+        return emitter;
+    }
+
+    private void cancelQuietly(ScheduledFuture<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.getState().isFinished() && job.getFinishedAt() < cutoff);
+    }
+}
@@ -0,0 +1,172 @@
+package com.dataingest.metadata;
+
+import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of table lists and column schemas, keyed by connection identity and database.
+ * Entries expire after {@code metadata.cache.ttl-ms}; the least recently used entries are dropped
+ * beyond {@code metadata.cache.max-entries}. Loads happen outside the lock, so concurrent misses
+ * for the same entry may both query the server.
+ */
+@Component
+public class MetadataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MetadataCache.class);
+
+    /** Loads a missing entry from the server. */
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    @Value("${metadata.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${metadata.cache.max-entries:1000}")
+    private int maxEntries;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public List<String> getTables(ClickHouseConfig config, Loader<List<String>> loader) throws SQLException {
+        return get(new Key(config, null), loader);
+    }
+
+    public List<ColumnSchema> getColumns(ClickHouseConfig config, String table, Loader<List<ColumnSchema>> loader)
+            throws SQLException {
+        return get(new Key(config, table), loader);
+    }
+
+    /**
+     * Drops the column schema of one table and the table list of its database, e.g. after creating the table.
+     */
+    public synchronized void invalidateTable(ClickHouseConfig config, String table) {
+        entries.remove(new Key(config, table));
+        entries.remove(new Key(config, null));
+    }
+
+    /** Drops every entry of the connection's database. */
+    public synchronized void invalidate(ClickHouseConfig config) {
+        Key database = new Key(config, null);
+        entries.keySet().removeIf(key -> key.sameDatabase(database));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> get(Key key, Loader<List<T>> loader) throws SQLException {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return (List<T>) entry.value;
+            }
+        }
+
+        misses.incrementAndGet();
+        List<T> value = Collections.unmodifiableList(loader.load());
+        synchronized (this) {
+            entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMs));
+            evict(now);
+        }
+        log.debug("Loaded metadata for {}", key);
+        return value;
+    }
+
+    private void evict(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        // Access order: least recently used first; stop at the first live entry once within bounds
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entries.size() <= maxEntries && entry.expiresAt > now) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<?> value;
+        private final long expiresAt;
+
+        private Entry(List<?> value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Connection identity plus database and, for column entries, the table. The credential takes
+     * part in equality because users may see different objects, but it is never rendered.
+     */
+    private static final class Key {
+
+        private final String host;
+        private final int port;
+        private final String user;
+        private final String credential;
+        private final String database;
+        private final String table;
+
+        private Key(ClickHouseConfig config, String table) {
+            this.host = config.getHost();
+            this.port = config.getPort();
+            this.user = config.getUser();
+            this.credential = config.getJwtToken();
+            this.database = config.getDatabase();
+            this.table = table;
+        }
+
+        private boolean sameDatabase(Key other) {
+            return port == other.port
+                    && Objects.equals(host, other.host)
+                    && Objects.equals(user, other.user)
+                    && Objects.equals(credential, other.credential)
+                    && Objects.equals(database, other.database);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return sameDatabase(other) && Objects.equals(table, other.table);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, user, credential, database, table);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%s:%d/%s%s", user, host, port, database, table != null ? "." + table : "");
+        }
+    }
+}
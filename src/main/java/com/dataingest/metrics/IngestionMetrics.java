@@ -0,0 +1,118 @@
+package com.dataingest.metrics;
+
+import com.dataingest.job.JobManager;
+import com.dataingest.model.InsertMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the ingestion hot paths, exposed through {@code /actuator/metrics} and
+ * {@code /actuator/prometheus}. Throughput is published as row and byte counters; rates per second
+ * come from the monitoring system, e.g. {@code rate(ingest_rows_total[1m])}.
+ */
+@Component
+public class IngestionMetrics {
+
+    public static final String IMPORT = "import";
+    public static final String EXPORT = "export";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Timer connectionAcquire;
+    private DistributionSummary parseTime;
+    private DistributionSummary coalescedRequests;
+    private DistributionSummary coalescedBytes;
+    private final Map<InsertMode, Timer> batchFlush = new EnumMap<>(InsertMode.class);
+
+    @PostConstruct
+    void init() {
+        connectionAcquire = Timer.builder("clickhouse.connection.acquire")
+                .description("Time to borrow a connection from the pool")
+                .publishPercentileHistogram()
+                .register(registry);
+        parseTime = DistributionSummary.builder("ingest.parse.time.per.mb")
+                .description("Sampled time spent reading and tokenizing input, per MB of input")
+                .baseUnit("milliseconds")
+                .register(registry);
+        coalescedRequests = DistributionSummary.builder("ingest.coalesce.requests")
+                .description("Requests whose rows were merged into one shared insert")
+                .register(registry);
+        coalescedBytes = DistributionSummary.builder("ingest.coalesce.bytes")
+                .description("Encoded size of one shared insert")
+                .baseUnit("bytes")
+                .register(registry);
+        for (InsertMode mode : InsertMode.values()) {
+            batchFlush.put(mode, Timer.builder("ingest.batch.flush")
+                    .description("Latency of one insert batch, from the first row sent to the server's reply")
+                    .tag("mode", mode.name())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    public void recordAcquire(long nanos) {
+        connectionAcquire.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Time from sending a query until its first row or response byte arrived. */
+    public void recordFirstRow(String operation, long nanos) {
+        Timer.builder("clickhouse.query.first.row")
+                .description("Time from sending a query to receiving its first row")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatch(InsertMode mode, long millis) {
+        batchFlush.get(mode).record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Records one flush of the shared insert buffer. */
+    public void recordCoalescedFlush(int requests, long bytes) {
+        coalescedRequests.record(requests);
+        coalescedBytes.record(bytes);
+    }
+
+    /** Records {@code nanos} spent parsing {@code bytes} bytes of input. */
+    public void recordParse(long nanos, long bytes) {
+        if (bytes > 0) {
+            parseTime.record(nanos / 1e6 * (1024 * 1024) / bytes);
+        }
+    }
+
+    public Counter rows(String direction) {
+        return Counter.builder("ingest.rows")
+                .description("Rows imported or exported")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    public Counter bytes(String direction) {
+        return Counter.builder("ingest.bytes")
+                .description("Uncompressed bytes read by imports or written by exports")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    public void monitorJobs(JobManager jobs) {
+        Gauge.builder("ingest.jobs.active", jobs, JobManager::getActiveCount)
+                .description("Jobs currently running")
+                .register(registry);
+        Gauge.builder("ingest.jobs.queued", jobs, JobManager::getQueuedCount)
+                .description("Jobs waiting for a free slot")
+                .register(registry);
+    }
+}
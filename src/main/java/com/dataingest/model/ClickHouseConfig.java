@@ -1,5 +1,8 @@
 package com.dataingest.model;
 
+import java.util.List;
+import java.util.Map;
+
 public class ClickHouseConfig {
 
     private String host;
@@ -10,6 +13,20 @@ public class ClickHouseConfig {
     private String[] selectedTables;
     private String[] selectedColumns;
     private String joinCondition;
+    private boolean inferTypes = true;
+    private Map<String, String> columnTypes;
+    private String compression;
+    private String watermarkColumn;
+    private List<ColumnFilter> filters;
+    private List<ColumnFilter> prewhere;
+    private List<ColumnOrder> orderBy;
+    private Long limit;
+    private Double sample;
+    private boolean adviseLayout = true;
+    private List<String> filterColumns;
+    private List<String> sortingKey;
+    private String partitionKey;
+    private Map<String, String> columnCodecs;
 
     public String getHost() {
         return host;
@@ -74,4 +91,137 @@ public class ClickHouseConfig {
     public void setJoinCondition(String joinCondition) {
         this.joinCondition = joinCondition;
     }
+
+    public boolean isInferTypes() {
+        return inferTypes;
+    }
+
+    public void setInferTypes(boolean inferTypes) {
+        this.inferTypes = inferTypes;
+    }
+
+    public Map<String, String> getColumnTypes() {
+        return columnTypes;
+    }
+
+    public void setColumnTypes(Map<String, String> columnTypes) {
+        this.columnTypes = columnTypes;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Column whose values only grow, such as an insert timestamp or a sequence id. When set, exports
+     * are incremental: each run exports only the rows above the mark left by the previous run.
+     */
+    public String getWatermarkColumn() {
+        return watermarkColumn;
+    }
+
+    public void setWatermarkColumn(String watermarkColumn) {
+        this.watermarkColumn = watermarkColumn;
+    }
+
+    /** Conditions every exported or previewed row must meet; they are combined with AND. */
+    public List<ColumnFilter> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<ColumnFilter> filters) {
+        this.filters = filters;
+    }
+
+    /**
+     * Conditions evaluated in {@code PREWHERE}, before the remaining columns are read. Worth it for
+     * selective conditions on small columns of MergeTree tables.
+     */
+    public List<ColumnFilter> getPrewhere() {
+        return prewhere;
+    }
+
+    public void setPrewhere(List<ColumnFilter> prewhere) {
+        this.prewhere = prewhere;
+    }
+
+    public List<ColumnOrder> getOrderBy() {
+        return orderBy;
+    }
+
+    public void setOrderBy(List<ColumnOrder> orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    public Long getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * {@code SAMPLE} clause for tables with a sampling key: a fraction of the data when at most 1,
+     * otherwise an approximate number of rows.
+     */
+    public Double getSample() {
+        return sample;
+    }
+
+    public void setSample(Double sample) {
+        this.sample = sample;
+    }
+
+    /**
+     * Whether a table created by an import gets a sorting key, partition key and codecs derived from the
+     * sampled rows, where not given below. Otherwise it is created with {@code ORDER BY tuple()}.
+     */
+    public boolean isAdviseLayout() {
+        return adviseLayout;
+    }
+
+    public void setAdviseLayout(boolean adviseLayout) {
+        this.adviseLayout = adviseLayout;
+    }
+
+    /** Columns queries against the imported table usually filter on; they lead the advised sorting key. */
+    public List<String> getFilterColumns() {
+        return filterColumns;
+    }
+
+    public void setFilterColumns(List<String> filterColumns) {
+        this.filterColumns = filterColumns;
+    }
+
+    /** {@code ORDER BY} columns for a table created by an import; an empty list means {@code tuple()}. */
+    public List<String> getSortingKey() {
+        return sortingKey;
+    }
+
+    public void setSortingKey(List<String> sortingKey) {
+        this.sortingKey = sortingKey;
+    }
+
+    /** {@code PARTITION BY} expression for a table created by an import, e.g. {@code toYYYYMM(event_date)}. */
+    public String getPartitionKey() {
+        return partitionKey;
+    }
+
+    public void setPartitionKey(String partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
+    /** Compression codecs by column name for a table created by an import, e.g. {@code Delta, ZSTD(1)}. */
+    public Map<String, String> getColumnCodecs() {
+        return columnCodecs;
+    }
+
+    public void setColumnCodecs(Map<String, String> columnCodecs) {
+        this.columnCodecs = columnCodecs;
+    }
 }
@@ -0,0 +1,48 @@
+package com.dataingest.model;
+
+import java.util.List;
+
+/**
+ * One condition of a query's {@code WHERE} or {@code PREWHERE} clause, such as
+ * {@code {"column": "ts", "op": "GE", "value": "2024-01-01 00:00:00"}}. Values are rendered as
+ * escaped literals, never spliced in as SQL.
+ */
+public class ColumnFilter {
+
+    private String column;
+    private FilterOperator op = FilterOperator.EQ;
+    private Object value;
+    private List<Object> values;
+
+    public String getColumn() {
+        return column;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public FilterOperator getOp() {
+        return op;
+    }
+
+    public void setOp(FilterOperator op) {
+        this.op = op;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public void setValues(List<Object> values) {
+        this.values = values;
+    }
+}
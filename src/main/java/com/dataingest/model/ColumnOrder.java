@@ -0,0 +1,23 @@
+package com.dataingest.model;
+
+public class ColumnOrder {
+
+    private String column;
+    private boolean descending;
+
+    public String getColumn() {
+        return column;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+}
@@ -0,0 +1,31 @@
+package com.dataingest.model;
+
+public class ColumnSchema {
+
+    private String name;
+    private String type;
+
+    public ColumnSchema() {
+    }
+
+    public ColumnSchema(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
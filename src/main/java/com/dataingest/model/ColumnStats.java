@@ -0,0 +1,62 @@
+package com.dataingest.model;
+
+/**
+ * Statistics of one column over the rows a file preview sampled.
+ */
+public class ColumnStats {
+
+    private String name;
+    private String type;
+    private double nullRatio;
+    private long distinct;
+    private String min;
+    private String max;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public double getNullRatio() {
+        return nullRatio;
+    }
+
+    public void setNullRatio(double nullRatio) {
+        this.nullRatio = nullRatio;
+    }
+
+    public long getDistinct() {
+        return distinct;
+    }
+
+    public void setDistinct(long distinct) {
+        this.distinct = distinct;
+    }
+
+    public String getMin() {
+        return min;
+    }
+
+    public void setMin(String min) {
+        this.min = min;
+    }
+
+    public String getMax() {
+        return max;
+    }
+
+    public void setMax(String max) {
+        this.max = max;
+    }
+}
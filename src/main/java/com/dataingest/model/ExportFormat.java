@@ -0,0 +1,54 @@
+package com.dataingest.model;
+
+/**
+ * How exported rows are serialized. {@code DELIMITED} formats rows in the application; the others
+ * have ClickHouse produce the file contents, which are copied to the output without being decoded.
+ */
+public enum ExportFormat {
+
+    /** Plain delimited text written row by row from the JDBC result set. */
+    DELIMITED(null, null, "text/csv; charset=UTF-8"),
+
+    CSV("CSV", "CSVWithNames", "text/csv; charset=UTF-8"),
+
+    TSV("TabSeparated", "TabSeparatedWithNames", "text/tab-separated-values; charset=UTF-8"),
+
+    /** One JSON object per line; header settings do not apply. */
+    JSON_EACH_ROW("JSONEachRow", "JSONEachRow", "application/x-ndjson"),
+
+    /** Self-describing columnar file; header settings do not apply. */
+    PARQUET("Parquet", "Parquet", "application/vnd.apache.parquet");
+
+    private final String format;
+    private final String formatWithNames;
+    private final String contentType;
+
+    ExportFormat(String format, String formatWithNames, String contentType) {
+        this.format = format;
+        this.formatWithNames = formatWithNames;
+        this.contentType = contentType;
+    }
+
+    /** ClickHouse output format name, or {@code null} for {@link #DELIMITED}. */
+    public String serverFormat(boolean header) {
+        return header ? formatWithNames : format;
+    }
+
+    public boolean isServerSide() {
+        return format != null;
+    }
+
+    /** Whether files in this format can be appended to one another to form a valid file. */
+    public boolean isConcatenable() {
+        return this != PARQUET;
+    }
+
+    /** Whether the server writes a names row, which in a merged file belongs only at the top. */
+    public boolean hasHeaderRow() {
+        return isServerSide() && !format.equals(formatWithNames);
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,31 @@
+package com.dataingest.model;
+
+/**
+ * Compression applied to exported files and detected on uploaded ones.
+ */
+public enum FileCompression {
+
+    NONE(""),
+
+    GZIP(".gz"),
+
+    ZSTD(".zst"),
+
+    /** LZ4 frame format, as read and written by the {@code lz4} command line tool. */
+    LZ4(".lz4");
+
+    private final String extension;
+
+    FileCompression(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /** Appends this codec's extension unless the name already carries it. */
+    public String withExtension(String fileName) {
+        return fileName.endsWith(extension) ? fileName : fileName + extension;
+    }
+}
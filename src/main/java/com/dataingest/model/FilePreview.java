@@ -0,0 +1,92 @@
+package com.dataingest.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class FilePreview {
+
+    private List<ColumnSchema> columns;
+    private List<Map<String, Object>> rows;
+    private List<ColumnStats> stats;
+    private String delimiter;
+    private String charset;
+    private boolean hasHeader;
+    private long sampledRows;
+    private boolean truncated;
+    private TableLayout layout;
+
+    public List<ColumnSchema> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<ColumnSchema> columns) {
+        this.columns = columns;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+
+    public List<ColumnStats> getStats() {
+        return stats;
+    }
+
+    public void setStats(List<ColumnStats> stats) {
+        this.stats = stats;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    public void setCharset(String charset) {
+        this.charset = charset;
+    }
+
+    public boolean isHasHeader() {
+        return hasHeader;
+    }
+
+    public void setHasHeader(boolean hasHeader) {
+        this.hasHeader = hasHeader;
+    }
+
+    /** Data rows the statistics and inferred types are based on. */
+    public long getSampledRows() {
+        return sampledRows;
+    }
+
+    public void setSampledRows(long sampledRows) {
+        this.sampledRows = sampledRows;
+    }
+
+    /** Whether the file continues past the sampled prefix. */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /** Sorting key, partition key and codecs an import of this file would create the table with. */
+    public TableLayout getLayout() {
+        return layout;
+    }
+
+    public void setLayout(TableLayout layout) {
+        this.layout = layout;
+    }
+}
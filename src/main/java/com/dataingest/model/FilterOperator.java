@@ -0,0 +1,32 @@
+package com.dataingest.model;
+
+/**
+ * Comparison of a {@link ColumnFilter}. {@code IN}, {@code NOT_IN} and {@code BETWEEN} take
+ * {@code values}; the null checks take no operand; the others take {@code value}.
+ */
+public enum FilterOperator {
+
+    EQ("="),
+    NE("!="),
+    LT("<"),
+    LE("<="),
+    GT(">"),
+    GE(">="),
+    LIKE("LIKE"),
+    NOT_LIKE("NOT LIKE"),
+    IN("IN"),
+    NOT_IN("NOT IN"),
+    BETWEEN("BETWEEN"),
+    IS_NULL("IS NULL"),
+    IS_NOT_NULL("IS NOT NULL");
+
+    private final String sql;
+
+    FilterOperator(String sql) {
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+}
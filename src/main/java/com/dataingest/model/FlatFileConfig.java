@@ -6,6 +6,17 @@ public class FlatFileConfig {
     private String delimiter;
     private String[] selectedColumns;
     private boolean hasHeader;
+    private InsertMode insertMode = InsertMode.ROW_BINARY;
+    private int parallelism;
+    private boolean quotedNewlines = true;
+    private FileCompression compression = FileCompression.NONE;
+    private boolean mergeParts = true;
+    private ExportFormat format = ExportFormat.DELIMITED;
+    private String checkpointId;
+    private long minBatchBytes;
+    private long maxBatchBytes;
+    private String watermarkId;
+    private boolean append;
 
     public String getFileName() {
         return fileName;
@@ -38,4 +49,101 @@ public class FlatFileConfig {
     public void setHasHeader(boolean hasHeader) {
         this.hasHeader = hasHeader;
     }
+
+    public InsertMode getInsertMode() {
+        return insertMode;
+    }
+
+    public void setInsertMode(InsertMode insertMode) {
+        this.insertMode = insertMode;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Whether quoted fields may contain line breaks, so parallel chunks are cut with a quote-aware scan of
+     * the file. Callers that know a file has none can turn it off to skip that scan.
+     */
+    public boolean isQuotedNewlines() {
+        return quotedNewlines;
+    }
+
+    public void setQuotedNewlines(boolean quotedNewlines) {
+        this.quotedNewlines = quotedNewlines;
+    }
+
+    public FileCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(FileCompression compression) {
+        this.compression = compression;
+    }
+
+    public boolean isMergeParts() {
+        return mergeParts;
+    }
+
+    public void setMergeParts(boolean mergeParts) {
+        this.mergeParts = mergeParts;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(ExportFormat format) {
+        this.format = format;
+    }
+
+    /** Persists import progress under this id so the import can be resumed; {@code null} keeps it in memory. */
+    public String getCheckpointId() {
+        return checkpointId;
+    }
+
+    public void setCheckpointId(String checkpointId) {
+        this.checkpointId = checkpointId;
+    }
+
+    /** Lower bound for adaptive import batches; 0 uses {@code ingest.batch-min-bytes}. */
+    public long getMinBatchBytes() {
+        return minBatchBytes;
+    }
+
+    public void setMinBatchBytes(long minBatchBytes) {
+        this.minBatchBytes = minBatchBytes;
+    }
+
+    /** Upper bound for adaptive import batches; 0 uses {@code ingest.batch-max-bytes}. */
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    /** Persists an incremental export's high-water mark under this id; {@code null} derives one from the export. */
+    public String getWatermarkId() {
+        return watermarkId;
+    }
+
+    public void setWatermarkId(String watermarkId) {
+        this.watermarkId = watermarkId;
+    }
+
+    /** Appends exported rows to an existing file instead of replacing it. */
+    public boolean isAppend() {
+        return append;
+    }
+
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
 }
@@ -1,18 +1,28 @@
 package com.dataingest.model;
 
+import java.util.List;
+
 public class IngestionResult {
 
     private boolean success;
     private long recordsProcessed;
+    private long durationMillis;
+    private double rowsPerSecond;
 
     private String message;
     private String errorDetails;
+    private List<IngestionResult> parts;
 
     private IngestionResult(Builder builder) {
         this.success = builder.success;
         this.recordsProcessed = builder.recordsProcessed;
+        this.durationMillis = builder.durationMillis;
+        this.rowsPerSecond = builder.durationMillis > 0
+                ? builder.recordsProcessed * 1000.0 / builder.durationMillis
+                : 0;
         this.message = builder.message;
         this.errorDetails = builder.errorDetails;
+        this.parts = builder.parts;
     }
 
     public static Builder builder() {
@@ -27,6 +37,14 @@ public class IngestionResult {
         return recordsProcessed;
     }
 
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -35,12 +53,18 @@ public class IngestionResult {
         return errorDetails;
     }
 
+    public List<IngestionResult> getParts() {
+        return parts;
+    }
+
     public static class Builder {
 
         private boolean success;
         private long recordsProcessed;
+        private long durationMillis;
         private String message;
         private String errorDetails;
+        private List<IngestionResult> parts;
 
         public Builder success(boolean success) {
             this.success = success;
@@ -52,6 +76,11 @@ public class IngestionResult {
             return this;
         }
 
+        public Builder durationMillis(long durationMillis) {
+            this.durationMillis = durationMillis;
+            return this;
+        }
+
         public Builder message(String message) {
             this.message = message;
             return this;
@@ -62,6 +91,11 @@ public class IngestionResult {
             return this;
         }
 
+        public Builder parts(List<IngestionResult> parts) {
+            this.parts = parts;
+            return this;
+        }
+
         public IngestionResult build() {
             return new IngestionResult(this);
         }
@@ -0,0 +1,10 @@
+package com.dataingest.model;
+
+public enum InsertMode {
+
+    /** Streams every row over a single {@code INSERT ... FORMAT RowBinary} request. */
+    ROW_BINARY,
+
+    /** Binds each field through {@code PreparedStatement.setString} and flushes with {@code executeBatch}. */
+    JDBC_BATCH
+}
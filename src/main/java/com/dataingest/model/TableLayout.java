@@ -0,0 +1,43 @@
+package com.dataingest.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Physical layout of a MergeTree table created by an import: the sorting key (which is also the primary
+ * index), the partition key and per-column compression codecs.
+ */
+public class TableLayout {
+
+    private List<String> sortingKey;
+    private String partitionKey;
+    private Map<String, String> codecs = new LinkedHashMap<>();
+
+    /** Columns of {@code ORDER BY}, in order; empty for {@code ORDER BY tuple()}. */
+    public List<String> getSortingKey() {
+        return sortingKey;
+    }
+
+    public void setSortingKey(List<String> sortingKey) {
+        this.sortingKey = sortingKey;
+    }
+
+    /** {@code PARTITION BY} expression, or {@code null} for a single partition. */
+    public String getPartitionKey() {
+        return partitionKey;
+    }
+
+    public void setPartitionKey(String partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
+    /** Codec list by column name, e.g. {@code DoubleDelta, ZSTD(1)}. */
+    public Map<String, String> getCodecs() {
+        return codecs;
+    }
+
+    public void setCodecs(Map<String, String> codecs) {
+        this.codecs = codecs;
+    }
+}
@@ -0,0 +1,291 @@
+package com.dataingest.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streaming RFC 4180 tokenizer over UTF-8 bytes.
+ * <p>
+ * Each call to {@link #nextRecord()} unescapes the next record into a scratch buffer that is reused
+ * across rows; fields are exposed as offsets into that buffer, so steady-state parsing allocates
+ * nothing. Fields may be wrapped in quotes, in which case they can contain the delimiter, line breaks
+ * and doubled quotes. Records end at {@code \n}, {@code \r\n} or {@code \r}; blank lines are skipped.
+ */
+public final class DelimitedTokenizer implements Closeable {
+
+    public static final byte DEFAULT_QUOTE = '"';
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final ByteBuffer mapped;
+    private final Closeable resource;
+    private final byte delimiter;
+    private final byte quote;
+
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private long bufferOffset;
+
+    private byte[] record = new byte[1024];
+    private int recordLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private boolean quotedBlank;
+    private long recordNumber;
+
+    public DelimitedTokenizer(InputStream in, byte delimiter) {
+        this(in, null, in, delimiter, DEFAULT_QUOTE, DEFAULT_BUFFER_SIZE);
+    }
+
+    public DelimitedTokenizer(InputStream in, byte delimiter, byte quote, int bufferSize) {
+        this(in, null, in, delimiter, quote, bufferSize);
+    }
+
+    private DelimitedTokenizer(InputStream in, ByteBuffer mapped, Closeable resource,
+                               byte delimiter, byte quote, int bufferSize) {
+        if (delimiter == quote || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter cannot be a quote or line break");
+        }
+        this.in = in;
+        this.mapped = mapped;
+        this.resource = resource;
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.buf = new byte[bufferSize];
+    }
+
+    /**
+     * Tokenizes {@code [start, end)} of a file through a read-only memory mapping, avoiding a read
+     * syscall per buffer fill. Ranges larger than 2 GB fall back to a positioned channel stream.
+     */
+    public static DelimitedTokenizer mapped(Path file, long start, long end, byte delimiter) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        long length = end - start;
+        if (length > Integer.MAX_VALUE) {
+            channel.position(start);
+            return new DelimitedTokenizer(Channels.newInputStream(channel), null, channel,
+                    delimiter, DEFAULT_QUOTE, DEFAULT_BUFFER_SIZE);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        return new DelimitedTokenizer(null, buffer, channel, delimiter, DEFAULT_QUOTE, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Maps a user-supplied delimiter onto a single byte. Accepts any single ASCII character,
+     * plus {@code \t} and {@code tab} for tab-separated files.
+     */
+    public static byte delimiterByte(String delimiter) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            return ',';
+        }
+        if ("\\t".equals(delimiter) || "tab".equalsIgnoreCase(delimiter)) {
+            return '\t';
+        }
+        if (delimiter.length() != 1 || delimiter.charAt(0) > 127) {
+            throw new IllegalArgumentException("Delimiter must be a single ASCII character: " + delimiter);
+        }
+        return (byte) delimiter.charAt(0);
+    }
+
+    /**
+     * Advances to the next record. Returns {@code false} at end of input.
+     */
+    public boolean nextRecord() throws IOException {
+        while (parseRecord()) {
+            if (fieldCount > 1 || fieldEnds[0] > fieldStarts[0] || quotedBlank) {
+                recordNumber++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /** Scratch buffer holding the unescaped bytes of the current record. */
+    public byte[] buffer() {
+        return record;
+    }
+
+    public int fieldOffset(int index) {
+        checkIndex(index);
+        return fieldStarts[index];
+    }
+
+    public int fieldLength(int index) {
+        checkIndex(index);
+        return fieldEnds[index] - fieldStarts[index];
+    }
+
+    public String field(int index) {
+        checkIndex(index);
+        return new String(record, fieldStarts[index], fieldEnds[index] - fieldStarts[index], StandardCharsets.UTF_8);
+    }
+
+    /** Ordinal of the current record, starting at 1. Blank lines are not counted. */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    /** Number of input bytes consumed so far, i.e. the offset just past the current record. */
+    public long position() {
+        return bufferOffset + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (resource != null) {
+            resource.close();
+        }
+    }
+
+    private boolean parseRecord() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        quotedBlank = false;
+        if (pos >= limit && !fill()) {
+            return false;
+        }
+
+        beginField();
+        boolean fieldQuoted = false;
+        boolean inQuotes = false;
+
+        while (true) {
+            if (pos >= limit && !fill()) {
+                endField();
+                return true;
+            }
+
+            if (inQuotes) {
+                // Copy everything up to the next quote in one go
+                int start = pos;
+                while (pos < limit && buf[pos] != quote) {
+                    pos++;
+                }
+                append(start, pos - start);
+                if (pos < limit) {
+                    pos++;
+                    if (pos >= limit && !fill()) {
+                        endField();
+                        return true;
+                    }
+                    if (buf[pos] == quote) {
+                        appendByte(quote);
+                        pos++;
+                    } else {
+                        inQuotes = false;
+                    }
+                }
+                continue;
+            }
+
+            // Unquoted fast path: copy until the next structural byte
+            int start = pos;
+            while (pos < limit) {
+                byte c = buf[pos];
+                if (c == delimiter || c == '\n' || c == '\r' || c == quote) {
+                    break;
+                }
+                pos++;
+            }
+            append(start, pos - start);
+            if (pos >= limit) {
+                continue;
+            }
+
+            byte c = buf[pos++];
+            if (c == delimiter) {
+                endField();
+                beginField();
+                fieldQuoted = false;
+            } else if (c == '\n') {
+                endField();
+                return true;
+            } else if (c == '\r') {
+                if ((pos < limit || fill()) && buf[pos] == '\n') {
+                    pos++;
+                }
+                endField();
+                return true;
+            } else if (!fieldQuoted && recordLength == fieldStarts[fieldCount]) {
+                // Opening quote; anything after the closing quote is kept verbatim
+                fieldQuoted = true;
+                inQuotes = true;
+                quotedBlank = true;
+            } else {
+                appendByte(c);
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        bufferOffset += limit;
+        pos = 0;
+        limit = 0;
+        int n;
+        if (mapped != null) {
+            n = Math.min(buf.length, mapped.remaining());
+            mapped.get(buf, 0, n);
+        } else {
+            n = in.read(buf, 0, buf.length);
+        }
+        if (n <= 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private void beginField() {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = recordLength;
+    }
+
+    private void endField() {
+        fieldEnds[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    private void append(int from, int length) {
+        if (length == 0) {
+            return;
+        }
+        ensureCapacity(recordLength + length);
+        System.arraycopy(buf, from, record, recordLength, length);
+        recordLength += length;
+    }
+
+    private void appendByte(byte b) {
+        ensureCapacity(recordLength + 1);
+        record[recordLength++] = b;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > record.length) {
+            record = Arrays.copyOf(record, Math.max(required, record.length * 2));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+}
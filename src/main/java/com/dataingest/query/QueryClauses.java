@@ -0,0 +1,203 @@
+package com.dataingest.query;
+
+import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnFilter;
+import com.dataingest.model.ColumnOrder;
+import com.dataingest.model.FilterOperator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Renders the structured filters, ordering, limit and sampling of a {@link ClickHouseConfig} into
+ * SQL clauses, so that previews and exports select their rows on the server. Column names must be
+ * plain or table-qualified identifiers and are quoted; values become escaped literals. Anything else
+ * is rejected with an {@link IllegalArgumentException} before a query is sent.
+ */
+public final class QueryClauses {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+    private static final int MAX_IN_VALUES = 10_000;
+
+    private QueryClauses() {
+    }
+
+    /** {@code SAMPLE} modifier for the first table of the query, or an empty string. */
+    public static String sample(ClickHouseConfig config) {
+        Double sample = config.getSample();
+        if (sample == null) {
+            return "";
+        }
+        if (sample.isNaN() || sample <= 0 || sample.isInfinite()) {
+            throw new IllegalArgumentException("sample must be a fraction in (0, 1] or a row count: " + sample);
+        }
+        if (sample <= 1) {
+            return " SAMPLE " + BigDecimal.valueOf(sample).toPlainString();
+        }
+        if (sample != Math.rint(sample)) {
+            throw new IllegalArgumentException("A sample above 1 is a row count and must be whole: " + sample);
+        }
+        return " SAMPLE " + sample.longValue();
+    }
+
+    /**
+     * {@code PREWHERE} and {@code WHERE} clauses, or an empty string. {@code extraFilter} is SQL built by
+     * the application, such as an export range, and is added to the {@code WHERE} conditions.
+     */
+    public static String filters(ClickHouseConfig config, String extraFilter) {
+        StringBuilder sql = new StringBuilder();
+        if (!isEmpty(config.getPrewhere())) {
+            if (config.getSelectedTables().length > 1) {
+                throw new IllegalArgumentException("prewhere is not supported for joins; use filters");
+            }
+            sql.append(" PREWHERE ").append(conjunction(config.getPrewhere()));
+        }
+        List<String> conditions = new ArrayList<>();
+        if (!isEmpty(config.getFilters())) {
+            conditions.add(conjunction(config.getFilters()));
+        }
+        if (extraFilter != null) {
+            conditions.add(extraFilter);
+        }
+        if (conditions.size() == 1) {
+            sql.append(" WHERE ").append(conditions.get(0));
+        } else if (conditions.size() > 1) {
+            sql.append(" WHERE (").append(String.join(") AND (", conditions)).append(")");
+        }
+        return sql.toString();
+    }
+
+    /** {@code ORDER BY} and {@code LIMIT} clauses of the configured ordering and limit, or an empty string. */
+    public static String orderAndLimit(ClickHouseConfig config) {
+        return orderAndLimit(config, null);
+    }
+
+    /**
+     * {@code ORDER BY} and {@code LIMIT} clauses with the configured limit capped at {@code maxRows}, such as
+     * a preview's row count. The limit is always sent, so {@code maxRows} must be positive.
+     */
+    public static String orderAndLimit(ClickHouseConfig config, long maxRows) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("The row limit must be positive: " + maxRows);
+        }
+        return orderAndLimit(config, Long.valueOf(maxRows));
+    }
+
+    private static String orderAndLimit(ClickHouseConfig config, Long maxRows) {
+        StringBuilder sql = new StringBuilder();
+        if (!isEmpty(config.getOrderBy())) {
+            sql.append(" ORDER BY ").append(config.getOrderBy().stream()
+                    .map(order -> identifier(order.getColumn()) + (order.isDescending() ? " DESC" : " ASC"))
+                    .collect(Collectors.joining(", ")));
+        }
+        Long limit = config.getLimit();
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        if (maxRows != null) {
+            limit = limit != null ? Math.min(limit, maxRows) : maxRows;
+        }
+        if (limit != null) {
+            sql.append(" LIMIT ").append(limit);
+        }
+        return sql.toString();
+    }
+
+    /** Whether the rows must come from a single query, in order or up to a limit. */
+    public static boolean isOrdered(ClickHouseConfig config) {
+        return !isEmpty(config.getOrderBy()) || config.getLimit() != null;
+    }
+
+    /** Columns named by the filters and ordering, for checking against the table. */
+    public static Set<String> referencedColumns(ClickHouseConfig config) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (List<ColumnFilter> filters : Arrays.asList(config.getFilters(), config.getPrewhere())) {
+            if (filters != null) {
+                filters.forEach(filter -> columns.add(filter.getColumn()));
+            }
+        }
+        if (config.getOrderBy() != null) {
+            config.getOrderBy().forEach(order -> columns.add(order.getColumn()));
+        }
+        return columns;
+    }
+
+    private static String conjunction(List<ColumnFilter> filters) {
+        return filters.stream().map(QueryClauses::condition).collect(Collectors.joining(" AND "));
+    }
+
+    private static String condition(ColumnFilter filter) {
+        FilterOperator op = filter.getOp() != null ? filter.getOp() : FilterOperator.EQ;
+        String column = identifier(filter.getColumn());
+        switch (op) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return column + " " + op.getSql();
+            case IN:
+            case NOT_IN:
+                List<Object> values = filter.getValues();
+                if (isEmpty(values) || values.size() > MAX_IN_VALUES) {
+                    throw new IllegalArgumentException(op + " on " + filter.getColumn() + " takes 1 to "
+                            + MAX_IN_VALUES + " values");
+                }
+                return column + " " + op.getSql() + " (" + values.stream()
+                        .map(QueryClauses::literal)
+                        .collect(Collectors.joining(", ")) + ")";
+            case BETWEEN:
+                if (filter.getValues() == null || filter.getValues().size() != 2) {
+                    throw new IllegalArgumentException("BETWEEN on " + filter.getColumn() + " takes two values");
+                }
+                return column + " BETWEEN " + literal(filter.getValues().get(0))
+                        + " AND " + literal(filter.getValues().get(1));
+            default:
+                return column + " " + op.getSql() + " " + literal(filter.getValue());
+        }
+    }
+
+    /** Quotes a plain or table-qualified column name after checking it is one. */
+    public static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid column name: " + name);
+        }
+        return "`" + name.replace(".", "`.`") + "`";
+    }
+
+    /** Renders a JSON scalar as a ClickHouse literal; strings are compared after conversion to the column type. */
+    public static String literal(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Filter values must not be null; use IS_NULL or IS_NOT_NULL");
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof BigInteger) {
+            return value.toString();
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new IllegalArgumentException("Filter values must be finite: " + value);
+            }
+            return BigDecimal.valueOf(number).toPlainString();
+        }
+        if (value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof String) {
+            return "'" + ((String) value).replace("\\", "\\\\").replace("'", "\\'") + "'";
+        }
+        throw new IllegalArgumentException("Filter values must be strings, numbers or booleans: " + value);
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+}
@@ -0,0 +1,297 @@
+package com.dataingest.schema;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Running statistics for one column of sampled text values, used to pick the narrowest
+ * ClickHouse type that every observed value parses as.
+ */
+public class ColumnProfile {
+
+    static final int DISTINCT_LIMIT = 1000;
+    private static final int DECIMAL_MAX_SCALE = 4;
+    private static final int DECIMAL_PRECISION = 18;
+    private static final int LOW_CARDINALITY_MIN_ROWS = 100;
+
+    private long count;
+    private long empty;
+
+    private boolean integer = true;
+    private long minLong = Long.MAX_VALUE;
+    private long maxLong = Long.MIN_VALUE;
+
+    private boolean decimal = true;
+    private int maxIntegerDigits;
+    private int maxScale;
+
+    private boolean floating = true;
+    private boolean bool = true;
+    private boolean date = true;
+    private boolean dateTime = true;
+    private int maxFractionDigits;
+
+    private final Set<String> distinct = new HashSet<>();
+    private boolean distinctOverflow;
+    private final DistinctCounter distinctCounter = new DistinctCounter();
+
+    // Numeric extremes while every value is a number, with the original text for display
+    private double minNumber = Double.POSITIVE_INFINITY;
+    private double maxNumber = Double.NEGATIVE_INFINITY;
+    private String minNumberText;
+    private String maxNumberText;
+    private String minText;
+    private String maxText;
+
+    // Whether the values never decrease in the order they were added, numerically and as text
+    private boolean ascendingNumber = true;
+    private boolean ascendingText = true;
+    private double lastNumber = Double.NEGATIVE_INFINITY;
+    private String lastText;
+
+    public void add(String value) {
+        count++;
+        if (value == null || value.isEmpty() || "\\N".equals(value)) {
+            empty++;
+            return;
+        }
+
+        distinctCounter.add(value);
+        if (lastText != null && value.compareTo(lastText) < 0) {
+            ascendingText = false;
+        }
+        lastText = value;
+        if (minText == null || value.compareTo(minText) < 0) {
+            minText = value;
+        }
+        if (maxText == null || value.compareTo(maxText) > 0) {
+            maxText = value;
+        }
+        if (!distinctOverflow) {
+            distinct.add(value);
+            if (distinct.size() > DISTINCT_LIMIT) {
+                distinctOverflow = true;
+                distinct.clear();
+            }
+        }
+
+        if (integer) {
+            integer = acceptInteger(value);
+        }
+        if (decimal) {
+            decimal = acceptDecimal(value);
+        }
+        if (floating) {
+            floating = acceptFloat(value);
+        }
+        if (bool) {
+            bool = "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
+        }
+        if (date) {
+            date = value.length() == 10 && isDate(value);
+        }
+        if (dateTime) {
+            dateTime = acceptDateTime(value);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getEmpty() {
+        return empty;
+    }
+
+    /** Number of distinct non-empty values; exact up to {@value #DISTINCT_LIMIT}, estimated beyond. */
+    public long getDistinct() {
+        return distinctOverflow ? Math.max(distinctCounter.estimate(), DISTINCT_LIMIT + 1) : distinct.size();
+    }
+
+    /**
+     * Smallest non-empty value, compared numerically when every value is a number and as text
+     * otherwise, which also orders ISO dates. {@code null} if there were no values.
+     */
+    public String getMin() {
+        return floating && minNumberText != null ? minNumberText : minText;
+    }
+
+    public String getMax() {
+        return floating && maxNumberText != null ? maxNumberText : maxText;
+    }
+
+    /**
+     * Whether the non-empty values never decrease in sample order, compared as {@link #getMin()} compares
+     * them. Only meaningful when the sample kept the file's row order.
+     */
+    public boolean isAscending() {
+        return count > empty && (floating ? ascendingNumber : ascendingText);
+    }
+
+    public String inferType() {
+        long nonEmpty = count - empty;
+        if (nonEmpty == 0) {
+            return "String";
+        }
+
+        String type = null;
+        if (bool) {
+            type = "Bool";
+        } else if (integer) {
+            type = integerType();
+        } else if (decimal && maxScale <= DECIMAL_MAX_SCALE && maxIntegerDigits + maxScale <= DECIMAL_PRECISION - 2) {
+            type = String.format("Decimal(%d, %d)", DECIMAL_PRECISION, maxScale);
+        } else if (floating) {
+            type = "Float64";
+        } else if (dateTime) {
+            type = maxFractionDigits > 0 ? String.format("DateTime64(%d)", Math.min(9, maxFractionDigits)) : "DateTime";
+        } else if (date) {
+            type = "Date";
+        }
+
+        if (type == null) {
+            boolean lowCardinality = !distinctOverflow
+                    && nonEmpty >= LOW_CARDINALITY_MIN_ROWS
+                    && distinct.size() * 5L <= nonEmpty;
+            return lowCardinality ? "LowCardinality(String)" : "String";
+        }
+        return empty > 0 ? "Nullable(" + type + ")" : type;
+    }
+
+    private String integerType() {
+        // Rows outside the sample may be larger, so never go below 32 bits, and leave one bit of headroom
+        // above the sampled range when choosing between 32 and 64; the encoder rejects what still does not fit
+        if (minLong >= 0) {
+            return maxLong <= Integer.MAX_VALUE ? "UInt32" : "UInt64";
+        }
+        long magnitude = Math.max(-minLong, maxLong);
+        return magnitude <= Integer.MAX_VALUE / 2 ? "Int32" : "Int64";
+    }
+
+    private boolean acceptInteger(String value) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int digits = value.length() - start;
+        if (digits == 0 || digits > 18 || hasLeadingZero(value)) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        long parsed = Long.parseLong(value);
+        minLong = Math.min(minLong, parsed);
+        maxLong = Math.max(maxLong, parsed);
+        return true;
+    }
+
+    private boolean acceptDecimal(String value) {
+        if (hasLeadingZero(value)) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int dot = -1;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '.' && dot < 0) {
+                dot = i;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        int integerDigits = (dot < 0 ? value.length() : dot) - start;
+        int scale = dot < 0 ? 0 : value.length() - dot - 1;
+        if (integerDigits == 0 && scale == 0) {
+            return false;
+        }
+        maxIntegerDigits = Math.max(maxIntegerDigits, integerDigits);
+        maxScale = Math.max(maxScale, scale);
+        return true;
+    }
+
+    private boolean acceptFloat(String value) {
+        if (hasLeadingZero(value)) {
+            return false;
+        }
+        char last = value.charAt(value.length() - 1);
+        // Double.parseDouble also accepts "NaN", "Infinity" and a trailing 'd'/'f' suffix
+        if (!(last >= '0' && last <= '9') && last != '.') {
+            return false;
+        }
+        try {
+            double parsed = Double.parseDouble(value);
+            if (parsed < lastNumber) {
+                ascendingNumber = false;
+            }
+            lastNumber = parsed;
+            if (parsed < minNumber) {
+                minNumber = parsed;
+                minNumberText = value;
+            }
+            if (parsed > maxNumber) {
+                maxNumber = parsed;
+                maxNumberText = value;
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private boolean acceptDateTime(String value) {
+        // yyyy-MM-dd HH:mm:ss with an optional 'T' separator and fractional seconds
+        if (value.length() < 19 || !isDate(value)) {
+            return false;
+        }
+        char separator = value.charAt(10);
+        if ((separator != ' ' && separator != 'T')
+                || !isTwoDigits(value, 11, 0, 23) || value.charAt(13) != ':'
+                || !isTwoDigits(value, 14, 0, 59) || value.charAt(16) != ':'
+                || !isTwoDigits(value, 17, 0, 59)) {
+            return false;
+        }
+        int fraction = 0;
+        if (value.length() > 19) {
+            if (value.charAt(19) != '.' || value.length() == 20) {
+                return false;
+            }
+            for (int i = 20; i < value.length(); i++) {
+                if (!Character.isDigit(value.charAt(i))) {
+                    return false;
+                }
+            }
+            fraction = value.length() - 20;
+        }
+        maxFractionDigits = Math.max(maxFractionDigits, fraction);
+        return true;
+    }
+
+    private static boolean hasLeadingZero(String value) {
+        // Leading zeros (zip codes, account numbers) must survive, so such values stay text
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        return value.length() > start + 1 && value.charAt(start) == '0' && Character.isDigit(value.charAt(start + 1));
+    }
+
+    static boolean isDate(String value) {
+        if (value.length() < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return isTwoDigits(value, 5, 1, 12) && isTwoDigits(value, 8, 1, 31);
+    }
+
+    private static boolean isTwoDigits(String value, int offset, int min, int max) {
+        char hi = value.charAt(offset);
+        char lo = value.charAt(offset + 1);
+        if (hi < '0' || hi > '9' || lo < '0' || lo > '9') {
+            return false;
+        }
+        int n = (hi - '0') * 10 + (lo - '0');
+        return n >= min && n <= max;
+    }
+}
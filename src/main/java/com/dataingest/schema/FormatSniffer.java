@@ -0,0 +1,148 @@
+package com.dataingest.schema;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Guesses the charset, delimiter and presence of a header row from the first bytes of a delimited file.
+ */
+public final class FormatSniffer {
+
+    private static final char[] DELIMITER_CANDIDATES = {',', '\t', ';', '|'};
+    private static final int DELIMITER_SAMPLE_LINES = 50;
+
+    private FormatSniffer() {
+    }
+
+    /**
+     * Byte order marks decide; otherwise UTF-8 if the bytes decode cleanly and ISO-8859-1, which
+     * accepts anything, if not. A multi-byte sequence cut off at {@code length} is not held against UTF-8.
+     */
+    public static Charset detectCharset(byte[] data, int length) {
+        if (length >= 3 && (data[0] & 0xff) == 0xEF && (data[1] & 0xff) == 0xBB && (data[2] & 0xff) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2 && (data[0] & 0xff) == 0xFE && (data[1] & 0xff) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && (data[0] & 0xff) == 0xFF && (data[1] & 0xff) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        int end = length;
+        // Back off at most three continuation bytes to the start of a possibly incomplete sequence
+        for (int i = length - 1; i >= 0 && i >= length - 4; i--) {
+            if ((data[i] & 0xC0) != 0x80) {
+                end = (data[i] & 0x80) != 0 ? i : length;
+                break;
+            }
+        }
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(data, 0, end));
+            return StandardCharsets.UTF_8;
+        } catch (CharacterCodingException e) {
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    /**
+     * Picks the candidate that splits the most lines into the same number of fields, preferring more
+     * fields on a tie. Delimiters inside quotes are ignored. Falls back to a comma.
+     */
+    public static char detectDelimiter(String text) {
+        char best = ',';
+        int bestScore = 0;
+        for (char candidate : DELIMITER_CANDIDATES) {
+            int score = consistency(text, candidate);
+            if (score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A first row is taken as a header when it has no empty or repeated names and, in at least one
+     * column, does not fit the type inferred from the rows below it. When every column is text the
+     * first row must not reappear as a value in its column either.
+     */
+    public static boolean detectHeader(String[] first, List<ColumnProfile> profiles, List<String[]> rows) {
+        Set<String> names = new HashSet<>();
+        for (String name : first) {
+            if (name == null || name.trim().isEmpty() || !names.add(name)) {
+                return false;
+            }
+        }
+        if (rows.isEmpty()) {
+            return true;
+        }
+
+        boolean allText = true;
+        for (int i = 0; i < first.length && i < profiles.size(); i++) {
+            String type = profiles.get(i).inferType();
+            if (!isText(type)) {
+                allText = false;
+                ColumnProfile single = new ColumnProfile();
+                single.add(first[i]);
+                if (isText(single.inferType())) {
+                    return true;
+                }
+            }
+        }
+        if (!allText) {
+            return false;
+        }
+        for (String[] row : rows) {
+            for (int i = 0; i < first.length && i < row.length; i++) {
+                if (first[i].equals(row[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isText(String type) {
+        return type.endsWith("String") || type.endsWith("String)");
+    }
+
+    /** Number of leading lines with the first line's field count, or 0 if the candidate never splits. */
+    private static int consistency(String text, char delimiter) {
+        int lines = 0;
+        int expected = -1;
+        int fields = 1;
+        boolean quoted = false;
+        for (int i = 0; i < text.length() && lines < DELIMITER_SAMPLE_LINES; i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (quoted) {
+                continue;
+            } else if (c == delimiter) {
+                fields++;
+            } else if (c == '\n') {
+                if (expected < 0) {
+                    expected = fields;
+                } else if (fields != expected) {
+                    break;
+                }
+                lines++;
+                fields = 1;
+            }
+        }
+        if (expected <= 1) {
+            return 0;
+        }
+        // Ties between candidates go to the one yielding more columns
+        return lines * 1000 + Math.min(expected, 999);
+    }
+}
@@ -0,0 +1,113 @@
+package com.dataingest.schema;
+
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.parser.DelimitedTokenizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Samples a delimited file and derives a ClickHouse column type for every column.
+ */
+public final class SchemaInferrer {
+
+    public enum Sampling {
+        /** Profile the first N data rows; cheap, but blind to anything that only appears later in the file. */
+        FIRST_ROWS,
+        /** Keep a uniform reservoir of N rows over a full pass of the file. */
+        RESERVOIR
+    }
+
+    // Type names with optional arguments, e.g. Nullable(Decimal(18, 2)) or DateTime('UTC'); no statement separators
+    private static final Pattern TYPE_PATTERN = Pattern.compile("[A-Za-z][A-Za-z0-9_]*(\\([A-Za-z0-9_ ,'()]*\\))?");
+
+    private SchemaInferrer() {
+    }
+
+    public static List<ColumnProfile> profile(DelimitedTokenizer tokenizer, int columnCount,
+                                              int sampleRows, Sampling sampling) throws IOException {
+        if (sampling == Sampling.FIRST_ROWS) {
+            List<ColumnProfile> profiles = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                profiles.add(new ColumnProfile());
+            }
+            for (int row = 0; row < sampleRows && tokenizer.nextRecord(); row++) {
+                for (int i = 0; i < columnCount; i++) {
+                    profiles.get(i).add(i < tokenizer.fieldCount() ? tokenizer.field(i) : null);
+                }
+            }
+            return profiles;
+        }
+
+        String[][] reservoir = new String[sampleRows][];
+        long[] rowNumbers = new long[sampleRows];
+        long seen = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (tokenizer.nextRecord()) {
+            int slot = seen < sampleRows ? (int) seen : (int) random.nextLong(seen + 1);
+            seen++;
+            if (slot < sampleRows) {
+                String[] values = new String[columnCount];
+                for (int i = 0; i < columnCount && i < tokenizer.fieldCount(); i++) {
+                    values[i] = tokenizer.field(i);
+                }
+                reservoir[slot] = values;
+                rowNumbers[slot] = seen;
+            }
+        }
+        // Back in file order, so the profiles can tell which columns ascend through the file
+        int size = (int) Math.min(seen, sampleRows);
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> rowNumbers[i]));
+        List<String[]> rows = new ArrayList<>(size);
+        for (Integer i : order) {
+            rows.add(reservoir[i]);
+        }
+        return profile(rows, columnCount);
+    }
+
+    /** Profiles rows that were already sampled, e.g. from a stream that cannot be read twice. */
+    public static List<ColumnProfile> profile(List<String[]> rows, int columnCount) {
+        List<ColumnProfile> profiles = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            profiles.add(new ColumnProfile());
+        }
+        for (String[] row : rows) {
+            for (int i = 0; i < columnCount; i++) {
+                profiles.get(i).add(i < row.length ? row[i] : null);
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Combines inferred types with caller overrides, which take precedence by column name.
+     */
+    public static List<ColumnSchema> schema(String[] names, List<ColumnProfile> profiles, Map<String, String> overrides) {
+        List<ColumnSchema> schema = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            String override = overrides != null ? overrides.get(names[i]) : null;
+            String type = override != null ? validateType(override)
+                    : profiles != null && i < profiles.size() ? profiles.get(i).inferType() : "String";
+            schema.add(new ColumnSchema(names[i], type));
+        }
+        return schema;
+    }
+
+    public static String validateType(String type) {
+        String trimmed = type == null ? "" : type.trim();
+        if (!TYPE_PATTERN.matcher(trimmed).matches()) {
+            throw new IllegalArgumentException("Invalid column type: " + type);
+        }
+        return trimmed;
+    }
+}
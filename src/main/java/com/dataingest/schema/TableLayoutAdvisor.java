@@ -0,0 +1,225 @@
+package com.dataingest.schema;
+
+import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.TableLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Chooses the sorting key, partition key and codecs of a MergeTree table created by an import, from the
+ * column profiles of the sampled rows. Anything the caller sets explicitly on the config is used as given.
+ *
+ * <ul>
+ *   <li>Sorting key: the declared filter columns, lowest cardinality first; without any, up to two
+ *   low-cardinality columns. A date or time column, preferably one that ascends through the file, goes last.
+ *   Nullable and floating-point columns are left out.</li>
+ *   <li>Partition key: months of that date or time column, or years if the sample spans more than
+ *   {@value #MAX_MONTH_PARTITIONS} months, so one insert batch does not touch too many partitions.</li>
+ *   <li>Codecs: {@code DoubleDelta} for ascending times, {@code Delta} for ascending dates and integers or the
+ *   leading key column, and {@code ZSTD} on top of either and for high-cardinality strings.</li>
+ * </ul>
+ */
+public final class TableLayoutAdvisor {
+
+    private static final Logger log = LoggerFactory.getLogger(TableLayoutAdvisor.class);
+
+    private static final int MAX_KEY_COLUMNS = 4;
+    private static final int MAX_LOW_CARDINALITY_KEY_COLUMNS = 2;
+    /** Sampled rows per distinct value above which a column counts as low-cardinality for the key. */
+    private static final int LOW_CARDINALITY_ROWS_PER_VALUE = 100;
+    private static final int MIN_SAMPLE_ROWS = 100;
+    private static final int MAX_MONTH_PARTITIONS = 24;
+    private static final int HIGH_CARDINALITY_STRINGS = 1000;
+
+    private static final Pattern WRAPPER = Pattern.compile("(?:Nullable|LowCardinality)\\((.*)\\)");
+    // Function calls over column names and integers, e.g. toYYYYMM(event_date) or intDiv(id, 1000000)
+    private static final Pattern EXPRESSION_PATTERN = Pattern.compile("[A-Za-z0-9_ ,()]+");
+    // One or more codecs with an optional level, e.g. Delta, ZSTD(3)
+    private static final Pattern CODEC_PATTERN =
+            Pattern.compile("[A-Za-z][A-Za-z0-9]*(\\(\\d+\\))?(\\s*,\\s*[A-Za-z][A-Za-z0-9]*(\\(\\d+\\))?)*");
+
+    private TableLayoutAdvisor() {
+    }
+
+    /**
+     * @param profiles profiles of the sampled rows in file order, by column; {@code null} when types were not
+     *                 inferred, in which case only the declared types and explicit settings are used
+     */
+    public static TableLayout advise(List<ColumnSchema> schema, List<ColumnProfile> profiles, ClickHouseConfig config) {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < schema.size(); i++) {
+            indexes.put(schema.get(i).getName(), i);
+        }
+        boolean advise = config.isAdviseLayout();
+        String time = advise ? timeColumn(schema, profiles) : null;
+
+        TableLayout layout = new TableLayout();
+        if (config.getSortingKey() != null) {
+            for (String column : config.getSortingKey()) {
+                checkColumn(indexes, column);
+            }
+            layout.setSortingKey(new ArrayList<>(config.getSortingKey()));
+        } else {
+            layout.setSortingKey(advise ? sortingKey(schema, profiles, indexes, config.getFilterColumns(), time)
+                    : new ArrayList<>());
+        }
+
+        if (config.getPartitionKey() != null) {
+            String expression = config.getPartitionKey().trim();
+            if (!expression.isEmpty() && !EXPRESSION_PATTERN.matcher(expression).matches()) {
+                throw new IllegalArgumentException("Invalid partition key: " + config.getPartitionKey());
+            }
+            layout.setPartitionKey(expression.isEmpty() ? null : expression);
+        } else if (time != null && profiles != null) {
+            layout.setPartitionKey(partitionKey(time, profiles.get(indexes.get(time))));
+        }
+
+        if (advise && profiles != null) {
+            String lead = layout.getSortingKey().isEmpty() ? null : layout.getSortingKey().get(0);
+            for (int i = 0; i < schema.size() && i < profiles.size(); i++) {
+                String name = schema.get(i).getName();
+                String codec = codec(schema.get(i).getType(), profiles.get(i), name.equals(lead));
+                if (codec != null) {
+                    layout.getCodecs().put(name, codec);
+                }
+            }
+        }
+        if (config.getColumnCodecs() != null) {
+            for (Map.Entry<String, String> entry : config.getColumnCodecs().entrySet()) {
+                checkColumn(indexes, entry.getKey());
+                String codec = entry.getValue() != null ? entry.getValue().trim() : "";
+                if (codec.isEmpty()) {
+                    layout.getCodecs().remove(entry.getKey());
+                } else if (CODEC_PATTERN.matcher(codec).matches()) {
+                    layout.getCodecs().put(entry.getKey(), codec);
+                } else {
+                    throw new IllegalArgumentException("Invalid codec for " + entry.getKey() + ": " + entry.getValue());
+                }
+            }
+        }
+        return layout;
+    }
+
+    private static List<String> sortingKey(List<ColumnSchema> schema, List<ColumnProfile> profiles,
+                                           Map<String, Integer> indexes, List<String> filterColumns, String time) {
+        List<String> key = new ArrayList<>();
+        if (filterColumns != null && !filterColumns.isEmpty()) {
+            for (String column : filterColumns) {
+                int index = checkColumn(indexes, column);
+                if (!keyable(schema.get(index).getType())) {
+                    log.warn("Leaving filter column {} ({}) out of the sorting key", column, schema.get(index).getType());
+                } else if (!key.contains(column)) {
+                    key.add(column);
+                }
+            }
+        } else if (profiles != null) {
+            for (int i = 0; i < schema.size() && i < profiles.size(); i++) {
+                ColumnProfile profile = profiles.get(i);
+                long rows = profile.getCount() - profile.getEmpty();
+                if (keyable(schema.get(i).getType()) && rows >= MIN_SAMPLE_ROWS && profile.getDistinct() > 1
+                        && profile.getDistinct() * LOW_CARDINALITY_ROWS_PER_VALUE <= rows
+                        && !schema.get(i).getName().equals(time)) {
+                    key.add(schema.get(i).getName());
+                }
+            }
+        }
+        // Lowest cardinality first, so each further column narrows ranges the previous ones left long
+        if (profiles != null) {
+            key.sort(Comparator.comparingLong(column -> profiles.get(indexes.get(column)).getDistinct()));
+        }
+        if (filterColumns == null || filterColumns.isEmpty()) {
+            key = new ArrayList<>(key.subList(0, Math.min(key.size(), MAX_LOW_CARDINALITY_KEY_COLUMNS)));
+        }
+        if (time != null && !key.contains(time)) {
+            key.add(time);
+        }
+        return new ArrayList<>(key.subList(0, Math.min(key.size(), MAX_KEY_COLUMNS)));
+    }
+
+    /** The non-nullable date or time column to sort and partition by, preferring one that ascends. */
+    private static String timeColumn(List<ColumnSchema> schema, List<ColumnProfile> profiles) {
+        String first = null;
+        for (int i = 0; i < schema.size(); i++) {
+            String type = schema.get(i).getType();
+            if (!isTemporal(baseType(type)) || !keyable(type)) {
+                continue;
+            }
+            if (profiles != null && i < profiles.size() && profiles.get(i).isAscending()) {
+                return schema.get(i).getName();
+            }
+            if (first == null) {
+                first = schema.get(i).getName();
+            }
+        }
+        return first;
+    }
+
+    private static String partitionKey(String column, ColumnProfile profile) {
+        String min = profile.getMin();
+        String max = profile.getMax();
+        if (min == null || max == null || !ColumnProfile.isDate(min) || !ColumnProfile.isDate(max)) {
+            return null;
+        }
+        int months = month(max) - month(min) + 1;
+        if (months < 2) {
+            return null;
+        }
+        return months <= MAX_MONTH_PARTITIONS ? "toYYYYMM(" + column + ")" : "toYear(" + column + ")";
+    }
+
+    private static int month(String date) {
+        return Integer.parseInt(date.substring(0, 4)) * 12 + Integer.parseInt(date.substring(5, 7));
+    }
+
+    private static String codec(String type, ColumnProfile profile, boolean leadsKey) {
+        String base = baseType(type);
+        boolean ordered = leadsKey || (profile.isAscending() && profile.getDistinct() > 1);
+        if (base.startsWith("DateTime")) {
+            return ordered ? "DoubleDelta, ZSTD(1)" : null;
+        }
+        if (base.equals("Date") || base.equals("Date32") || base.matches("U?Int(16|32|64)")) {
+            return ordered ? "Delta, ZSTD(1)" : null;
+        }
+        if (base.equals("String") && !type.contains("LowCardinality")
+                && profile.getDistinct() > HIGH_CARDINALITY_STRINGS) {
+            return "ZSTD(1)";
+        }
+        return null;
+    }
+
+    /** Sorting and partition keys cannot be Nullable by default, and floating-point keys rarely narrow a scan. */
+    private static boolean keyable(String type) {
+        String trimmed = type.trim();
+        String base = baseType(trimmed);
+        return !trimmed.startsWith("Nullable(") && !base.startsWith("Float");
+    }
+
+    private static boolean isTemporal(String base) {
+        return base.equals("Date") || base.equals("Date32") || base.startsWith("DateTime");
+    }
+
+    private static String baseType(String type) {
+        String base = type.trim();
+        for (Matcher m = WRAPPER.matcher(base); m.matches(); m = WRAPPER.matcher(base)) {
+            base = m.group(1).trim();
+        }
+        return base;
+    }
+
+    private static int checkColumn(Map<String, Integer> indexes, String column) {
+        Integer index = indexes.get(column);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown column in table layout: " + column);
+        }
+        return index;
+    }
+}
@@ -1,9 +1,15 @@
 package com.dataingest.service;
 
+import com.dataingest.job.JobContext;
 import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnSchema;
 import com.dataingest.model.FlatFileConfig;
 import com.dataingest.model.IngestionResult;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -13,9 +19,30 @@ public interface DataIngestionService {
 
     List<String> getTableColumns(ClickHouseConfig config, String tableName);
 
+    List<ColumnSchema> getTableSchema(ClickHouseConfig config, String tableName);
+
     List<Map<String, Object>> previewData(ClickHouseConfig config, String tableName, int limit);
 
     IngestionResult ingestFromClickHouseToFile(ClickHouseConfig config, FlatFileConfig fileConfig);
 
+    IngestionResult ingestFromClickHouseToFile(ClickHouseConfig config, FlatFileConfig fileConfig, JobContext context);
+
+    long streamFromClickHouse(ClickHouseConfig config, FlatFileConfig fileConfig, OutputStream out) throws IOException;
+
     IngestionResult ingestFromFileToClickHouse(FlatFileConfig fileConfig, ClickHouseConfig config);
+
+    IngestionResult ingestFromFileToClickHouse(FlatFileConfig fileConfig, ClickHouseConfig config, JobContext context);
+
+    /** Imports rows while they are read from {@code in}, e.g. an upload that is still arriving. */
+    IngestionResult ingestFromStreamToClickHouse(InputStream in, FlatFileConfig fileConfig, ClickHouseConfig config);
+
+    /**
+     * Imports {@code files}, given relative to {@code directory}, into one table through a few shared insert
+     * streams. The result has one part per file, named by its relative path.
+     */
+    IngestionResult ingestFilesToClickHouse(Path directory, List<Path> files, FlatFileConfig fileConfig,
+                                            ClickHouseConfig config, JobContext context);
+
+    /** Row count of the export query's source, used as the progress total for export jobs. */
+    long countRecords(ClickHouseConfig config);
 }
@@ -1,16 +1,80 @@
 package com.dataingest.service;
 
-import com.clickhouse.jdbc.ClickHouseDataSource;
+import com.dataingest.compress.CompressionStreams;
+import com.dataingest.concurrent.ExecutionModel;
+import com.dataingest.connection.ClickHouseConnectionPool;
+import com.dataingest.export.ExportPlanner;
+import com.dataingest.export.ExportRange;
+import com.dataingest.export.FormattedExporter;
+import com.dataingest.export.DelimitedRowWriter;
+import com.dataingest.checkpoint.CheckpointStore;
+import com.dataingest.checkpoint.ExportWatermark;
+import com.dataingest.checkpoint.ImportCheckpoint;
+import com.dataingest.checkpoint.WatermarkStore;
+import com.dataingest.insert.BatchSizer;
+import com.dataingest.insert.BoundedRowSource;
+import com.dataingest.insert.Deduplication;
+import com.dataingest.insert.DelimitedRowSource;
+import com.dataingest.insert.FileChunk;
+import com.dataingest.insert.FileChunker;
+import com.dataingest.insert.InsertCoalescer;
+import com.dataingest.insert.JdbcBatchInserter;
+import com.dataingest.insert.MeteredRowSource;
+import com.dataingest.insert.MultiFileRowSource;
+import com.dataingest.insert.ProgressRowSource;
+import com.dataingest.insert.RowBinaryInserter;
+import com.dataingest.insert.RowInserter;
+import com.dataingest.insert.RowSource;
+import com.dataingest.job.JobContext;
+import com.dataingest.metadata.MetadataCache;
+import com.dataingest.metrics.IngestionMetrics;
 import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnSchema;
+import com.dataingest.model.ExportFormat;
+import com.dataingest.model.ExportManifest;
+import com.dataingest.model.FileCompression;
 import com.dataingest.model.FlatFileConfig;
 import com.dataingest.model.IngestionResult;
+import com.dataingest.model.InsertMode;
+import com.dataingest.model.TableLayout;
+import com.dataingest.parser.DelimitedTokenizer;
+import com.dataingest.query.QueryClauses;
+import com.dataingest.schema.ColumnProfile;
+import com.dataingest.schema.SchemaInferrer;
+import com.dataingest.schema.TableLayoutAdvisor;
+import com.dataingest.upload.LimitedInputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,27 +82,103 @@ public class DataIngestionServiceImpl implements DataIngestionService {
 
     private static final Logger log = LoggerFactory.getLogger(DataIngestionServiceImpl.class);
 
-    private Connection getConnection(ClickHouseConfig config) throws SQLException {
-        Properties properties = new Properties();
-        properties.setProperty("user", config.getUser());
-        properties.setProperty("password", config.getJwtToken());
-        properties.setProperty("ssl", "true");
-        properties.setProperty("sslmode", "STRICT");
-        properties.setProperty("compress", "0"); // Disable compression
-        properties.setProperty("use_client_time_zone", "true");
-        
-        // Using HTTPS protocol for secure connection
-        String url = String.format("jdbc:clickhouse://%s:%d/%s",
-                config.getHost(),
-                config.getPort(),
-                config.getDatabase());
+    /** The JDBC path holds a whole batch as strings, so its batches stay far below the RowBinary ones. */
+    private static final long JDBC_MAX_BATCH_BYTES = 8L * 1024 * 1024;
+    private static final int PROGRESS_INTERVAL_ROWS = 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final long STREAM_FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RETRY_BACKOFF_MS = 30_000;
+    private static final int DEDUPLICATION_WINDOW = 1000;
+
+    @Autowired
+    private ClickHouseConnectionPool connectionPool;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private CheckpointStore checkpointStore;
+
+    @Autowired
+    private WatermarkStore watermarkStore;
+
+    @Autowired
+    private IngestionMetrics metrics;
+
+    @Autowired
+    private InsertCoalescer insertCoalescer;
+
+    @Autowired
+    private ExecutionModel executionModel;
+
+    @Value("${ingest.parallelism:4}")
+    private int defaultParallelism;
+
+    @Value("${ingest.max-threads:0}")
+    private int maxWorkerThreads;
+
+    @Value("${ingest.min-chunk-bytes:16777216}")
+    private long minChunkBytes;
+
+    @Value("${ingest.memory-mapped:true}")
+    private boolean memoryMapped;
+
+    @Value("${ingest.schema.sample-rows:10000}")
+    private int schemaSampleRows;
+
+    @Value("${ingest.schema.sampling:FIRST_ROWS}")
+    private SchemaInferrer.Sampling schemaSampling;
+
+    @Value("${ingest.stream.sample-bytes:8388608}")
+    private int streamSampleBytes;
+
+    @Value("${ingest.batch-bytes:67108864}")
+    private long batchBytes;
+
+    @Value("${ingest.batch-min-bytes:1048576}")
+    private long batchMinBytes;
+
+    @Value("${ingest.batch-max-bytes:268435456}")
+    private long batchMaxBytes;
+
+    @Value("${ingest.batch-target-latency-ms:5000}")
+    private long batchTargetLatencyMs;
+
+    @Value("${ingest.batch-max-interval-ms:1000}")
+    private long batchMaxIntervalMs;
+
+    @Value("${ingest.coalesce.enabled:false}")
+    private boolean coalesceEnabled;
+
+    @Value("${ingest.coalesce.max-file-bytes:8388608}")
+    private long coalesceMaxFileBytes;
+
+    @Value("${ingest.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${ingest.retry.backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private int workerThreads;
+    private ExecutorService workerExecutor;
+    private final Set<String> runningWatermarks = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void startWorkerExecutor() {
+        workerThreads = maxWorkerThreads > 0 ? maxWorkerThreads : Runtime.getRuntime().availableProcessors();
+        // Each transfer still fans out to at most workerThreads tasks; on virtual threads the pool itself is unbounded
+        workerExecutor = executionModel.newTaskExecutor("transfer-worker", workerThreads);
+    }
+
+    @PreDestroy
+    void stopWorkerExecutor() {
+        workerExecutor.shutdownNow();
+    }
 
-        log.info("Attempting to connect with URL: {} and user: {}", url, config.getUser());
+    private Connection getConnection(ClickHouseConfig config) throws SQLException {
         try {
-            ClickHouseDataSource dataSource = new ClickHouseDataSource(url, properties);
-            Connection conn = dataSource.getConnection();
-            log.info("Successfully connected to ClickHouse");
-            return conn;
+            return connectionPool.getConnection(config);
         } catch (SQLException e) {
             log.error("Failed to connect to ClickHouse: {} - {}", e.getErrorCode(), e.getMessage(), e);
             throw e;
@@ -47,6 +187,15 @@ public class DataIngestionServiceImpl implements DataIngestionService {
 
     @Override
     public List<String> getClickHouseTables(ClickHouseConfig config) {
+        try {
+            return metadataCache.getTables(config, () -> loadTables(config));
+        } catch (SQLException e) {
+            log.error("SQL Error fetching tables - Code: {} Message: {}", e.getErrorCode(), e.getMessage(), e);
+            throw new RuntimeException("Failed to fetch tables: " + e.getMessage(), e);
+        }
+    }
+
+    private List<String> loadTables(ClickHouseConfig config) throws SQLException {
         List<String> tables = new ArrayList<>();
         String query = "SELECT name FROM system.tables WHERE database = ?";
         
@@ -54,42 +203,56 @@ public class DataIngestionServiceImpl implements DataIngestionService {
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
             stmt.setString(1, config.getDatabase());
-            log.info("Executing query: {} with database: {}", query, config.getDatabase());
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String tableName = rs.getString("name");
-                    tables.add(tableName);
-                    log.info("Found table: {}", tableName);
+                    tables.add(rs.getString("name"));
                 }
             }
             
             if (tables.isEmpty()) {
                 log.warn("No tables found in database: {}", config.getDatabase());
             } else {
-                log.info("Found {} tables: {}", tables.size(), String.join(", ", tables));
+                log.debug("Found {} tables in {}", tables.size(), config.getDatabase());
             }
-            
-        } catch (SQLException e) {
-            log.error("SQL Error fetching tables - Code: {} Message: {}", e.getErrorCode(), e.getMessage(), e);
-            throw new RuntimeException("Failed to fetch tables: " + e.getMessage(), e);
         }
         return tables;
     }
 
     @Override
     public List<String> getTableColumns(ClickHouseConfig config, String tableName) {
-        List<String> columns = new ArrayList<>();
-        try (Connection conn = getConnection(config)) {
-            DatabaseMetaData metaData = conn.getMetaData();
-            ResultSet rs = metaData.getColumns(config.getDatabase(), null, tableName, "%");
-            while (rs.next()) {
-                columns.add(rs.getString("COLUMN_NAME"));
-            }
+        return getTableSchema(config, tableName).stream()
+                .map(ColumnSchema::getName)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ColumnSchema> getTableSchema(ClickHouseConfig config, String tableName) {
+        try {
+            return metadataCache.getColumns(config, tableName, () -> {
+                try (Connection conn = getConnection(config)) {
+                    return loadColumns(conn, config.getDatabase(), tableName);
+                }
+            });
         } catch (Exception e) {
             log.error("Error fetching columns: ", e);
             throw new RuntimeException("Failed to fetch columns", e);
         }
+    }
+
+    private List<ColumnSchema> loadColumns(Connection conn, String database, String table) throws SQLException {
+        // system.columns is a single cheap query; DatabaseMetaData.getColumns is much slower on this driver
+        List<ColumnSchema> columns = new ArrayList<>();
+        String query = "SELECT name, type FROM system.columns WHERE database = ? AND table = ? ORDER BY position";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, database);
+            stmt.setString(2, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(new ColumnSchema(rs.getString(1), rs.getString(2)));
+                }
+            }
+        }
         return columns;
     }
 
@@ -99,29 +262,39 @@ public class DataIngestionServiceImpl implements DataIngestionService {
         if (config.getSelectedColumns() == null || config.getSelectedColumns().length == 0) {
             throw new IllegalArgumentException("No columns selected for preview");
         }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Preview limit must be positive: " + limit);
+        }
         
+        requireColumns(config, tableName, config.getSelectedColumns());
         String columns = String.join(", ", config.getSelectedColumns());
         config.setSelectedTables(new String[]{tableName}); // Set the selected table
-        
-        String query = String.format("SELECT %s FROM %s LIMIT %d", columns, tableName, limit);
-        log.info("Executing preview query: {}", query);
+        requireQueryColumns(config);
+
+        String query = String.format("SELECT %s FROM %s", columns, source(config))
+                + QueryClauses.filters(config, null) + QueryClauses.orderAndLimit(config, limit);
+        log.debug("Executing preview query: {}", query);
 
         try (Connection conn = getConnection(config);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = rs.getObject(i);
-                    // Convert null values to empty string for consistent display
-                    row.put(columnName, value != null ? value.toString() : "");
+             Statement stmt = conn.createStatement()) {
+            long queryStart = System.nanoTime();
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+
+                while (rs.next()) {
+                    if (preview.isEmpty()) {
+                        metrics.recordFirstRow("preview", System.nanoTime() - queryStart);
+                    }
+                    Map<String, Object> row = new HashMap<>();
+                    for (int i = 1; i <= columnCount; i++) {
+                        String columnName = metaData.getColumnName(i);
+                        Object value = rs.getObject(i);
+                        // Convert null values to empty string for consistent display
+                        row.put(columnName, value != null ? value.toString() : "");
+                    }
+                    preview.add(row);
                 }
-                preview.add(row);
             }
         } catch (Exception e) {
             log.error("Error previewing data: ", e);
@@ -130,44 +303,268 @@ public class DataIngestionServiceImpl implements DataIngestionService {
         return preview;
     }
 
+    /**
+     * Rejects columns the table does not have before a query is built from them. A miss refreshes
+     * the cached schema once, in case the column was added since it was loaded.
+     */
+    private void requireColumns(ClickHouseConfig config, String tableName, String[] columns) {
+        Set<String> known = new HashSet<>(getTableColumns(config, tableName));
+        for (String column : columns) {
+            if (!known.contains(column)) {
+                metadataCache.invalidateTable(config, tableName);
+                known = new HashSet<>(getTableColumns(config, tableName));
+                if (!known.contains(column)) {
+                    throw new IllegalArgumentException("Unknown column " + column + " in table " + tableName);
+                }
+            }
+        }
+    }
+
     @Override
     public IngestionResult ingestFromClickHouseToFile(ClickHouseConfig config, FlatFileConfig fileConfig) {
-        String columns = String.join(", ", config.getSelectedColumns());
-        String query;
-        if (config.getSelectedTables().length > 1) {
-            query = buildJoinQuery(config);
-        } else {
-            query = String.format("SELECT %s FROM %s", columns, config.getSelectedTables()[0]);
+        return ingestFromClickHouseToFile(config, fileConfig, new JobContext());
+    }
+
+    /** Rejects filter and ordering columns the table does not have; joins are left to the server to check. */
+    private void requireQueryColumns(ClickHouseConfig config) {
+        Set<String> columns = QueryClauses.referencedColumns(config);
+        if (!columns.isEmpty() && config.getSelectedTables().length == 1) {
+            requireColumns(config, config.getSelectedTables()[0], columns.toArray(new String[0]));
+        }
+    }
+
+    @Override
+    public IngestionResult ingestFromClickHouseToFile(ClickHouseConfig config, FlatFileConfig fileConfig,
+                                                      JobContext context) {
+        try {
+            requireQueryColumns(config);
+        } catch (RuntimeException e) {
+            return IngestionResult.builder()
+                    .success(false)
+                    .message("Failed to export data")
+                    .errorDetails(e.getMessage())
+                    .build();
+        }
+        if (config.getWatermarkColumn() != null && !config.getWatermarkColumn().isEmpty()) {
+            return exportIncremental(config, fileConfig, context);
+        }
+        return export(config, fileConfig, null, fileConfig.isHasHeader(), false, context);
+    }
+
+    /** Exports the rows matching {@code filter}, or all rows if it is {@code null}. */
+    private IngestionResult export(ClickHouseConfig config, FlatFileConfig fileConfig, String filter, boolean header,
+                                   boolean append, JobContext context) {
+        int parallelism = resolveExportParallelism(config, fileConfig);
+        if (parallelism > 1) {
+            return exportInParallel(config, fileConfig, parallelism, filter, header, append, context);
+        }
+        return exportQuery(config, fileConfig, buildExportQuery(config, filter), Paths.get(fileConfig.getFileName()),
+                header, append, context, "Data successfully exported to file", "Failed to export data");
+    }
+
+    /**
+     * Exports the rows whose watermark column is above the mark saved by the previous run, up to the
+     * column's maximum when this run starts, then saves that maximum as the new mark. The mark only moves
+     * once the file is complete. An append that fails is cut back to the file's previous length, so a
+     * rerun exports the same rows again without leaving duplicates behind. Rows that arrive later with a
+     * value at or below the mark are not exported.
+     */
+    private IngestionResult exportIncremental(ClickHouseConfig config, FlatFileConfig fileConfig, JobContext context) {
+        long start = System.currentTimeMillis();
+        String column = config.getWatermarkColumn();
+        String columnSql;
+        String id;
+        try {
+            id = fileConfig.getWatermarkId() != null ? fileConfig.getWatermarkId() : watermarkId(config);
+        } catch (IllegalArgumentException e) {
+            return IngestionResult.builder()
+                    .success(false)
+                    .message("Failed to export data")
+                    .errorDetails(e.getMessage())
+                    .build();
         }
+        if (!runningWatermarks.add(id)) {
+            return IngestionResult.builder()
+                    .success(false)
+                    .message("Failed to export data")
+                    .errorDetails("Incremental export " + id + " is already running")
+                    .build();
+        }
+        Path target = Paths.get(fileConfig.getFileName());
+        boolean append = false;
+        long previousSize = -1;
+
+        try {
+            columnSql = QueryClauses.identifier(column);
+            if (config.getLimit() != null) {
+                throw new IllegalArgumentException("limit cannot be combined with a watermark, whose mark would skip the rows cut off");
+            }
+            if (fileConfig.isAppend() && !fileConfig.getFormat().isConcatenable()) {
+                throw new IllegalArgumentException(fileConfig.getFormat() + " files cannot be appended to");
+            }
+            ExportWatermark saved = watermarkStore.load(id);
+            if (saved != null && !column.equals(saved.getColumn())) {
+                throw new IllegalArgumentException("Watermark " + id + " tracks column " + saved.getColumn());
+            }
+            String lower = saved != null ? columnSql + " > " + literal(saved.getValue(), saved.getType()) : null;
+
+            // Fixing the upper bound up front keeps rows inserted during the export for the next run
+            long rows;
+            String upper;
+            String type;
+            try (Connection conn = getConnection(config);
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(String.format("SELECT count(), toString(max(%s)), toTypeName(max(%s)) FROM %s%s",
+                         columnSql, columnSql, source(config), QueryClauses.filters(config, lower)))) {
+                rs.next();
+                rows = rs.getLong(1);
+                upper = rs.getString(2);
+                type = rs.getString(3);
+            }
+            if (rows == 0 || upper == null) {
+                // A null maximum means a Nullable column with nothing but nulls, which no mark can move past
+                log.info("Incremental export {}: no rows above {}", id, saved != null ? saved.getValue() : "the start");
+                return IngestionResult.builder()
+                        .success(true)
+                        .durationMillis(System.currentTimeMillis() - start)
+                        .message("No new rows above watermark " + (saved != null ? saved.getValue() : "") + " (" + id + ")")
+                        .build();
+            }
+            context.setTotalRows(rows);
+
+            String filter = (lower != null ? lower + " AND " : "") + columnSql + " <= " + literal(upper, type);
+            append = fileConfig.isAppend() && Files.exists(target);
+            previousSize = append ? Files.size(target) : -1;
+            boolean header = fileConfig.isHasHeader() && previousSize <= 0;
+            IngestionResult result = export(config, fileConfig, filter, header, append, context);
+            if (!result.isSuccess()) {
+                restoreAppend(target, append, previousSize);
+                return result;
+            }
+
+            ExportWatermark watermark = saved;
+            if (watermark == null) {
+                watermark = new ExportWatermark();
+                watermark.setId(id);
+                watermark.setSource(String.join(", ", config.getSelectedTables()));
+                watermark.setColumn(column);
+                watermark.setCreatedAt(System.currentTimeMillis());
+            }
+            watermark.setValue(upper);
+            watermark.setType(type);
+            watermark.setFileName(target.getFileName().toString());
+            watermark.setLastRows(result.getRecordsProcessed());
+            watermark.setTotalRows(watermark.getTotalRows() + result.getRecordsProcessed());
+            watermark.setRuns(watermark.getRuns() + 1);
+            watermarkStore.save(watermark);
 
+            long duration = System.currentTimeMillis() - start;
+            log.info("Incremental export {} wrote {} rows up to {} = {} in {} ms", id, result.getRecordsProcessed(),
+                    column, upper, duration);
+            return IngestionResult.builder()
+                    .success(true)
+                    .recordsProcessed(result.getRecordsProcessed())
+                    .durationMillis(duration)
+                    .message(String.format("Exported rows with %s above %s up to %s (watermark %s)", column,
+                            saved != null ? saved.getValue() : "the start", upper, id))
+                    .parts(result.getParts())
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error during incremental export {}: ", id, e);
+            restoreAppend(target, append, previousSize);
+            return IngestionResult.builder()
+                    .success(false)
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message("Failed to export data")
+                    .errorDetails(e.getMessage())
+                    .build();
+        } finally {
+            runningWatermarks.remove(id);
+        }
+    }
+
+    /**
+     * Stable id for an incremental export configured without one, so that repeating the request continues it.
+     * It follows the query alone, including its join, sample and filters: exports written under a new file name
+     * each run share the mark, while exports of different rows of the same table keep their own.
+     */
+    static String watermarkId(ClickHouseConfig config) {
+        String definition = String.join("|", config.getHost(), String.valueOf(config.getPort()), config.getDatabase(),
+                source(config), QueryClauses.filters(config, null), String.join(",", config.getSelectedColumns()),
+                config.getWatermarkColumn());
+        return "export-" + UUID.nameUUIDFromBytes(definition.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String literal(String value, String type) {
+        return "CAST('" + value.replace("\\", "\\\\").replace("'", "\\'") + "' AS " + type + ")";
+    }
+
+    private void restoreAppend(Path target, boolean append, long previousSize) {
+        if (!append) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            channel.truncate(previousSize);
+        } catch (IOException e) {
+            log.warn("Failed to cut {} back to {} bytes: {}", target, previousSize, e.getMessage());
+        }
+    }
+
+    // cancelHook is only there to be closed: it unregisters the cancel action when the statement is done
+    @SuppressWarnings("try")
+    private IngestionResult exportQuery(ClickHouseConfig config, FlatFileConfig fileConfig, String query, Path target,
+                                        boolean header, boolean append, JobContext context,
+                                        String successMessage, String failureMessage) {
+        long start = System.currentTimeMillis();
         long recordCount = 0;
-        try (Connection conn = getConnection(config); 
-             Statement stmt = conn.createStatement(); 
-             ResultSet rs = stmt.executeQuery(query); 
-             BufferedWriter writer = new BufferedWriter(new FileWriter(fileConfig.getFileName()))) {
-
-            // Write header
-            if (fileConfig.isHasHeader()) {
-                writer.write(String.join(fileConfig.getDelimiter(), config.getSelectedColumns()));
-                writer.newLine();
-            }
-
-            // Write data
-            while (rs.next()) {
-                List<String> values = new ArrayList<>();
-                for (String column : config.getSelectedColumns()) {
-                    Object value = rs.getObject(column);
-                    values.add(value != null ? value.toString() : "");
+        try {
+            if (fileConfig.getFormat().isServerSide()) {
+                // ClickHouse formats the rows; the response bytes go to the file as they are
+                try (Connection conn = getConnection(config);
+                     OutputStream out = CompressionStreams.compressAsync(
+                             openExport(target, append), fileConfig.getCompression())) {
+                    recordCount = FormattedExporter.export(conn, query, fileConfig.getFormat(), header,
+                            fileConfig.getDelimiter(), out, context, metrics);
+                }
+            } else {
+                Counter exportedRows = metrics.rows(IngestionMetrics.EXPORT);
+                try (Connection conn = getConnection(config);
+                     Statement stmt = conn.createStatement();
+                     JobContext.Registration cancelHook = context.onCancel(() -> cancelQuietly(stmt))) {
+                    long queryStart = System.nanoTime();
+                    try (ResultSet rs = stmt.executeQuery(query);
+                         DelimitedRowWriter writer = openRowWriter(target, append, rs, config, fileConfig)) {
+
+                        // Write header
+                        if (header) {
+                            writer.writeHeader();
+                        }
+
+                        // Write data
+                        while (rs.next()) {
+                            if (recordCount == 0) {
+                                metrics.recordFirstRow("export", System.nanoTime() - queryStart);
+                            }
+                            writer.writeRow();
+                            recordCount++;
+                            if (recordCount % PROGRESS_INTERVAL_ROWS == 0) {
+                                context.addRows(PROGRESS_INTERVAL_ROWS);
+                                exportedRows.increment(PROGRESS_INTERVAL_ROWS);
+                                context.checkCancelled();
+                            }
+                        }
+                        context.addRows(recordCount % PROGRESS_INTERVAL_ROWS);
+                        exportedRows.increment(recordCount % PROGRESS_INTERVAL_ROWS);
+                    }
                 }
-                writer.write(String.join(fileConfig.getDelimiter(), values));
-                writer.newLine();
-                recordCount++;
             }
 
             return IngestionResult.builder()
                     .success(true)
                     .recordsProcessed(recordCount)
-                    .message("Data successfully exported to file")
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message(successMessage)
                     .build();
 
         } catch (Exception e) {
@@ -175,83 +572,1175 @@ public class DataIngestionServiceImpl implements DataIngestionService {
             return IngestionResult.builder()
                     .success(false)
                     .recordsProcessed(recordCount)
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message(failureMessage)
+                    .errorDetails(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Exports each range of the table over its own connection into its own part file, then optionally
+     * concatenates the parts into the requested file. A manifest describing the parts is written either way.
+     */
+    private IngestionResult exportInParallel(ClickHouseConfig config, FlatFileConfig fileConfig, int parallelism,
+                                             String filter, boolean header, boolean append, JobContext context) {
+        long start = System.currentTimeMillis();
+        String table = config.getSelectedTables()[0];
+        Path target = Paths.get(fileConfig.getFileName());
+        List<Path> partFiles = new ArrayList<>();
+
+        try {
+            List<ExportRange> ranges;
+            try (Connection conn = getConnection(config)) {
+                ranges = ExportPlanner.plan(conn, table, config.getSelectedColumns(), parallelism);
+            }
+            for (ExportRange range : ranges) {
+                partFiles.add(partFile(target, range.getIndex()));
+            }
+            log.info("Exporting {} in {} ranges", table, ranges.size());
+
+            // Parquet files cannot be concatenated, so such exports always stay in parts; appends always merge
+            ExportFormat format = fileConfig.getFormat();
+            boolean merge = (fileConfig.isMergeParts() || append) && format.isConcatenable();
+            String query = buildExportQuery(config, filter);
+            List<IngestionResult> parts = runInParallel(ranges, range -> exportQuery(config, fileConfig,
+                    buildExportQuery(config, and(filter, range.getFilter())), partFiles.get(range.getIndex()),
+                    partHeader(header, format, merge, range), false, context, range.toString(), range.toString()));
+
+            long recordCount = 0;
+            IngestionResult failed = null;
+            for (IngestionResult part : parts) {
+                recordCount += part.getRecordsProcessed();
+                if (!part.isSuccess() && failed == null) {
+                    failed = part;
+                }
+            }
+            if (failed != null) {
+                partFiles.forEach(this::deleteQuietly);
+                return IngestionResult.builder()
+                        .success(false)
+                        .recordsProcessed(recordCount)
+                        .durationMillis(System.currentTimeMillis() - start)
+                        .message("Failed to export data")
+                        .errorDetails(failed.getMessage() + ": " + failed.getErrorDetails())
+                        .parts(parts)
+                        .build();
+            }
+
+            // A row matched by no range, or one that arrived since the ranges were planned, would otherwise be
+            // missing from a successful export
+            long expected = countRows(config, filter);
+            if (recordCount != expected) {
+                throw new IllegalStateException(String.format("The %d part files hold %d rows but the query "
+                        + "matches %d; the table may have changed during the export", ranges.size(), recordCount, expected));
+            }
+
+            ExportManifest manifest = manifest(config, fileConfig, query, ranges, partFiles, parts, recordCount);
+            if (merge) {
+                mergeParts(partFiles, target, config, fileConfig, header, append);
+                manifest.setMergedFile(target.getFileName().toString());
+                partFiles.forEach(this::deleteQuietly);
+            }
+            Path manifestFile = target.resolveSibling(baseName(target) + ".manifest.json");
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(manifestFile.toFile(), manifest);
+
+            long duration = System.currentTimeMillis() - start;
+            log.info("Exported {} rows from {} in {} ranges in {} ms", recordCount, table, ranges.size(), duration);
+            return IngestionResult.builder()
+                    .success(true)
+                    .recordsProcessed(recordCount)
+                    .durationMillis(duration)
+                    .message(merge
+                            ? "Data successfully exported to file"
+                            : "Data successfully exported to " + ranges.size() + " part files, see " + manifestFile.getFileName())
+                    .parts(parts)
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error during parallel export: ", e);
+            partFiles.forEach(this::deleteQuietly);
+            return IngestionResult.builder()
+                    .success(false)
+                    .durationMillis(System.currentTimeMillis() - start)
                     .message("Failed to export data")
                     .errorDetails(e.getMessage())
                     .build();
         }
     }
 
-    @Override
-    public IngestionResult ingestFromFileToClickHouse(FlatFileConfig fileConfig, ClickHouseConfig config) {
-        long recordCount = 0;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileConfig.getFileName())); 
-             Connection conn = getConnection(config)) {
+    private ExportManifest manifest(ClickHouseConfig config, FlatFileConfig fileConfig, String query,
+                                    List<ExportRange> ranges, List<Path> partFiles, List<IngestionResult> results,
+                                    long totalRows) throws IOException {
+        List<ExportManifest.Part> parts = new ArrayList<>();
+        for (ExportRange range : ranges) {
+            ExportManifest.Part part = new ExportManifest.Part();
+            Path file = partFiles.get(range.getIndex());
+            part.setIndex(range.getIndex());
+            part.setFile(file.getFileName().toString());
+            part.setFilter(range.getFilter());
+            part.setRows(results.get(range.getIndex()).getRecordsProcessed());
+            part.setBytes(Files.size(file));
+            part.setDurationMillis(results.get(range.getIndex()).getDurationMillis());
+            parts.add(part);
+        }
+        ExportManifest manifest = new ExportManifest();
+        manifest.setTable(config.getSelectedTables()[0]);
+        manifest.setQuery(query);
+        manifest.setCompression(fileConfig.getCompression().name());
+        manifest.setFormat(fileConfig.getFormat().name());
+        manifest.setHasHeader(fileConfig.isHasHeader());
+        manifest.setCreatedAt(System.currentTimeMillis());
+        manifest.setTotalRows(totalRows);
+        manifest.setParts(parts);
+        return manifest;
+    }
 
-            // Skip header if present
-            if (fileConfig.isHasHeader()) {
-                reader.readLine();
+    private void mergeParts(List<Path> partFiles, Path target, ClickHouseConfig config, FlatFileConfig fileConfig,
+                            boolean header, boolean append) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (header && !fileConfig.getFormat().isServerSide()) {
+                // gzip, zstd and LZ4 frames may be concatenated, so the header can be a frame of its own
+                ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+                try (Writer writer = new OutputStreamWriter(
+                        CompressionStreams.compress(headerBytes, fileConfig.getCompression()), StandardCharsets.UTF_8)) {
+                    writer.write(headerLine(config, fileConfig));
+                }
+                out.write(ByteBuffer.wrap(headerBytes.toByteArray()));
             }
+            for (Path part : partFiles) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    for (long position = 0; position < size; ) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+    }
 
-            // Create table if not exists
-            String createTableSql = buildCreateTableSql(fileConfig, config);
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(createTableSql);
+    /**
+     * When merging, the header is written once at the top of the merged file: separately for delimited
+     * output, and by the first range for server formats that carry a names row.
+     */
+    private static boolean partHeader(boolean header, ExportFormat format, boolean merge, ExportRange range) {
+        if (!header) {
+            return false;
+        }
+        if (!merge) {
+            return true;
+        }
+        return format.hasHeaderRow() && range.getIndex() == 0;
+    }
+
+    /**
+     * Uncompressed files are written through a direct buffer straight to the file channel; compressed ones
+     * go through the compression stream.
+     */
+    private DelimitedRowWriter openRowWriter(Path target, boolean append, ResultSet rs, ClickHouseConfig config,
+                                             FlatFileConfig fileConfig) throws IOException, SQLException {
+        Counter exportedBytes = metrics.bytes(IngestionMetrics.EXPORT);
+        if (fileConfig.getCompression() == null || fileConfig.getCompression() == FileCompression.NONE) {
+            FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                return DelimitedRowWriter.toChannel(channel, rs, config.getSelectedColumns(),
+                        fileConfig.getDelimiter(), STREAM_BUFFER_SIZE, exportedBytes);
+            } catch (SQLException | RuntimeException e) {
+                closeQuietly(channel);
+                throw e;
             }
+        }
+        OutputStream out = CompressionStreams.compressAsync(openExport(target, append), fileConfig.getCompression());
+        try {
+            return DelimitedRowWriter.toStream(out, rs, config.getSelectedColumns(), fileConfig.getDelimiter(),
+                    STREAM_BUFFER_SIZE, exportedBytes);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(out);
+            throw e;
+        }
+    }
+
+    private static OutputStream openExport(Path target, boolean append) throws IOException {
+        return append
+                ? Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                : Files.newOutputStream(target);
+    }
+
+    private static Path partFile(Path target, int index) {
+        String name = target.getFileName().toString();
+        String base = baseName(target);
+        return target.resolveSibling(String.format("%s.part-%05d%s", base, index, name.substring(base.length())));
+    }
+
+    private static String baseName(Path file) {
+        // Everything before the first extension, so that export.csv.gz yields export
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.', 1);
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private String headerLine(ClickHouseConfig config, FlatFileConfig fileConfig) {
+        return String.join(fileConfig.getDelimiter(), config.getSelectedColumns()) + System.lineSeparator();
+    }
 
-            // Prepare insert statement
-            String insertSql = buildInsertSql(config);
-            try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] values = line.split(fileConfig.getDelimiter(), -1);
-                    for (int i = 0; i < values.length; i++) {
-                        pstmt.setString(i + 1, values[i]);
+    private int resolveExportParallelism(ClickHouseConfig config, FlatFileConfig fileConfig) {
+        if (fileConfig.getParallelism() <= 1) {
+            return 1;
+        }
+        if (config.getSelectedTables().length > 1) {
+            log.info("Parallel export is not supported for joins, exporting over a single connection");
+            return 1;
+        }
+        if (QueryClauses.isOrdered(config)) {
+            log.info("Ordered or limited exports need a single query, exporting over a single connection");
+            return 1;
+        }
+        return Math.min(fileConfig.getParallelism(), Math.min(workerThreads, connectionPool.getMaxSize()));
+    }
+
+    @Override
+    public long streamFromClickHouse(ClickHouseConfig config, FlatFileConfig fileConfig, OutputStream out) throws IOException {
+        requireQueryColumns(config);
+        String query = buildExportQuery(config, null);
+
+        long recordCount = 0;
+        try (Connection conn = getConnection(config);
+             Statement stmt = conn.createStatement()) {
+
+            // Small writer buffer: memory stays bounded and a slow client blocks the fetch loop
+            // on socket writes instead of letting rows pile up on the heap. Closing the writer
+            // finishes the compressed stream but leaves the response open for the container.
+            OutputStream target = CompressionStreams.compressAsync(CompressionStreams.nonClosing(out),
+                    fileConfig.getCompression());
+            if (fileConfig.getFormat().isServerSide()) {
+                try {
+                    recordCount = FormattedExporter.export(conn, query, fileConfig.getFormat(),
+                            fileConfig.isHasHeader(), fileConfig.getDelimiter(), target, new JobContext(), metrics);
+                    target.close();
+                } catch (IOException e) {
+                    // Closing the response aborts the server-side query along with it
+                    log.warn("Client disconnected during formatted export");
+                    throw e;
+                } finally {
+                    closeQuietly(target);
+                }
+                log.info("Streamed {} rows to client as {}", recordCount, fileConfig.getFormat());
+                return recordCount;
+            }
+            Counter exportedRows = metrics.rows(IngestionMetrics.EXPORT);
+            long queryStart = System.nanoTime();
+            DelimitedRowWriter writer = null;
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                writer = DelimitedRowWriter.toStream(target, rs, config.getSelectedColumns(), fileConfig.getDelimiter(),
+                        STREAM_BUFFER_SIZE, metrics.bytes(IngestionMetrics.EXPORT));
+                if (fileConfig.isHasHeader()) {
+                    writer.writeHeader();
+                }
+
+                long lastFlush = System.nanoTime();
+                while (rs.next()) {
+                    if (recordCount == 0) {
+                        metrics.recordFirstRow("stream", System.nanoTime() - queryStart);
                     }
-                    pstmt.addBatch();
+                    writer.writeRow();
                     recordCount++;
 
-                    if (recordCount % 1000 == 0) {
-                        pstmt.executeBatch();
+                    // Push rows out promptly even when the query produces them slowly
+                    if ((recordCount & 1023) == 0) {
+                        exportedRows.increment(1024);
+                        if (System.nanoTime() - lastFlush > STREAM_FLUSH_INTERVAL_NANOS) {
+                            writer.flush();
+                            lastFlush = System.nanoTime();
+                        }
                     }
                 }
-                pstmt.executeBatch();
+                exportedRows.increment(recordCount & 1023);
+                writer.close();
+            } catch (IOException e) {
+                // Client went away: stop the server-side query instead of draining it
+                log.warn("Client disconnected after {} rows, cancelling export query", recordCount);
+                cancelQuietly(stmt);
+                throw e;
+            } finally {
+                // No-op after a clean close; otherwise stops the compression thread
+                closeQuietly(writer != null ? writer : target);
             }
+            log.info("Streamed {} rows to client", recordCount);
+            return recordCount;
+        } catch (SQLException e) {
+            log.error("Error during streaming export: ", e);
+            throw new RuntimeException("Failed to export data: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public IngestionResult ingestFromFileToClickHouse(FlatFileConfig fileConfig, ClickHouseConfig config) {
+        return ingestFromFileToClickHouse(fileConfig, config, new JobContext());
+    }
+
+    @Override
+    public IngestionResult ingestFromFileToClickHouse(FlatFileConfig fileConfig, ClickHouseConfig config,
+                                                      JobContext context) {
+        long start = System.currentTimeMillis();
+        InsertMode mode = fileConfig.getInsertMode() != null ? fileConfig.getInsertMode() : InsertMode.ROW_BINARY;
+        Path file = Paths.get(fileConfig.getFileName());
+        Path decompressed = null;
 
+        try {
+            // Reject unsupported delimiters before touching the server
+            DelimitedTokenizer.delimiterByte(fileConfig.getDelimiter());
+
+            ImportCheckpoint saved = fileConfig.getCheckpointId() != null
+                    ? checkpointStore.load(fileConfig.getCheckpointId()) : null;
+            if (saved != null && (Files.size(file) != saved.getFileSize()
+                    || Files.getLastModifiedTime(file).toMillis() != saved.getFileModified())) {
+                throw new IllegalStateException("File changed since checkpoint " + saved.getId() + " was taken");
+            }
+            long fileSize = Files.size(file);
+            long fileModified = Files.getLastModifiedTime(file).toMillis();
+
+            FileCompression compression = CompressionStreams.detect(file);
+            if (compression != FileCompression.NONE) {
+                decompressed = decompress(file, compression);
+                file = decompressed;
+            }
+
+            // Skip header if present
+            long dataStart = fileConfig.isHasHeader() ? headerLength(file, fileConfig) : 0;
+            context.setTotalBytes(Files.size(file) - dataStart);
+
+            if (coalesceEnabled && fileConfig.getCheckpointId() == null && mode == InsertMode.ROW_BINARY
+                    && Files.size(file) - dataStart <= coalesceMaxFileBytes) {
+                IngestionResult coalesced = importCoalesced(file, dataStart, fileConfig, config, context, start);
+                if (coalesced != null) {
+                    return coalesced;
+                }
+            }
+
+            // Saved before touching the server, so even an import that fails at table creation can be resumed
+            ImportCheckpoint checkpoint = saved;
+            if (checkpoint == null) {
+                int parallelism = resolveParallelism(fileConfig);
+                List<FileChunk> chunks = FileChunker.split(file, dataStart, parallelism, minChunkBytes,
+                        fileConfig.isQuotedNewlines(), DelimitedTokenizer.delimiterByte(fileConfig.getDelimiter()),
+                        DelimitedTokenizer.DEFAULT_QUOTE);
+                checkpoint = newCheckpoint(fileConfig, config, chunks, fileSize, fileModified);
+            } else {
+                log.info("Resuming import {} at {} rows", checkpoint.getId(), checkpoint.getCommittedRows());
+                context.addRows(checkpoint.getCommittedRows());
+                context.addBytes(checkpoint.getCommittedBytes());
+            }
+            boolean persist = fileConfig.getCheckpointId() != null;
+            if (persist) {
+                checkpointStore.save(checkpoint);
+            }
+
+            TableDefinition table = resolveTable(file, dataStart, fileConfig, config);
+            List<ColumnSchema> columns = prepareTable(table, config);
+            List<ImportCheckpoint.ChunkState> chunks = checkpoint.getChunks();
+            if (saved != null && !table.deduplicates
+                    && chunks.stream().anyMatch(chunk -> chunk.getPendingBytes() > 0)) {
+                throw new IllegalStateException("Checkpoint " + saved.getId() + " stopped during a batch the server "
+                        + "may have applied, and " + config.getSelectedTables()[0] + " does not deduplicate inserts, "
+                        + "so resuming could insert it twice. Set non_replicated_deduplication_window on the table "
+                        + "to resume.");
+            }
+            int attempts = table.deduplicates ? retryMaxAttempts : 1;
+            BatchSizer sizer = batchSizer(fileConfig, checkpoint.getBatchBytes());
+            RowInserter inserter = inserterFor(mode, columns, sizer);
+
+            ImportCheckpoint progress = checkpoint;
+            Path source = file;
+            List<IngestionResult> parts;
+            if (chunks.size() == 1) {
+                parts = Collections.singletonList(importChunk(source, chunks.get(0), progress, persist, attempts,
+                        inserter, sizer, columns, fileConfig, config, context));
+            } else {
+                log.info("Importing {} in {} chunks using {}", file.getFileName(), chunks.size(), mode);
+                parts = runInParallel(chunks, chunk -> importChunk(source, chunk, progress, persist, attempts,
+                        inserter, sizer, columns, fileConfig, config, context));
+            }
+
+            long recordCount = 0;
+            IngestionResult failed = null;
+            for (IngestionResult part : parts) {
+                recordCount += part.getRecordsProcessed();
+                if (!part.isSuccess() && failed == null) {
+                    failed = part;
+                }
+            }
+            long duration = System.currentTimeMillis() - start;
+
+            if (failed != null) {
+                return IngestionResult.builder()
+                        .success(false)
+                        .recordsProcessed(recordCount)
+                        .durationMillis(duration)
+                        .message("Failed to import data")
+                        .errorDetails(failed.getMessage() + ": " + failed.getErrorDetails())
+                        .parts(chunks.size() > 1 ? parts : null)
+                        .build();
+            }
+
+            if (persist) {
+                checkpointStore.delete(checkpoint.getId());
+            }
+            log.info("Imported {} rows in {} ms using {}", recordCount, duration, mode);
             return IngestionResult.builder()
                     .success(true)
                     .recordsProcessed(recordCount)
+                    .durationMillis(duration)
                     .message("Data successfully imported to ClickHouse")
+                    .parts(chunks.size() > 1 ? parts : null)
                     .build();
 
         } catch (Exception e) {
             log.error("Error during ingestion to ClickHouse: ", e);
+            return IngestionResult.builder()
+                    .success(false)
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message("Failed to import data")
+                    .errorDetails(e.getMessage())
+                    .build();
+        } finally {
+            if (decompressed != null) {
+                deleteQuietly(decompressed);
+            }
+        }
+    }
+
+    /**
+     * Imports a small file through the shared insert buffer, so concurrent uploads into the same table
+     * become one insert. Returns {@code null} if the table has columns only the JDBC path can write.
+     */
+    private IngestionResult importCoalesced(Path file, long dataStart, FlatFileConfig fileConfig,
+                                            ClickHouseConfig config, JobContext context, long start) throws Exception {
+        TableDefinition table = resolveTable(file, dataStart, fileConfig, config);
+        InsertCoalescer.Target target = insertCoalescer.target(config, table.schema, () -> prepareTable(table, config));
+        if (!RowBinaryInserter.supports(target.getColumns())) {
+            return null;
+        }
+
+        CompletableFuture<Long> flushed;
+        try (DelimitedTokenizer tokenizer = openChunk(file, new FileChunk(0, dataStart, Files.size(file)), fileConfig)) {
+            flushed = insertCoalescer.submit(target, new MeteredRowSource(new DelimitedRowSource(tokenizer), metrics));
+        }
+        long recordCount;
+        try {
+            recordCount = flushed.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        context.addRows(recordCount);
+        context.addBytes(Files.size(file) - dataStart);
+
+        long duration = System.currentTimeMillis() - start;
+        log.info("Imported {} rows in {} ms through the shared insert buffer", recordCount, duration);
+        return IngestionResult.builder()
+                .success(true)
+                .recordsProcessed(recordCount)
+                .durationMillis(duration)
+                .message("Data successfully imported to ClickHouse")
+                .build();
+    }
+
+    @Override
+    public IngestionResult ingestFromStreamToClickHouse(InputStream in, FlatFileConfig fileConfig, ClickHouseConfig config) {
+        long start = System.currentTimeMillis();
+        InsertMode mode = fileConfig.getInsertMode() != null ? fileConfig.getInsertMode() : InsertMode.ROW_BINARY;
+        long recordCount = 0;
+
+        try {
+            byte delimiter = DelimitedTokenizer.delimiterByte(fileConfig.getDelimiter());
+            BufferedInputStream source = new BufferedInputStream(CompressionStreams.autoDecompress(in), READ_BUFFER_SIZE);
+
+            // The stream cannot be read twice, so the inference sample is read ahead within a bounded mark and replayed
+            List<ColumnProfile> profiles = null;
+            if (config.isInferTypes()) {
+                source.mark(streamSampleBytes);
+                profiles = SchemaInferrer.profile(sampleStream(source, delimiter, fileConfig.isHasHeader()),
+                        config.getSelectedColumns().length);
+                source.reset();
+            }
+            List<ColumnSchema> columns = prepareTable(resolveTable(profiles, config), config);
+            BatchSizer sizer = batchSizer(fileConfig, batchBytes);
+            RowInserter inserter = inserterFor(mode, columns, sizer);
+
+            try (DelimitedTokenizer tokenizer = new DelimitedTokenizer(source, delimiter,
+                    DelimitedTokenizer.DEFAULT_QUOTE, READ_BUFFER_SIZE);
+                 Connection conn = getConnection(config)) {
+                if (fileConfig.isHasHeader()) {
+                    tokenizer.nextRecord();
+                }
+                // Each batch is its own INSERT, cut by size or by time so a slow upload still commits regularly.
+                // The rows cannot be read again, so batches carry no token and are not retried; the count
+                // covers committed batches only, which tells the caller where the upload stopped.
+                RowSource rows = new MeteredRowSource(new DelimitedRowSource(tokenizer), metrics);
+                while (true) {
+                    BoundedRowSource batch = new BoundedRowSource(rows,
+                            rows.position() + sizer.getTargetBytes(), sizer.getMaxIntervalNanos());
+                    long batchStart = rows.position();
+                    long insertStart = System.currentTimeMillis();
+                    recordCount += inserter.insert(conn, config.getSelectedTables()[0], columns, batch, null);
+                    long latency = System.currentTimeMillis() - insertStart;
+                    sizer.onSuccess(rows.position() - batchStart, latency);
+                    metrics.recordBatch(inserter.mode(), latency);
+                    if (batch.isExhausted()) {
+                        break;
+                    }
+                }
+            }
+
+            long duration = System.currentTimeMillis() - start;
+            log.info("Imported {} rows from upload stream in {} ms using {}", recordCount, duration, mode);
+            return IngestionResult.builder()
+                    .success(true)
+                    .recordsProcessed(recordCount)
+                    .durationMillis(duration)
+                    .message("Data successfully imported to ClickHouse")
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error during streaming ingestion to ClickHouse: ", e);
             return IngestionResult.builder()
                     .success(false)
                     .recordsProcessed(recordCount)
+                    .durationMillis(System.currentTimeMillis() - start)
                     .message("Failed to import data")
                     .errorDetails(e.getMessage())
                     .build();
         }
     }
 
-    private long getTotalRecordCount(ClickHouseConfig config) {
-        String countQuery;
-        if (config.getSelectedTables().length > 1) {
-            countQuery = "SELECT COUNT(*) FROM " + config.getSelectedTables()[0] + " " +
-                    String.join(" ", Arrays.stream(config.getSelectedTables())
-                            .skip(1)
-                            .map(table -> "JOIN " + table + " ON " + config.getJoinCondition())
-                            .collect(Collectors.toList()));
-        } else {
-            countQuery = "SELECT COUNT(*) FROM " + config.getSelectedTables()[0];
+    @Override
+    public IngestionResult ingestFilesToClickHouse(Path directory, List<Path> files, FlatFileConfig fileConfig,
+                                                   ClickHouseConfig config, JobContext context) {
+        long start = System.currentTimeMillis();
+        InsertMode mode = fileConfig.getInsertMode() != null ? fileConfig.getInsertMode() : InsertMode.ROW_BINARY;
+        List<ImportFile> imports = new ArrayList<>(files.size());
+        for (Path file : files) {
+            imports.add(new ImportFile(imports.size(), file.toString(), directory.resolve(file)));
+        }
+        Path tempDir = null;
+
+        try {
+            if (imports.isEmpty()) {
+                throw new IllegalArgumentException("No files to import");
+            }
+            DelimitedTokenizer.delimiterByte(fileConfig.getDelimiter());
+            long totalBytes = 0;
+            // The first non-empty file stands in for all of them when inferring types
+            ImportFile first = null;
+            for (ImportFile file : imports) {
+                long size = Files.size(file.path);
+                totalBytes += size;
+                if (first == null && size > 0) {
+                    first = file;
+                }
+            }
+            context.setTotalBytes(totalBytes);
+            context.setTotalFiles(imports.size());
+            // Compressed files are inflated here rather than next to the originals, which may be a watched directory
+            tempDir = Files.createTempDirectory("clickhouse-ingestion");
+
+            if (first == null) {
+                first = imports.get(0);
+            }
+            prepareFile(first, fileConfig, tempDir);
+            TableDefinition table = resolveTable(first.readable, first.dataStart, fileConfig, config);
+            List<ColumnSchema> columns = prepareTable(table, config);
+            int attempts = table.deduplicates ? retryMaxAttempts : 1;
+            BatchSizer sizer = batchSizer(fileConfig, batchBytes);
+            RowInserter inserter = inserterFor(mode, columns, sizer);
+
+            Queue<ImportFile> queue = new ConcurrentLinkedQueue<>(imports);
+            int streams = Math.max(1, Math.min(resolveFileStreams(fileConfig), imports.size()));
+            List<String> labels = new ArrayList<>();
+            for (int i = 0; i < streams; i++) {
+                labels.add("stream " + i);
+            }
+            String runId = UUID.randomUUID().toString();
+            Path inflateDir = tempDir;
+            log.info("Importing {} files through {} insert streams using {}", imports.size(), streams, mode);
+            List<IngestionResult> results = runInParallel(labels, label -> importFileStream(label, runId, queue,
+                    imports, inflateDir, attempts, inserter, sizer, columns, fileConfig, config, context));
+
+            long recordCount = 0;
+            int failedFiles = 0;
+            List<IngestionResult> parts = new ArrayList<>(imports.size());
+            for (ImportFile file : imports) {
+                boolean imported = file.done && file.error == null;
+                recordCount += file.rows;
+                if (!imported) {
+                    failedFiles++;
+                }
+                parts.add(IngestionResult.builder()
+                        .success(imported)
+                        .recordsProcessed(file.rows)
+                        .message(file.name)
+                        .errorDetails(imported ? null : file.error != null ? file.error : "Not imported")
+                        .build());
+            }
+            long duration = System.currentTimeMillis() - start;
+
+            if (failedFiles > 0) {
+                IngestionResult failed = results.stream().filter(r -> !r.isSuccess()).findFirst().orElse(null);
+                return IngestionResult.builder()
+                        .success(false)
+                        .recordsProcessed(recordCount)
+                        .durationMillis(duration)
+                        .message(String.format("Failed to import %d of %d files", failedFiles, imports.size()))
+                        .errorDetails(failed != null ? failed.getMessage() + ": " + failed.getErrorDetails() : null)
+                        .parts(parts)
+                        .build();
+            }
+
+            log.info("Imported {} rows from {} files in {} ms using {}", recordCount, imports.size(), duration, mode);
+            return IngestionResult.builder()
+                    .success(true)
+                    .recordsProcessed(recordCount)
+                    .durationMillis(duration)
+                    .message(String.format("Imported %d files to ClickHouse", imports.size()))
+                    .parts(parts)
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error during multi-file ingestion to ClickHouse: ", e);
+            long recordCount = 0;
+            for (ImportFile file : imports) {
+                recordCount += file.rows;
+            }
+            return IngestionResult.builder()
+                    .success(false)
+                    .recordsProcessed(recordCount)
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message("Failed to import data")
+                    .errorDetails(e.getMessage())
+                    .build();
+        } finally {
+            if (tempDir != null) {
+                for (ImportFile file : imports) {
+                    if (file.readable != null && !file.readable.equals(file.path)) {
+                        deleteQuietly(file.readable);
+                    }
+                }
+                deleteQuietly(tempDir);
+            }
+        }
+    }
+
+    /**
+     * One insert stream of a multi-file import. It takes files off the shared queue and sends their rows in
+     * batches of the adaptive size, so small files share an insert and large ones are split. A failed batch
+     * is resent from the same segments under the same token.
+     */
+    private IngestionResult importFileStream(String label, String runId, Queue<ImportFile> queue,
+                                             List<ImportFile> imports, Path tempDir, int maxAttempts,
+                                             RowInserter inserter,
+                                             BatchSizer sizer, List<ColumnSchema> columns, FlatFileConfig fileConfig,
+                                             ClickHouseConfig config, JobContext context) {
+        long start = System.currentTimeMillis();
+        long recordCount = 0;
+        // Segments this stream owns: the rest of a file cut by the batch limit, or a failed batch's segments
+        Deque<MultiFileRowSource.Segment> pending = new ArrayDeque<>();
+        MultiFileRowSource.Supplier supplier = () -> {
+            MultiFileRowSource.Segment next = pending.poll();
+            if (next != null) {
+                return next;
+            }
+            ImportFile file = queue.poll();
+            if (file == null) {
+                return null;
+            }
+            try {
+                prepareFile(file, fileConfig, tempDir);
+            } catch (IOException | RuntimeException e) {
+                file.error = e.getMessage();
+                throw e;
+            }
+            return new MultiFileRowSource.Segment(file.index, file.readable, file.dataStart, file.dataEnd);
+        };
+        MultiFileRowSource.Opener opener = segment -> openChunk(segment.getPath(),
+                new FileChunk(segment.getFile(), segment.getStart(), segment.getEnd()), fileConfig);
+
+        try {
+            for (int batch = 0; ; batch++) {
+                // Taken up front so that a drained queue ends the stream instead of sending an empty insert
+                MultiFileRowSource.Segment first = supplier.next();
+                if (first == null) {
+                    break;
+                }
+                pending.addFirst(first);
+                long limit = sizer.getTargetBytes();
+                String token = runId + "-" + label.replace(' ', '-') + "-" + batch;
+                for (int attempt = 1; ; attempt++) {
+                    MultiFileRowSource source = new MultiFileRowSource(supplier, opener, limit);
+                    ProgressRowSource rows = new ProgressRowSource(new MeteredRowSource(source, metrics), context);
+                    try (Connection conn = getConnection(config)) {
+                        long batchStart = System.currentTimeMillis();
+                        recordCount += inserter.insert(conn, config.getSelectedTables()[0], columns, rows, token);
+                        long latency = System.currentTimeMillis() - batchStart;
+                        sizer.onSuccess(source.position(), latency);
+                        metrics.recordBatch(inserter.mode(), latency);
+                        commitSegments(source, imports, context);
+                        if (source.remainder() != null) {
+                            pending.addFirst(source.remainder());
+                        }
+                        break;
+                    } catch (Exception e) {
+                        rows.rollback();
+                        List<MultiFileRowSource.Segment> taken = source.taken();
+                        for (int i = taken.size() - 1; i >= 0; i--) {
+                            pending.addFirst(taken.get(i));
+                        }
+                        if (e instanceof CancellationException || e instanceof IllegalArgumentException
+                                || attempt >= maxAttempts) {
+                            throw e;
+                        }
+                        if (BatchSizer.isBackPressure(e)) {
+                            sizer.onBackPressure();
+                        }
+                        long backoff = Math.min(retryBackoffMs << (attempt - 1), MAX_RETRY_BACKOFF_MS);
+                        log.warn("Batch {} of {} failed (attempt {} of {}), retrying in {} ms: {}",
+                                batch, label, attempt, maxAttempts, backoff, e.getMessage());
+                        Thread.sleep(backoff);
+                    } finally {
+                        source.close();
+                    }
+                }
+            }
+
+            return IngestionResult.builder()
+                    .success(true)
+                    .recordsProcessed(recordCount)
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message(label)
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error importing files in {}: ", label, e);
+            for (MultiFileRowSource.Segment segment : pending) {
+                imports.get(segment.getFile()).error = e.getMessage();
+            }
+            return IngestionResult.builder()
+                    .success(false)
+                    .recordsProcessed(recordCount)
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message(label)
+                    .errorDetails(e.getMessage())
+                    .build();
+        }
+    }
+
+    private void commitSegments(MultiFileRowSource source, List<ImportFile> imports, JobContext context) {
+        for (MultiFileRowSource.Segment segment : source.consumed()) {
+            ImportFile file = imports.get(segment.getFile());
+            file.rows += segment.getRows();
+            if (segment.isComplete()) {
+                file.done = true;
+                context.addFiles(1);
+                if (!file.readable.equals(file.path)) {
+                    deleteQuietly(file.readable);
+                }
+            }
+        }
+    }
+
+    /** Inflates a compressed file into {@code tempDir} and finds where its data starts and ends. */
+    private void prepareFile(ImportFile file, FlatFileConfig fileConfig, Path tempDir) throws IOException {
+        if (file.readable != null) {
+            return;
+        }
+        FileCompression compression = CompressionStreams.detect(file.path);
+        Path readable = compression != FileCompression.NONE ? decompress(file.path, compression, tempDir) : file.path;
+        file.dataStart = fileConfig.isHasHeader() ? headerLength(readable, fileConfig) : 0;
+        file.dataEnd = Files.size(readable);
+        file.readable = readable;
+    }
+
+    private int resolveFileStreams(FlatFileConfig fileConfig) {
+        // Unlike chunks of one file, streams only ever cut a file where the tokenizer ended a record, so
+        // quoted newlines do not limit them
+        int requested = fileConfig.getParallelism() > 0 ? fileConfig.getParallelism() : defaultParallelism;
+        return Math.min(requested, Math.min(workerThreads, connectionPool.getMaxSize()));
+    }
+
+    /** Progress of one file in a multi-file import; only the stream that holds the file writes to it. */
+    private static final class ImportFile {
+
+        private final int index;
+        private final String name;
+        private final Path path;
+        private Path readable;
+        private long dataStart;
+        private long dataEnd;
+        private volatile long rows;
+        private volatile boolean done;
+        private volatile String error;
+
+        private ImportFile(int index, String name, Path path) {
+            this.index = index;
+            this.name = name;
+            this.path = path;
+        }
+    }
+
+    /** Columns and layout of the table an import writes to, used if the import has to create it. */
+    private static final class TableDefinition {
+
+        private final List<ColumnSchema> schema;
+        private final TableLayout layout;
+        /** Whether the table drops a batch resent under the same token, set by {@code prepareTable}. */
+        private boolean deduplicates;
+
+        private TableDefinition(List<ColumnSchema> schema, TableLayout layout) {
+            this.schema = schema;
+            this.layout = layout;
+        }
+    }
+
+    /**
+     * Reads up to {@code ingest.schema.sample-rows} records, but never more than {@code ingest.stream.sample-bytes},
+     * without closing the source. A record cut off by the byte limit is dropped so it cannot skew inference.
+     */
+    private List<String[]> sampleStream(InputStream source, byte delimiter, boolean hasHeader) throws IOException {
+        LimitedInputStream limited = new LimitedInputStream(source, streamSampleBytes);
+        DelimitedTokenizer sampler = new DelimitedTokenizer(limited, delimiter,
+                DelimitedTokenizer.DEFAULT_QUOTE, READ_BUFFER_SIZE);
+        if (hasHeader) {
+            sampler.nextRecord();
+        }
+        List<String[]> rows = new ArrayList<>();
+        while (rows.size() < schemaSampleRows && sampler.nextRecord()) {
+            String[] row = new String[sampler.fieldCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = sampler.field(i);
+            }
+            rows.add(row);
+        }
+        if (limited.isExhausted() && !rows.isEmpty() && rows.size() < schemaSampleRows) {
+            rows.remove(rows.size() - 1);
+        }
+        return rows;
+    }
+
+    /**
+     * Inflates a compressed upload next to the original so that the import can still split it into
+     * chunks and parse them in parallel, which a single compressed stream would not allow.
+     */
+    private Path decompress(Path file, FileCompression compression) throws IOException {
+        return decompress(file, compression, file.toAbsolutePath().getParent());
+    }
+
+    private Path decompress(Path file, FileCompression compression, Path dir) throws IOException {
+        Path target = Files.createTempFile(dir, "decompressed-", ".tmp");
+        long start = System.currentTimeMillis();
+        try (InputStream in = CompressionStreams.decompress(
+                new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_SIZE), compression)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(target);
+            throw e;
+        }
+        log.info("Decompressed {} upload {} to {} bytes in {} ms", compression, file.getFileName(),
+                Files.size(target), System.currentTimeMillis() - start);
+        return target;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs one task per item on the shared worker pool and returns the results in item order. The first
+     * failure cancels the tasks that are still queued or running.
+     */
+    private <T> List<IngestionResult> runInParallel(List<T> items, Function<T, IngestionResult> task)
+            throws InterruptedException {
+        CompletionService<IngestionResult> completion = new ExecutorCompletionService<>(workerExecutor);
+        Map<Future<IngestionResult>, Integer> pending = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            pending.put(completion.submit(() -> task.apply(item)), i);
+        }
+
+        IngestionResult[] results = new IngestionResult[items.size()];
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                Future<IngestionResult> done = completion.take();
+                int index = pending.remove(done);
+                try {
+                    results[index] = done.get();
+                } catch (ExecutionException e) {
+                    results[index] = IngestionResult.builder()
+                            .success(false)
+                            .message(items.get(index).toString())
+                            .errorDetails(e.getCause().getMessage())
+                            .build();
+                }
+                if (!results[index].isSuccess()) {
+                    // One failed task fails the transfer, so stop the ones still queued or running
+                    break;
+                }
+            }
+        } finally {
+            for (Map.Entry<Future<IngestionResult>, Integer> entry : pending.entrySet()) {
+                entry.getKey().cancel(true);
+                results[entry.getValue()] = IngestionResult.builder()
+                        .success(false)
+                        .message(items.get(entry.getValue()).toString())
+                        .errorDetails("Cancelled")
+                        .build();
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Imports a chunk as a sequence of batches of about {@code batchBytes} each, starting at the chunk's
+     * committed offset. A failed batch is retried with exponential backoff under the same deduplication
+     * token, so a batch the server had already applied is not inserted twice. Tables that ignore the token
+     * get {@code maxAttempts} of 1.
+     */
+    private IngestionResult importChunk(Path file, ImportCheckpoint.ChunkState chunk, ImportCheckpoint checkpoint,
+                                        boolean persist, int maxAttempts, RowInserter inserter, BatchSizer sizer,
+                                        List<ColumnSchema> columns, FlatFileConfig fileConfig, ClickHouseConfig config,
+                                        JobContext context) {
+        long start = System.currentTimeMillis();
+        String label = String.format("chunk %d [%d-%d)", chunk.getIndex(), chunk.getStart(), chunk.getEnd());
+
+        try {
+            while (!chunk.isComplete()) {
+                long offset = chunk.getOffset();
+                long batchBytes;
+                synchronized (checkpoint) {
+                    // The size is fixed before the first attempt and kept across retries and resumes, so that
+                    // a token always names the same rows however the adaptive size has moved since
+                    if (chunk.getPendingBytes() == 0) {
+                        chunk.setPendingBytes(sizer.getTargetBytes());
+                        if (persist) {
+                            checkpointStore.save(checkpoint);
+                        }
+                    }
+                    batchBytes = chunk.getPendingBytes();
+                }
+                String token = checkpoint.getId() + "-" + offset + "-" + batchBytes;
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        long batchStart = System.currentTimeMillis();
+                        long[] batch = importBatch(file, new FileChunk(chunk.getIndex(), offset, chunk.getEnd()),
+                                batchBytes, token, inserter, columns, fileConfig, config, context);
+                        long latency = System.currentTimeMillis() - batchStart;
+                        sizer.onSuccess(batch[1], latency);
+                        metrics.recordBatch(inserter.mode(), latency);
+                        synchronized (checkpoint) {
+                            chunk.setOffset(offset + batch[1]);
+                            chunk.setPendingBytes(0);
+                            chunk.setBatches(chunk.getBatches() + 1);
+                            chunk.setRows(chunk.getRows() + batch[0]);
+                            if (persist) {
+                                checkpointStore.save(checkpoint);
+                            }
+                        }
+                        break;
+                    } catch (CancellationException | IllegalArgumentException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        if (BatchSizer.isBackPressure(e)) {
+                            // Later batches grow so the server has fewer parts to merge
+                            sizer.onBackPressure();
+                        }
+                        if (attempt >= maxAttempts) {
+                            throw e;
+                        }
+                        long backoff = Math.min(retryBackoffMs << (attempt - 1), MAX_RETRY_BACKOFF_MS);
+                        log.warn("Batch at offset {} of {} failed (attempt {} of {}), retrying in {} ms: {}",
+                                offset, label, attempt, maxAttempts, backoff, e.getMessage());
+                        Thread.sleep(backoff);
+                    }
+                }
+            }
+
+            return IngestionResult.builder()
+                    .success(true)
+                    .recordsProcessed(chunk.getRows())
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message(label)
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error importing {} of {}: ", label, file.getFileName(), e);
+            return IngestionResult.builder()
+                    .success(false)
+                    .recordsProcessed(chunk.getRows())
+                    .durationMillis(System.currentTimeMillis() - start)
+                    .message(label)
+                    .errorDetails(e.getMessage())
+                    .build();
         }
+    }
+
+    /** Sends one batch; returns the rows sent and the input bytes they covered. */
+    private long[] importBatch(Path file, FileChunk range, long batchBytes, String token, RowInserter inserter,
+                               List<ColumnSchema> columns, FlatFileConfig fileConfig, ClickHouseConfig config,
+                               JobContext context) throws Exception {
+        ProgressRowSource rows = null;
+        try (DelimitedTokenizer tokenizer = openChunk(file, range, fileConfig);
+             Connection conn = getConnection(config)) {
+            rows = new ProgressRowSource(new MeteredRowSource(
+                    new BoundedRowSource(new DelimitedRowSource(tokenizer), batchBytes), metrics), context);
+            long recordCount = inserter.insert(conn, config.getSelectedTables()[0], columns, rows, token);
+            return new long[] {recordCount, rows.position()};
+        } catch (Exception e) {
+            if (rows != null) {
+                rows.rollback();
+            }
+            throw e;
+        }
+    }
+
+    private ImportCheckpoint newCheckpoint(FlatFileConfig fileConfig, ClickHouseConfig config, List<FileChunk> chunks,
+                                           long fileSize, long fileModified) {
+        ImportCheckpoint checkpoint = new ImportCheckpoint();
+        // Without a persistent id the tokens still make retries within this import idempotent
+        checkpoint.setId(fileConfig.getCheckpointId() != null ? fileConfig.getCheckpointId() : UUID.randomUUID().toString());
+        checkpoint.setFileName(fileConfig.getFileName());
+        checkpoint.setFileSize(fileSize);
+        checkpoint.setFileModified(fileModified);
+        checkpoint.setTable(config.getSelectedTables()[0]);
+        checkpoint.setColumns(config.getSelectedColumns());
+        checkpoint.setDelimiter(fileConfig.getDelimiter());
+        checkpoint.setHasHeader(fileConfig.isHasHeader());
+        checkpoint.setQuotedNewlines(fileConfig.isQuotedNewlines());
+        checkpoint.setInsertMode(fileConfig.getInsertMode());
+        checkpoint.setBatchBytes(batchBytes);
+        checkpoint.setCreatedAt(System.currentTimeMillis());
+        List<ImportCheckpoint.ChunkState> states = new ArrayList<>();
+        for (FileChunk chunk : chunks) {
+            ImportCheckpoint.ChunkState state = new ImportCheckpoint.ChunkState();
+            state.setIndex(chunk.getIndex());
+            state.setStart(chunk.getStart());
+            state.setEnd(chunk.getEnd());
+            state.setOffset(chunk.getStart());
+            states.add(state);
+        }
+        checkpoint.setChunks(states);
+        return checkpoint;
+    }
+
+    private long headerLength(Path file, FlatFileConfig fileConfig) throws IOException {
+        try (DelimitedTokenizer tokenizer = new DelimitedTokenizer(Files.newInputStream(file),
+                DelimitedTokenizer.delimiterByte(fileConfig.getDelimiter()))) {
+            tokenizer.nextRecord();
+            return tokenizer.position();
+        }
+    }
+
+    private DelimitedTokenizer openChunk(Path file, FileChunk chunk, FlatFileConfig fileConfig) throws IOException {
+        byte delimiter = DelimitedTokenizer.delimiterByte(fileConfig.getDelimiter());
+        if (memoryMapped) {
+            return DelimitedTokenizer.mapped(file, chunk.getStart(), chunk.getEnd(), delimiter);
+        }
+        return new DelimitedTokenizer(chunk.open(file), delimiter, DelimitedTokenizer.DEFAULT_QUOTE, READ_BUFFER_SIZE);
+    }
+
+    private int resolveParallelism(FlatFileConfig fileConfig) {
+        int requested = fileConfig.getParallelism() > 0 ? fileConfig.getParallelism() : defaultParallelism;
+        // More streams than pooled connections would only queue on the pool and risk acquire timeouts
+        return Math.max(1, Math.min(requested, Math.min(workerThreads, connectionPool.getMaxSize())));
+    }
+
+    private BatchSizer batchSizer(FlatFileConfig fileConfig, long initialBytes) {
+        long min = fileConfig.getMinBatchBytes() > 0 ? fileConfig.getMinBatchBytes() : batchMinBytes;
+        long max = fileConfig.getMaxBatchBytes() > 0 ? fileConfig.getMaxBatchBytes() : batchMaxBytes;
+        return new BatchSizer(initialBytes, min, max, batchTargetLatencyMs, batchMaxIntervalMs);
+    }
+
+    private RowInserter inserterFor(InsertMode mode, List<ColumnSchema> columns, BatchSizer sizer) {
+        if (mode == InsertMode.ROW_BINARY && !RowBinaryInserter.supports(columns)) {
+            log.warn("Target columns include types without RowBinary support, falling back to {}", InsertMode.JDBC_BATCH);
+            mode = InsertMode.JDBC_BATCH;
+        }
+        if (mode == InsertMode.JDBC_BATCH) {
+            sizer.capMaxBytes(JDBC_MAX_BATCH_BYTES);
+            return new JdbcBatchInserter(sizer);
+        }
+        return new RowBinaryInserter();
+    }
+
+    private TableDefinition resolveTable(Path file, long dataStart, FlatFileConfig fileConfig,
+                                         ClickHouseConfig config) throws IOException {
+        List<ColumnProfile> profiles = null;
+        if (config.isInferTypes()) {
+            try (DelimitedTokenizer tokenizer = openChunk(file, new FileChunk(0, dataStart, Files.size(file)), fileConfig)) {
+                profiles = SchemaInferrer.profile(tokenizer, config.getSelectedColumns().length, schemaSampleRows, schemaSampling);
+            }
+        }
+        return resolveTable(profiles, config);
+    }
+
+    private TableDefinition resolveTable(List<ColumnProfile> profiles, ClickHouseConfig config) {
+        List<ColumnSchema> schema = SchemaInferrer.schema(config.getSelectedColumns(), profiles, config.getColumnTypes());
+        TableLayout layout = TableLayoutAdvisor.advise(schema, profiles, config);
+        log.info("Schema for {}: {}; {}", config.getSelectedTables()[0], schema.stream()
+                .map(c -> c.getName() + " " + c.getType())
+                .collect(Collectors.joining(", ")), engineClauses(layout));
+        return new TableDefinition(schema, layout);
+    }
+
+    /**
+     * Creates the table if it does not exist and returns the column types inserts must encode against.
+     */
+    private List<ColumnSchema> prepareTable(TableDefinition table, ClickHouseConfig config) throws SQLException {
+        List<ColumnSchema> schema = table.schema;
+        String createTableSql = buildCreateTableSql(table, config);
+        try (Connection conn = getConnection(config)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(createTableSql);
+            }
+            metadataCache.invalidateTable(config, config.getSelectedTables()[0]);
+            table.deduplicates = Deduplication.supported(conn, config.getSelectedTables()[0]);
+            if (!table.deduplicates) {
+                log.warn("{} does not deduplicate inserts, so a failed batch is not retried: a retry could insert "
+                        + "it twice", config.getSelectedTables()[0]);
+            }
+            return targetColumns(conn, config, schema);
+        }
+    }
+
+    private List<ColumnSchema> targetColumns(Connection conn, ClickHouseConfig config, List<ColumnSchema> schema)
+            throws SQLException {
+        // The table may predate this import, in which case its declared types win over the inferred ones
+        String table = config.getSelectedTables()[0];
+        Map<String, String> existing = new HashMap<>();
+        for (ColumnSchema column : metadataCache.getColumns(config, table,
+                () -> loadColumns(conn, config.getDatabase(), table))) {
+            existing.put(column.getName(), column.getType());
+        }
+
+        List<ColumnSchema> columns = new ArrayList<>(schema.size());
+        for (ColumnSchema column : schema) {
+            columns.add(new ColumnSchema(column.getName(), existing.getOrDefault(column.getName(), column.getType())));
+        }
+        return columns;
+    }
+
+    @Override
+    public long countRecords(ClickHouseConfig config) {
+        String countQuery = "SELECT COUNT(*) FROM " + source(config) + QueryClauses.filters(config, null);
 
         try (Connection conn = getConnection(config);
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(countQuery)) {
             if (rs.next()) {
-                return rs.getLong(1);
+                long rows = rs.getLong(1);
+                return config.getLimit() != null ? Math.min(rows, config.getLimit()) : rows;
             }
         } catch (Exception e) {
             log.error("Error getting total record count: ", e);
@@ -259,42 +1748,72 @@ public class DataIngestionServiceImpl implements DataIngestionService {
         return 0;
     }
 
-    private long countFileLines(String fileName) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            return reader.lines().count();
-        } catch (Exception e) {
-            log.error("Error counting file lines: ", e);
-            return 0;
+    private long countRows(ClickHouseConfig config, String filter) throws SQLException {
+        try (Connection conn = getConnection(config);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT count() FROM " + source(config)
+                     + QueryClauses.filters(config, filter))) {
+            rs.next();
+            return rs.getLong(1);
         }
     }
 
-    private String buildJoinQuery(ClickHouseConfig config) {
+    private String buildExportQuery(ClickHouseConfig config, String filter) {
         String columns = String.join(", ", config.getSelectedColumns());
-        String mainTable = config.getSelectedTables()[0];
-        StringBuilder query = new StringBuilder(String.format("SELECT %s FROM %s", columns, mainTable));
+        return String.format("SELECT %s FROM %s", columns, source(config))
+                + QueryClauses.filters(config, filter) + QueryClauses.orderAndLimit(config);
+    }
+
+    private static String and(String filter, String other) {
+        return filter != null ? "(" + filter + ") AND (" + other + ")" : other;
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Failed to close export stream: {}", e.getMessage());
+        }
+    }
 
+    private void cancelQuietly(Statement stmt) {
+        try {
+            stmt.cancel();
+        } catch (SQLException e) {
+            log.warn("Failed to cancel query: {}", e.getMessage());
+        }
+    }
+
+    /** The FROM clause: the table, or the tables joined on the join condition, with any sampling on the first. */
+    private static String source(ClickHouseConfig config) {
+        StringBuilder source = new StringBuilder(config.getSelectedTables()[0]).append(QueryClauses.sample(config));
         for (int i = 1; i < config.getSelectedTables().length; i++) {
-            query.append(String.format(" JOIN %s ON %s",
+            source.append(String.format(" JOIN %s ON %s",
                     config.getSelectedTables()[i],
                     config.getJoinCondition()));
         }
-
-        return query.toString();
+        return source.toString();
     }
 
-    private String buildCreateTableSql(FlatFileConfig fileConfig, ClickHouseConfig config) {
-        String columns = Arrays.stream(fileConfig.getSelectedColumns())
-                .map(col -> String.format("%s String", col))
+    private String buildCreateTableSql(TableDefinition table, ClickHouseConfig config) {
+        Map<String, String> codecs = table.layout.getCodecs();
+        String columns = table.schema.stream()
+                .map(col -> codecs.containsKey(col.getName())
+                        ? String.format("%s %s CODEC(%s)", col.getName(), col.getType(), codecs.get(col.getName()))
+                        : String.format("%s %s", col.getName(), col.getType()))
                 .collect(Collectors.joining(", "));
 
-        return String.format("CREATE TABLE IF NOT EXISTS %s (%s) ENGINE = MergeTree() ORDER BY tuple()",
-                config.getSelectedTables()[0], columns);
+        // The deduplication window lets batch retries carrying insert_deduplication_token be dropped as repeats
+        return String.format("CREATE TABLE IF NOT EXISTS %s (%s) ENGINE = MergeTree() %s "
+                        + "SETTINGS non_replicated_deduplication_window = %d",
+                config.getSelectedTables()[0], columns, engineClauses(table.layout), DEDUPLICATION_WINDOW);
     }
 
-    private String buildInsertSql(ClickHouseConfig config) {
-        String columns = String.join(", ", config.getSelectedColumns());
-        String placeholders = String.join(", ", Collections.nCopies(config.getSelectedColumns().length, "?"));
-        return String.format("INSERT INTO %s (%s) VALUES (%s)",
-                config.getSelectedTables()[0], columns, placeholders);
+    private static String engineClauses(TableLayout layout) {
+        List<String> key = layout.getSortingKey();
+        String orderBy = key.isEmpty() ? "tuple()"
+                : key.size() == 1 ? key.get(0) : "(" + String.join(", ", key) + ")";
+        return (layout.getPartitionKey() != null ? "PARTITION BY " + layout.getPartitionKey() + " " : "")
+                + "ORDER BY " + orderBy;
     }
 }
@@ -0,0 +1,256 @@
+package com.dataingest.upload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a {@code multipart/form-data} body part by part straight off the request stream, holding at
+ * most one fixed-size buffer. Unlike the servlet container's parser it never stages a part on disk,
+ * so a file part can be consumed while it is still being uploaded. Parts must be read in order.
+ */
+public class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+    private static final int MAX_HEADERS = 32;
+    private static final Pattern DISPOSITION_PARAM =
+            Pattern.compile(";\\s*([A-Za-z*]+)\\s*=\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|([^;\\s]*))");
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buf;
+    private int head;
+    private int tail;
+    /** No delimiter starts before this buffer index; saves rescanning on every small read. */
+    private int scanned;
+    private boolean eof;
+
+    private PartInputStream current;
+    private boolean finished;
+    private String fieldName;
+    private String fileName;
+    private String contentType;
+
+    public MultipartStreamReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buf = new byte[Math.max(BUFFER_SIZE, delimiter.length * 4)];
+        // The first boundary has no preceding line break; pretend it does so every delimiter looks alike
+        buf[0] = '\r';
+        buf[1] = '\n';
+        tail = 2;
+        current = new PartInputStream();
+    }
+
+    /**
+     * Skips whatever is left of the current part and moves to the next one. Returns {@code false}
+     * after the closing boundary.
+     */
+    public boolean nextPart() throws IOException {
+        if (finished) {
+            return false;
+        }
+        drain(current);
+
+        if (!ensure(2)) {
+            throw new EOFException("Unexpected end of multipart body");
+        }
+        if (buf[head] == '-' && buf[head + 1] == '-') {
+            finished = true;
+            return false;
+        }
+        readLine(); // Rest of the boundary line, normally empty
+
+        fieldName = null;
+        fileName = null;
+        contentType = null;
+        for (int i = 0; ; i++) {
+            String line = readLine();
+            if (line.isEmpty()) {
+                break;
+            }
+            if (i == MAX_HEADERS) {
+                throw new IOException("Too many headers in multipart part");
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if ("content-disposition".equals(name)) {
+                parseDisposition(value);
+            } else if ("content-type".equals(name)) {
+                contentType = value;
+            }
+        }
+        current = new PartInputStream();
+        return true;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /** File name of the current part, or {@code null} for a plain form field. */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /** Body of the current part; ends at the next boundary. */
+    public InputStream getInputStream() {
+        return current;
+    }
+
+    /** Reads the current part as UTF-8 text, failing if it is longer than {@code maxBytes}. */
+    public String readString(int maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        for (int n; (n = current.read(chunk)) > 0; ) {
+            if (out.size() + n > maxBytes) {
+                throw new IOException("Form field " + fieldName + " exceeds " + maxBytes + " bytes");
+            }
+            out.write(chunk, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void parseDisposition(String value) {
+        Matcher m = DISPOSITION_PARAM.matcher(value);
+        while (m.find()) {
+            String param = m.group(1).toLowerCase(Locale.ROOT);
+            String paramValue = m.group(2) != null ? m.group(2).replaceAll("\\\\(.)", "$1") : m.group(3);
+            if ("name".equals(param)) {
+                fieldName = paramValue;
+            } else if ("filename".equals(param)) {
+                fileName = paramValue;
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        while (true) {
+            for (int i = head; i + 1 < tail; i++) {
+                if (buf[i] == '\r' && buf[i + 1] == '\n') {
+                    String line = new String(buf, head, i - head, StandardCharsets.UTF_8);
+                    head = i + 2;
+                    return line;
+                }
+            }
+            if (tail - head >= MAX_HEADER_LINE) {
+                throw new IOException("Multipart header line too long");
+            }
+            if (!fill()) {
+                throw new EOFException("Unexpected end of multipart headers");
+            }
+        }
+    }
+
+    private void drain(InputStream part) throws IOException {
+        byte[] skip = new byte[4096];
+        while (part.read(skip) >= 0) {
+            // Discard
+        }
+    }
+
+    /** Makes at least {@code count} bytes available, returning {@code false} at end of input. */
+    private boolean ensure(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buf, head, buf, 0, tail - head);
+            tail -= head;
+            scanned = Math.max(0, scanned - head);
+            head = 0;
+        }
+        if (tail == buf.length) {
+            return false;
+        }
+        int n = in.read(buf, tail, buf.length - tail);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        tail += n;
+        return true;
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        outer:
+        for (int i = Math.max(head, scanned); i + delimiter.length <= tail; i++) {
+            if (buf[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            scanned = i;
+            return i;
+        }
+        scanned = Math.max(head, tail - delimiter.length + 1);
+        return -1;
+    }
+
+    private final class PartInputStream extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int match = indexOfDelimiter();
+                // Bytes that cannot be the start of a delimiter split across the buffer end
+                int safe = match >= 0 ? match - head : tail - head - (delimiter.length - 1);
+                if (safe > 0) {
+                    int n = Math.min(len, safe);
+                    System.arraycopy(buf, head, b, off, n);
+                    head += n;
+                    return n;
+                }
+                if (match >= 0) {
+                    head = match + delimiter.length;
+                    done = true;
+                    return -1;
+                }
+                if (!fill()) {
+                    throw new EOFException("Unexpected end of multipart body");
+                }
+            }
+        }
+    }
+}
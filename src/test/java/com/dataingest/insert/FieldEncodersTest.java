@@ -0,0 +1,135 @@
+package com.dataingest.insert;
+
+import com.clickhouse.data.ClickHouseOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FieldEncodersTest {
+
+    @Test
+    void encodesIntegersAtTheEdgesOfTheirRange() throws IOException {
+        assertThat(encode("Int8", "-128")).containsExactly(0x80);
+        assertThat(encode("Int8", "127")).containsExactly(0x7F);
+        assertThat(encode("UInt8", "255")).containsExactly(0xFF);
+        assertThat(encode("UInt16", "65535")).containsExactly(0xFF, 0xFF);
+        assertThat(encode("Int32", "-2147483648")).containsExactly(0x00, 0x00, 0x00, 0x80);
+        assertThat(encode("UInt32", "4294967295")).containsExactly(0xFF, 0xFF, 0xFF, 0xFF);
+        assertThat(longValue(encode("Int64", "-9223372036854775808"))).isEqualTo(Long.MIN_VALUE);
+        assertThat(longValue(encode("Int64", "+9223372036854775807"))).isEqualTo(Long.MAX_VALUE);
+        assertThat(longValue(encode("UInt64", "18446744073709551615"))).isEqualTo(-1L);
+        assertThat(encode("UInt32", "-0")).containsExactly(0, 0, 0, 0);
+        assertThat(encode("Int16", "")).containsExactly(0, 0);
+    }
+
+    @Test
+    void rejectsIntegersOutsideTheirRange() {
+        assertRejected("UInt8", "256");
+        assertRejected("UInt8", "300");
+        assertRejected("Int8", "128");
+        assertRejected("Int8", "-129");
+        assertRejected("UInt32", "-1");
+        assertRejected("UInt32", "4294967296");
+        assertRejected("Int32", "2147483648");
+        assertRejected("Int64", "9223372036854775808");
+        assertRejected("Int64", "-9223372036854775809");
+        assertRejected("UInt64", "18446744073709551616");
+        assertRejected("UInt64", "99999999999999999999");
+        assertRejected("Int64", "123456789012345678901234567890");
+        assertRejected("Int32", "12a");
+        assertRejected("Int32", "-");
+    }
+
+    @Test
+    void checksDecimalPrecisionAndScale() throws IOException {
+        assertThat(encode("Decimal(9, 2)", "1234567.89")).containsExactly(0x15, 0xCD, 0x5B, 0x07);
+        assertThat(encode("Decimal(9, 2)", "0001.5")).containsExactly(150, 0, 0, 0);
+        assertThat(longValue(encode("Decimal(18, 4)", "-12.5"))).isEqualTo(-125000L);
+        assertRejected("Decimal(9, 2)", "12345678.9");
+        assertRejected("Decimal(9, 2)", "1.234");
+        assertRejected("Decimal(4, 4)", "1.5");
+    }
+
+    @Test
+    void checksDatesAndTimes() throws IOException {
+        assertThat(encode("Date", "1970-01-02")).containsExactly(1, 0);
+        assertThat(encode("Date", "2149-06-06")).containsExactly(0xFF, 0xFF);
+        assertThat(encode("Date", "2024-02-29")).hasSize(2);
+        assertRejected("Date", "2023-02-29");
+        assertRejected("Date", "2024-13-01");
+        assertRejected("Date", "2024-04-31");
+        assertRejected("Date", "2024-00-10");
+        assertRejected("Date", "1969-12-31");
+        assertRejected("Date", "2149-06-07");
+        assertRejected("Date32", "1899-12-31");
+
+        assertThat(encode("DateTime", "1970-01-01 00:00:01")).containsExactly(1, 0, 0, 0);
+        assertRejected("DateTime", "2024-01-01 24:00:00");
+        assertRejected("DateTime", "2024-01-01 12:60:00");
+        assertRejected("DateTime", "2024-02-30 00:00:00");
+        assertRejected("DateTime", "1969-12-31 23:59:59");
+        assertRejected("DateTime64(3)", "2024-01-01 00:00:00.1x");
+        assertRejected("DateTime64(9)", "2290-01-01 00:00:00");
+    }
+
+    @Test
+    void readsDateTimesWithoutAZoneInTheServerZone() throws IOException {
+        assertThat(encode("DateTime", "1970-01-01 00:00:00")).containsExactly(0, 0, 0, 0);
+        ZoneId plusOne = ZoneOffset.ofHours(1);
+        assertThat(encode("DateTime", "1970-01-01 01:00:00", plusOne)).containsExactly(0, 0, 0, 0);
+        assertThat(encode("DateTime('UTC')", "1970-01-01 01:00:00", plusOne)).containsExactly(0x10, 0x0E, 0, 0);
+        assertThat(longValue(encode("DateTime64(3)", "1970-01-01 00:00:01.25"))).isEqualTo(1250L);
+    }
+
+    @Test
+    void encodesNullsAndStrings() throws IOException {
+        assertThat(encode("Nullable(UInt8)", "")).containsExactly(1);
+        assertThat(encode("Nullable(UInt8)", "\\N")).containsExactly(1);
+        assertThat(encode("Nullable(UInt8)", "7")).containsExactly(0, 7);
+        assertThat(encode("LowCardinality(String)", "ab")).containsExactly(2, 'a', 'b');
+        assertRejected("Nullable(UInt8)", "256");
+        assertRejected("Float32", "1e40");
+        assertRejected("Bool", "yes");
+    }
+
+    private static int[] encode(String type, String value) throws IOException {
+        return encode(type, value, ZoneOffset.UTC);
+    }
+
+    private static int[] encode(String type, String value, ZoneId serverZone) throws IOException {
+        byte[] field = value.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ClickHouseOutputStream out = ClickHouseOutputStream.of(bytes, 64)) {
+            FieldEncoders.forType(type, serverZone).encode(field, 0, field.length, out);
+        }
+        byte[] encoded = bytes.toByteArray();
+        int[] unsigned = new int[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+            unsigned[i] = encoded[i] & 0xFF;
+        }
+        return unsigned;
+    }
+
+    private static long longValue(int[] encoded) {
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        for (int b : encoded) {
+            buffer.put((byte) b);
+        }
+        return buffer.getLong(0);
+    }
+
+    private static void assertRejected(String type, String value) {
+        assertThatThrownBy(() -> encode(type, value))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Cannot parse '" + value + "'");
+    }
+}
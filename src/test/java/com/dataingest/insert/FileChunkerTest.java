@@ -0,0 +1,98 @@
+package com.dataingest.insert;
+
+import com.dataingest.parser.DelimitedTokenizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileChunkerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void quotedLineBreaksNeverSplitARecord() throws IOException {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder("id,note,tail\n");
+        for (int i = 0; i < 2000; i++) {
+            String note;
+            switch (random.nextInt(5)) {
+                case 0:
+                    note = "\"line one\nline two\r\nline \"\"three\"\"\n\"";
+                    break;
+                case 1:
+                    note = "\"a,b\"";
+                    break;
+                case 2:
+                    note = "say \"hi\"";
+                    break;
+                case 3:
+                    note = "\"\"";
+                    break;
+                default:
+                    note = "plain";
+            }
+            text.append(i).append(',').append(note).append(",x").append(i % 7 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write(text.toString());
+        long dataStart = "id,note,tail\n".length();
+
+        List<List<String>> expected = records(file, new FileChunk(0, dataStart, Files.size(file)));
+        List<FileChunk> chunks = FileChunker.split(file, dataStart, 8, 1, true, (byte) ',', DelimitedTokenizer.DEFAULT_QUOTE);
+
+        assertThat(chunks).hasSize(8);
+        List<List<String>> actual = new ArrayList<>();
+        for (FileChunk chunk : chunks) {
+            actual.addAll(records(file, chunk));
+        }
+        assertThat(actual).hasSize(2000).isEqualTo(expected);
+        assertThat(chunks.get(chunks.size() - 1).getEnd()).isEqualTo(Files.size(file));
+    }
+
+    @Test
+    void plainSplitCutsAtTheNextLineBreak() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("row").append(i).append('\n');
+        }
+        Path file = write(text.toString());
+
+        List<FileChunk> chunks = FileChunker.split(file, 0, 4, 1);
+
+        assertThat(chunks).hasSize(4);
+        for (int i = 1; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).getStart()).isEqualTo(chunks.get(i - 1).getEnd());
+            assertThat(text.charAt((int) chunks.get(i).getStart() - 1)).isEqualTo('\n');
+        }
+    }
+
+    private Path write(String text) throws IOException {
+        return Files.write(dir.resolve("data.csv"), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<List<String>> records(Path file, FileChunk chunk) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (InputStream in = chunk.open(file);
+             DelimitedTokenizer tokenizer = new DelimitedTokenizer(in, (byte) ',')) {
+            while (tokenizer.nextRecord()) {
+                String[] fields = new String[tokenizer.fieldCount()];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = tokenizer.field(i);
+                }
+                records.add(Arrays.asList(fields));
+            }
+        }
+        return records;
+    }
+}
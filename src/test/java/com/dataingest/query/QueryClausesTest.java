@@ -0,0 +1,118 @@
+package com.dataingest.query;
+
+import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnFilter;
+import com.dataingest.model.ColumnOrder;
+import com.dataingest.model.FilterOperator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryClausesTest {
+
+    @Test
+    void escapesQuotesAndBackslashesInLiterals() {
+        assertThat(QueryClauses.literal("it's")).isEqualTo("'it\\'s'");
+        assertThat(QueryClauses.literal("a\\b")).isEqualTo("'a\\\\b'");
+        assertThat(QueryClauses.literal("\\' OR 1=1 --")).isEqualTo("'\\\\\\' OR 1=1 --'");
+        assertThat(QueryClauses.literal(42L)).isEqualTo("42");
+        assertThat(QueryClauses.literal(1e-7)).isEqualTo("0.00000010");
+        assertThat(QueryClauses.literal(new BigDecimal("1E+3"))).isEqualTo("1000");
+        assertThat(QueryClauses.literal(true)).isEqualTo("true");
+        assertThatThrownBy(() -> QueryClauses.literal(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> QueryClauses.literal(Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> QueryClauses.literal(Collections.emptyMap()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void quotesIdentifiersAndRejectsAnythingElse() {
+        assertThat(QueryClauses.identifier("ts")).isEqualTo("`ts`");
+        assertThat(QueryClauses.identifier("e.user_id")).isEqualTo("`e`.`user_id`");
+        for (String name : Arrays.asList(null, "", "1abc", "a b", "a`b", "a;DROP TABLE t", "a.b.c", "f(x)", "a-b")) {
+            assertThatThrownBy(() -> QueryClauses.identifier(name))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Invalid column name");
+        }
+    }
+
+    @Test
+    void rendersPrewhereAndWhere() {
+        ClickHouseConfig config = config();
+        config.setPrewhere(Collections.singletonList(filter("day", FilterOperator.GE, "2024-01-01")));
+        ColumnFilter in = filter("region", FilterOperator.IN, null);
+        in.setValues(Arrays.<Object>asList("eu", "o'us"));
+        config.setFilters(Arrays.asList(in, filter("deleted", FilterOperator.IS_NULL, null)));
+
+        assertThat(QueryClauses.filters(config, null)).isEqualTo(" PREWHERE `day` >= '2024-01-01'"
+                + " WHERE `region` IN ('eu', 'o\\'us') AND `deleted` IS NULL");
+        assertThat(QueryClauses.filters(config, "`id` > 5")).isEqualTo(" PREWHERE `day` >= '2024-01-01'"
+                + " WHERE (`region` IN ('eu', 'o\\'us') AND `deleted` IS NULL) AND (`id` > 5)");
+        assertThat(QueryClauses.filters(config(), null)).isEmpty();
+        assertThat(QueryClauses.filters(config(), "`id` > 5")).isEqualTo(" WHERE `id` > 5");
+
+        config.setSelectedTables(new String[]{"events", "users"});
+        assertThatThrownBy(() -> QueryClauses.filters(config, null)).isInstanceOf(IllegalArgumentException.class);
+
+        ClickHouseConfig between = config();
+        between.setFilters(Collections.singletonList(filter("id", FilterOperator.BETWEEN, null)));
+        assertThatThrownBy(() -> QueryClauses.filters(between, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rendersSampleAsFractionOrRowCount() {
+        ClickHouseConfig config = config();
+        assertThat(QueryClauses.sample(config)).isEmpty();
+        config.setSample(0.1);
+        assertThat(QueryClauses.sample(config)).isEqualTo(" SAMPLE 0.1");
+        config.setSample(1.0);
+        assertThat(QueryClauses.sample(config)).isEqualTo(" SAMPLE 1.0");
+        config.setSample(1000.0);
+        assertThat(QueryClauses.sample(config)).isEqualTo(" SAMPLE 1000");
+        for (double invalid : new double[]{0, -0.5, 1.5, Double.NaN, Double.POSITIVE_INFINITY}) {
+            config.setSample(invalid);
+            assertThatThrownBy(() -> QueryClauses.sample(config)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void alwaysSendsAPositiveRowLimit() {
+        ClickHouseConfig config = config();
+        assertThat(QueryClauses.orderAndLimit(config)).isEmpty();
+        assertThat(QueryClauses.orderAndLimit(config, 100)).isEqualTo(" LIMIT 100");
+        assertThatThrownBy(() -> QueryClauses.orderAndLimit(config, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> QueryClauses.orderAndLimit(config, -1)).isInstanceOf(IllegalArgumentException.class);
+
+        ColumnOrder order = new ColumnOrder();
+        order.setColumn("ts");
+        order.setDescending(true);
+        config.setOrderBy(Collections.singletonList(order));
+        config.setLimit(10L);
+        assertThat(QueryClauses.orderAndLimit(config)).isEqualTo(" ORDER BY `ts` DESC LIMIT 10");
+        assertThat(QueryClauses.orderAndLimit(config, 5)).isEqualTo(" ORDER BY `ts` DESC LIMIT 5");
+        assertThat(QueryClauses.orderAndLimit(config, 100)).isEqualTo(" ORDER BY `ts` DESC LIMIT 10");
+
+        config.setLimit(-1L);
+        assertThatThrownBy(() -> QueryClauses.orderAndLimit(config)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ClickHouseConfig config() {
+        ClickHouseConfig config = new ClickHouseConfig();
+        config.setSelectedTables(new String[]{"events"});
+        config.setSelectedColumns(new String[]{"id", "day", "region"});
+        return config;
+    }
+
+    private static ColumnFilter filter(String column, FilterOperator op, Object value) {
+        ColumnFilter filter = new ColumnFilter();
+        filter.setColumn(column);
+        filter.setOp(op);
+        filter.setValue(value);
+        return filter;
+    }
+}
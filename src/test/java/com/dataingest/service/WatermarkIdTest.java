@@ -0,0 +1,53 @@
+package com.dataingest.service;
+
+import com.dataingest.model.ClickHouseConfig;
+import com.dataingest.model.ColumnFilter;
+import com.dataingest.model.FilterOperator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WatermarkIdTest {
+
+    @Test
+    void exportsOfDifferentRowsKeepTheirOwnMark() {
+        String all = DataIngestionServiceImpl.watermarkId(config());
+
+        ClickHouseConfig eu = config();
+        eu.setFilters(Collections.singletonList(filter("region", "eu")));
+        ClickHouseConfig us = config();
+        us.setFilters(Collections.singletonList(filter("region", "us")));
+        ClickHouseConfig prewhere = config();
+        prewhere.setPrewhere(Collections.singletonList(filter("region", "eu")));
+        ClickHouseConfig sampled = config();
+        sampled.setSample(0.1);
+
+        assertThat(DataIngestionServiceImpl.watermarkId(eu))
+                .isNotEqualTo(DataIngestionServiceImpl.watermarkId(us))
+                .isNotEqualTo(DataIngestionServiceImpl.watermarkId(prewhere))
+                .isNotEqualTo(all);
+        assertThat(DataIngestionServiceImpl.watermarkId(sampled)).isNotEqualTo(all);
+        assertThat(DataIngestionServiceImpl.watermarkId(config())).isEqualTo(all);
+    }
+
+    private static ClickHouseConfig config() {
+        ClickHouseConfig config = new ClickHouseConfig();
+        config.setHost("localhost");
+        config.setPort(8123);
+        config.setDatabase("default");
+        config.setSelectedTables(new String[]{"events"});
+        config.setSelectedColumns(new String[]{"id", "ts", "region"});
+        config.setWatermarkColumn("ts");
+        return config;
+    }
+
+    private static ColumnFilter filter(String column, String value) {
+        ColumnFilter filter = new ColumnFilter();
+        filter.setColumn(column);
+        filter.setOp(FilterOperator.EQ);
+        filter.setValue(value);
+        return filter;
+    }
+}